@@ -0,0 +1,85 @@
+package game;
+
+import tools.WorkerPool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures a tick of gravity, GravityTree.apply, on 20000 bodies spread
+ * over a large space, at the opening angle of the game. The tree is built
+ * and the forces computed on the worker pool, with one worker per
+ * processor; the benchmark prints the number of processors, the time per
+ * tick and whether it fits the 16.7 ms of a frame at 60 frames per
+ * second.
+ * <p>
+ * It also prints the share of the force pass, split among the workers,
+ * and from it the time per tick projected for more cores, counting the
+ * rest of the tick as serial although the sort and most of the tree are
+ * built in parallel too. Projections are no measure: run the benchmark on
+ * the machine of interest.
+ * <p>
+ * Run with, for the bodies to be spread as in a large game:
+ * java -Dspace.width=8000 -Dspace.height=8000 -cp bin game.GravityTreeBenchmark [bodies]
+ */
+public class GravityTreeBenchmark {
+
+  public static void main(String[] args) {
+    int bodyCount = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_BODY_COUNT;
+    RandomGenerator generator = new RandomGenerator(SEED);
+    List<Asteroid> asteroids = new ArrayList<>(bodyCount - 1);
+    for (int i = 0; i < bodyCount - 1; i++) {
+      asteroids.add(generator.asteroid(1 + i % 3));
+    }
+    Spaceship spaceship = new Spaceship();
+    GravityTree tree = new GravityTree(Space.SPACE_WIDTH, Space.SPACE_HEIGHT,
+      GRAVITY_CONSTANT, SOFTENING, OPENING_ANGLE);
+    System.out.printf("%d bodies in %.0f x %.0f, %d processors, %d workers%n",
+      bodyCount, Space.SPACE_WIDTH, Space.SPACE_HEIGHT,
+      Runtime.getRuntime().availableProcessors(), WorkerPool.WORKER_COUNT);
+    for (int round = 0; round < ROUND_COUNT; round++) {
+      for (int tick = 0; tick < WARMUP_TICK_COUNT; tick++) {
+        tree.apply(asteroids, spaceship, SPACESHIP_MASS, TICK_DURATION);
+      }
+      long forceStart = tree.getForceTime();
+      long start = System.nanoTime();
+      for (int tick = 0; tick < TICK_COUNT; tick++) {
+        tree.apply(asteroids, spaceship, SPACESHIP_MASS, TICK_DURATION);
+      }
+      double millisPerTick = (System.nanoTime() - start) / 1e6 / TICK_COUNT;
+      double forceMillisPerTick = (tree.getForceTime() - forceStart) / 1e6 / TICK_COUNT;
+      System.out.printf(
+        "%.2f ms per tick, %.0f%% in the force pass, %.0f interactions per body, %s%n",
+        millisPerTick, 100 * forceMillisPerTick / millisPerTick,
+        (double) tree.getInteractionCount() / bodyCount,
+        (millisPerTick <= FRAME_MILLIS) ? "real time" : "slower than real time");
+      double forceWork = forceMillisPerTick * WorkerPool.WORKER_COUNT;
+      double rest = millisPerTick - forceMillisPerTick;
+      for (int cores : PROJECTED_CORE_COUNTS) {
+        if (cores > WorkerPool.WORKER_COUNT) {
+          System.out.printf("  projected on %d cores: %.1f ms per tick%n",
+            cores, rest + forceWork / cores);
+        }
+      }
+    }
+  }
+
+
+  private static final long SEED = 44;
+  private static final int DEFAULT_BODY_COUNT = 20_000;
+
+  // the settings of gravity in Space
+  private static final double GRAVITY_CONSTANT = 2000;
+  private static final double SOFTENING = 20;
+  private static final double OPENING_ANGLE = 0.5;
+  private static final double SPACESHIP_MASS = 1;
+
+  private static final double TICK_DURATION = 1. / 60;
+  private static final double FRAME_MILLIS = 1000. / 60;
+  private static final int[] PROJECTED_CORE_COUNTS = {2, 4, 8};
+
+  // ticks measured per round after the warm-up
+  private static final int WARMUP_TICK_COUNT = 20;
+  private static final int TICK_COUNT = 50;
+  private static final int ROUND_COUNT = 3;
+}
@@ -0,0 +1,46 @@
+package game;
+
+/**
+ * Measures the time of an update of space, in a game started with a fixed
+ * seed and played with the spaceship idle. It prints the time per update,
+ * the number of simulated asteroids, and how many of them the update
+ * tiers deferred.
+ * <p>
+ * The settings of space are read once from the system properties, so each
+ * setting is measured by a run of its own, for instance with
+ * -Dspace.updateRadii=600,900,1200 to defer the updates of far asteroids,
+ * then without, to update every asteroid at each tick:
+ * java -Dspace.width=8000 -Dspace.height=8000 -cp bin game.SpaceUpdateBenchmark
+ */
+public class SpaceUpdateBenchmark {
+
+  public static void main(String[] args) {
+    Space space = new Space(SEED);
+    for (int tick = 0; tick < WARMUP_TICK_COUNT; tick++) {
+      space.update(TICK_DURATION);
+    }
+    UpdateTiers tiers = space.getUpdateTiers();
+    long updatedStart = tiers.getTotalUpdatedCount();
+    long deferredStart = tiers.getTotalDeferredCount();
+    long simulatedCount = 0;
+    long start = System.nanoTime();
+    for (int tick = 0; tick < TICK_COUNT; tick++) {
+      space.update(TICK_DURATION);
+      simulatedCount += space.getAsteroids().size();
+    }
+    double microsPerTick = (System.nanoTime() - start) / 1e3 / TICK_COUNT;
+    long updated = tiers.getTotalUpdatedCount() - updatedStart;
+    long deferred = tiers.getTotalDeferredCount() - deferredStart;
+    System.out.printf(
+      "radii %s: %.1f us per update, %d simulated asteroids, %.0f%% deferred%n",
+      System.getProperty("space.updateRadii", ""), microsPerTick,
+      simulatedCount / TICK_COUNT,
+      (updated + deferred == 0) ? 0. : 100. * deferred / (updated + deferred));
+  }
+
+
+  private static final long SEED = 43;
+  private static final double TICK_DURATION = 1. / 60;
+  private static final int WARMUP_TICK_COUNT = 600;
+  private static final int TICK_COUNT = 3000;
+}
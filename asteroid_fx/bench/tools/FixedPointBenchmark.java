@@ -0,0 +1,100 @@
+package tools;
+
+import java.util.Random;
+
+/**
+ * Measures the throughput of the fixed-point math against the double math
+ * of the JDK: sine, atan2, and rotations of vectors. The sines and atan2
+ * of both kinds are measured in the same run, alternately; Vector.rotate
+ * follows the mode of the simulation, so each mode is measured by a run
+ * of its own:
+ * java -cp bin tools.FixedPointBenchmark
+ * java -Dspace.fixedPoint=true -cp bin tools.FixedPointBenchmark
+ * A whole update of space is measured the same way by
+ * game.SpaceUpdateBenchmark, with and without -Dspace.fixedPoint=true.
+ * <p>
+ * The results are summed and printed, so that the JIT cannot drop the
+ * computations.
+ */
+public class FixedPointBenchmark {
+
+  public static void main(String[] args) {
+    double[] angles = new double[VALUE_COUNT];
+    Vector[] vectors = new Vector[VALUE_COUNT];
+    long[] fixedAngles = new long[VALUE_COUNT];
+    long[] fixedXs = new long[VALUE_COUNT];
+    long[] fixedYs = new long[VALUE_COUNT];
+    Random random = new Random(SEED);
+    for (int i = 0; i < VALUE_COUNT; i++) {
+      angles[i] = 720 * random.nextDouble() - 360;
+      vectors[i] = new Vector(200 * random.nextDouble() - 100, 200 * random.nextDouble() - 100);
+      fixedAngles[i] = FixedPoint.fromDouble(angles[i]);
+      fixedXs[i] = FixedPoint.fromDouble(vectors[i].getX());
+      fixedYs[i] = FixedPoint.fromDouble(vectors[i].getY());
+    }
+    double sum = 0;
+    for (int round = 0; round < ROUND_COUNT; round++) {
+      boolean isMeasured = (round >= WARMUP_ROUND_COUNT);
+
+      long start = System.nanoTime();
+      for (int pass = 0; pass < PASS_COUNT; pass++) {
+        for (double angle : angles) {
+          sum += Math.sin(Math.toRadians(angle));
+        }
+      }
+      report(isMeasured, "sin, double", start);
+
+      start = System.nanoTime();
+      for (int pass = 0; pass < PASS_COUNT; pass++) {
+        for (long angle : fixedAngles) {
+          sum += FixedPoint.sin(angle);
+        }
+      }
+      report(isMeasured, "sin, fixed-point", start);
+
+      start = System.nanoTime();
+      for (int pass = 0; pass < PASS_COUNT; pass++) {
+        for (Vector vector : vectors) {
+          sum += Math.atan2(vector.getY(), vector.getX());
+        }
+      }
+      report(isMeasured, "atan2, double", start);
+
+      start = System.nanoTime();
+      for (int pass = 0; pass < PASS_COUNT; pass++) {
+        for (int i = 0; i < VALUE_COUNT; i++) {
+          sum += FixedPoint.atan2(fixedYs[i], fixedXs[i]);
+        }
+      }
+      report(isMeasured, "atan2, fixed-point", start);
+
+      start = System.nanoTime();
+      for (int pass = 0; pass < PASS_COUNT; pass++) {
+        for (int i = 0; i < VALUE_COUNT; i++) {
+          sum += vectors[i].rotate(angles[i]).getX();
+        }
+      }
+      report(isMeasured,
+        "Vector.rotate, " + (FixedPoint.IS_ENABLED ? "fixed-point" : "double"), start);
+    }
+    System.out.println("(sum " + sum + ")");
+  }
+
+
+  private static void report(boolean isMeasured, String name, long start) {
+    if (isMeasured) {
+      double nanosPerCall = (System.nanoTime() - start) / ((double) PASS_COUNT * VALUE_COUNT);
+      System.out.printf("%-26s %6.2f ns per call%n", name, nanosPerCall);
+    }
+  }
+
+
+  private static final long SEED = 49;
+  private static final int VALUE_COUNT = 4096;
+
+  // passes over the values per measure, and rounds of measures, the first
+  // ones warming up the JIT
+  private static final int PASS_COUNT = 500;
+  private static final int WARMUP_ROUND_COUNT = 2;
+  private static final int ROUND_COUNT = 5;
+}
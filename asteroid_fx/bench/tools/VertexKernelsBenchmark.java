@@ -0,0 +1,109 @@
+package tools;
+
+import java.util.Random;
+
+/**
+ * Measures the kernels in use against the scalar ones: the time per
+ * vertex of transform, on polygons of asteroid sizes, and the time per
+ * circle of findOverlaps, on long ranges. Both are measured in the same
+ * run, alternately, after rounds warming up the JIT. JMH is not available
+ * in this project, so this plain driver stands in for it; the results are
+ * summed and printed, so that the JIT cannot drop the computations.
+ * <p>
+ * Run from the directory asteroid_fx, once src-simd is compiled into bin
+ * (see SimdVertexKernels):
+ * java --add-modules jdk.incubator.vector -cp bin tools.VertexKernelsBenchmark
+ */
+public class VertexKernelsBenchmark {
+
+  public static void main(String[] args) {
+    Random random = new Random(SEED);
+    int[] starts = new int[POLYGON_COUNT + 1];
+    for (int p = 0; p < POLYGON_COUNT; p++) {
+      starts[p + 1] = starts[p] + MIN_VERTEX_COUNT
+        + random.nextInt(MAX_VERTEX_COUNT - MIN_VERTEX_COUNT + 1);
+    }
+    int vertexCount = starts[POLYGON_COUNT];
+    double[] localXs = randomValues(random, vertexCount, -50, 50);
+    double[] localYs = randomValues(random, vertexCount, -50, 50);
+    // the rotation and translation of each polygon, repeated along its vertices
+    double[] cosines = new double[vertexCount];
+    double[] sines = new double[vertexCount];
+    double[] centerXs = new double[vertexCount];
+    double[] centerYs = new double[vertexCount];
+    for (int p = 0; p < POLYGON_COUNT; p++) {
+      double angle = 2 * Math.PI * random.nextDouble();
+      double centerX = WIDTH * random.nextDouble();
+      double centerY = HEIGHT * random.nextDouble();
+      for (int i = starts[p]; i < starts[p + 1]; i++) {
+        cosines[i] = Math.cos(angle);
+        sines[i] = Math.sin(angle);
+        centerXs[i] = centerX;
+        centerYs[i] = centerY;
+      }
+    }
+    double[] xs = new double[vertexCount];
+    double[] ys = new double[vertexCount];
+
+    double[] circleXs = randomValues(random, CIRCLE_COUNT, 0, WIDTH);
+    double[] circleYs = randomValues(random, CIRCLE_COUNT, 0, HEIGHT);
+    double[] radii = randomValues(random, CIRCLE_COUNT, 5, 40);
+    int[] overlaps = new int[CIRCLE_COUNT];
+
+    VertexKernels[] kernels = {new ScalarVertexKernels(), VertexKernels.INSTANCE};
+    System.out.printf("%d vertices in %d polygons, %d circles, kernels in use: %s%n",
+      vertexCount, POLYGON_COUNT, CIRCLE_COUNT, VertexKernels.INSTANCE.getClass().getSimpleName());
+    double sum = 0;
+    for (int round = 0; round < ROUND_COUNT; round++) {
+      for (VertexKernels kernel : kernels) {
+        long start = System.nanoTime();
+        for (int pass = 0; pass < PASS_COUNT; pass++) {
+          kernel.transform(localXs, localYs, 0, vertexCount,
+            cosines, sines, centerXs, centerYs, xs, ys);
+          sum += xs[pass % vertexCount];
+        }
+        double transformNanos = (System.nanoTime() - start) / ((double) PASS_COUNT * vertexCount);
+
+        start = System.nanoTime();
+        for (int pass = 0; pass < PASS_COUNT; pass++) {
+          sum += kernel.findOverlaps(circleXs[pass % CIRCLE_COUNT], circleYs[pass % CIRCLE_COUNT],
+            radii[pass % CIRCLE_COUNT], circleXs, circleYs, radii, 0, CIRCLE_COUNT,
+            WIDTH, HEIGHT, overlaps);
+        }
+        double overlapNanos = (System.nanoTime() - start) / ((double) PASS_COUNT * CIRCLE_COUNT);
+
+        if (round >= WARMUP_ROUND_COUNT) {
+          System.out.printf("%-20s transform %.2f ns per vertex, findOverlaps %.2f ns per circle%n",
+            kernel.getClass().getSimpleName(), transformNanos, overlapNanos);
+        }
+      }
+    }
+    System.out.println("(sum " + sum + ")");
+  }
+
+
+  private static double[] randomValues(Random random, int count, double min, double max) {
+    double[] values = new double[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = min + (max - min) * random.nextDouble();
+    }
+    return values;
+  }
+
+
+  private static final long SEED = 50;
+  private static final double WIDTH = 800;
+  private static final double HEIGHT = 800;
+
+  // polygons of the sizes of asteroids, and circles tested per call
+  private static final int POLYGON_COUNT = 2000;
+  private static final int MIN_VERTEX_COUNT = 5;
+  private static final int MAX_VERTEX_COUNT = 12;
+  private static final int CIRCLE_COUNT = 4096;
+
+  // calls per measure, and rounds of measures, the first ones warming up
+  // the JIT
+  private static final int PASS_COUNT = 2000;
+  private static final int WARMUP_ROUND_COUNT = 2;
+  private static final int ROUND_COUNT = 5;
+}
@@ -0,0 +1,111 @@
+package views;
+
+import game.Asteroid;
+import game.RandomGenerator;
+import game.Space;
+import render.DisplayList;
+import tools.Polygon;
+import viewModel.ViewModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the vertices of asteroids drawn per millisecond, with 10k
+ * asteroids on screen: the asteroids of a fixed seed are spread over the
+ * view, and CanvasView draws them into a display list, frame after frame.
+ * For comparison, the same asteroids are also drawn the way the view drew
+ * them before its vertex buffers, each through a new placed Polygon and
+ * new coordinate arrays, setting the fill color for each asteroid. Both
+ * ways are measured alternately, after frames warming up the JIT. The
+ * vertices counted for CanvasView include the second copies of asteroids
+ * crossing a border of space, and the spaceship, which the other way
+ * does not draw.
+ * <p>
+ * The time covers recording the frame, not its rasterization by the
+ * toolkit, which happens after the frame is recorded.
+ * <p>
+ * Run with: java -cp bin views.AsteroidRenderBenchmark [asteroids]
+ */
+public class AsteroidRenderBenchmark {
+
+  public static void main(String[] args) {
+    int asteroidCount = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_ASTEROID_COUNT;
+    RandomGenerator generator = new RandomGenerator(SEED);
+    List<Asteroid> asteroids = new ArrayList<>(asteroidCount);
+    for (int i = 0; i < asteroidCount; i++) {
+      asteroids.add(generator.asteroid(1 + i % 3));
+    }
+    DisplayList world = new DisplayList(VIEW_SIZE, VIEW_SIZE);
+    CanvasView view = new CanvasView(
+      new DisplayList(VIEW_SIZE, VIEW_SIZE), world, new DisplayList(VIEW_SIZE, VIEW_SIZE),
+      new ViewModel(new Space(SEED), null) {
+        @Override
+        public void findAsteroids(double minX, double minY, double maxX, double maxY,
+                                  List<Asteroid> result) {
+          result.clear();
+          result.addAll(asteroids);
+        }
+      });
+    System.out.printf("%d asteroids in a view of %.0f by %.0f%n",
+      asteroidCount, Space.SPACE_WIDTH, Space.SPACE_HEIGHT);
+    for (int round = 0; round < ROUND_COUNT; round++) {
+      boolean isMeasured = (round >= WARMUP_ROUND_COUNT);
+      long start = System.nanoTime();
+      long vertexCount = 0;
+      for (int frame = 0; frame < FRAME_COUNT; frame++) {
+        world.reset();
+        view.render();
+        vertexCount += world.getVertexCount();
+      }
+      report(isMeasured, "CanvasView", vertexCount, start);
+
+      start = System.nanoTime();
+      vertexCount = 0;
+      for (int frame = 0; frame < FRAME_COUNT; frame++) {
+        world.reset();
+        for (Asteroid asteroid : asteroids) {
+          drawAllocating(world, asteroid);
+        }
+        vertexCount += world.getVertexCount();
+      }
+      report(isMeasured, "allocating, per asteroid", vertexCount, start);
+    }
+  }
+
+
+  /**
+   * Draws an asteroid through a new placed polygon and new arrays, with
+   * its own fill color.
+   */
+  private static void drawAllocating(DisplayList world, Asteroid asteroid) {
+    Polygon shape = asteroid.getShape();
+    int nbPoints = shape.nbVertices();
+    double[] xs = new double[nbPoints];
+    double[] ys = new double[nbPoints];
+    for (int i = 0; i < nbPoints; i++) {
+      xs[i] = shape.getVertex(i).getX();
+      ys[i] = shape.getVertex(i).getY();
+    }
+    world.setFill(CanvasView.ASTEROID_COLOR);
+    world.fillPolygon(xs, ys, nbPoints);
+  }
+
+  private static void report(boolean isMeasured, String name, long vertexCount, long start) {
+    if (isMeasured) {
+      double millis = (System.nanoTime() - start) / 1e6;
+      System.out.printf("%-26s %8.0f vertices per ms, %.3f ms per frame%n",
+        name, vertexCount / millis, millis / FRAME_COUNT);
+    }
+  }
+
+
+  private static final long SEED = 28;
+  private static final int DEFAULT_ASTEROID_COUNT = 10_000;
+  private static final double VIEW_SIZE = 800;
+
+  // frames per measure, and rounds of measures, the first ones warming up
+  private static final int FRAME_COUNT = 100;
+  private static final int WARMUP_ROUND_COUNT = 2;
+  private static final int ROUND_COUNT = 5;
+}
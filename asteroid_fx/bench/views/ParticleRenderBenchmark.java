@@ -0,0 +1,94 @@
+package views;
+
+import game.ParticleSystem;
+import game.Space;
+import render.DisplayList;
+import viewModel.ViewModel;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the particles of a frame against the budget of 60 frames per
+ * second: a full particle system is moved, then drawn by CanvasView into
+ * a display list, frame after frame. The particles are spread over the
+ * whole of space: in a space of 1600 by 1600, a quarter of them are in
+ * the view, so that culling is measured too.
+ * <p>
+ * After frames warming up the JIT and the buffers, it prints the time per
+ * frame, the bytes allocated per frame by the measuring thread, and the
+ * number of garbage collections during the measure, which should both be
+ * 0. The time excludes the rasterization by the toolkit, which happens
+ * after the frame is recorded.
+ * <p>
+ * Run with: java -Dspace.width=1600 -Dspace.height=1600 -cp bin views.ParticleRenderBenchmark
+ */
+public class ParticleRenderBenchmark {
+
+  public static void main(String[] args) {
+    Space space = new Space(SEED);
+    ParticleSystem particles = space.getParticles();
+    for (int i = 0; i < particles.capacity(); i++) {
+      // spread over the whole space, moving slowly, living for the measure
+      double x = Space.SPACE_WIDTH * ((i * 0.618034) % 1);
+      double y = Space.SPACE_HEIGHT * ((i * 0.414214) % 1);
+      particles.emit(x, y, (i % 7) - 3, (i % 5) - 2, LIFETIME, (byte) (i % ParticleSystem.COLOR_COUNT));
+    }
+    DisplayList background = new DisplayList(VIEW_SIZE, VIEW_SIZE);
+    DisplayList world = new DisplayList(VIEW_SIZE, VIEW_SIZE);
+    DisplayList hud = new DisplayList(VIEW_SIZE, VIEW_SIZE);
+    CanvasView view = new CanvasView(background, world, hud, new ViewModel(space, null));
+    // places the view on the spaceship
+    view.render();
+
+    com.sun.management.ThreadMXBean threads =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    long start = 0;
+    long allocatedStart = 0;
+    long collectionStart = 0;
+    long maxFrameNanos = 0;
+    for (int frame = -WARMUP_FRAME_COUNT; frame < FRAME_COUNT; frame++) {
+      if (frame == 0) {
+        collectionStart = collectionCount();
+        allocatedStart = threads.getThreadAllocatedBytes(threadId);
+        start = System.nanoTime();
+      }
+      long frameStart = System.nanoTime();
+      particles.update(FRAME_DURATION);
+      world.reset();
+      view.render(particles);
+      if (frame >= 0) {
+        maxFrameNanos = Math.max(maxFrameNanos, System.nanoTime() - frameStart);
+      }
+    }
+    long nanos = System.nanoTime() - start;
+    long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedStart;
+    long collections = collectionCount() - collectionStart;
+    System.out.printf("%d particles, %d drawn per frame%n",
+      particles.size(), world.getDrawCallCount());
+    System.out.printf("%.3f ms per frame, %.3f ms at most, budget %.3f ms%n",
+      nanos / 1e6 / FRAME_COUNT, maxFrameNanos / 1e6, 1e3 * FRAME_DURATION);
+    System.out.printf("%d bytes allocated per frame, %d garbage collections%n",
+      allocated / FRAME_COUNT, collections);
+  }
+
+
+  private static long collectionCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, collector.getCollectionCount());
+    }
+    return count;
+  }
+
+
+  private static final long SEED = 27;
+  private static final double VIEW_SIZE = 800;
+  private static final double LIFETIME = 1e6;
+
+  // frames at 60 per second, the first ones warming up
+  private static final double FRAME_DURATION = 1. / 60;
+  private static final int WARMUP_FRAME_COUNT = 300;
+  private static final int FRAME_COUNT = 1200;
+}
@@ -0,0 +1,94 @@
+package views;
+
+import game.Asteroid;
+import game.RandomGenerator;
+import game.Space;
+import render.DisplayList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the time the drawing thread spends on the asteroids of a
+ * frame, when their vertices are prepared on that thread alone, and when
+ * workers prepare chunks in parallel. Each frame prepares the asteroids,
+ * then draws each chunk once ready into a display list, as CanvasView
+ * does, without JavaFX.
+ * <p>
+ * For each setting, it prints the time per frame on the drawing thread,
+ * and how much of it went into preparing chunks itself and into waiting
+ * for chunks held by workers. Workers only shorten the frame when the
+ * machine has a core for them besides the drawing thread.
+ * <p>
+ * Run with: java -cp bin views.PreparedAsteroidsBenchmark [asteroids]
+ */
+public class PreparedAsteroidsBenchmark {
+
+  public static void main(String[] args) {
+    int asteroidCount = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_ASTEROID_COUNT;
+    RandomGenerator generator = new RandomGenerator(SEED);
+    List<Asteroid> asteroids = new ArrayList<>(asteroidCount);
+    for (int i = 0; i < asteroidCount; i++) {
+      asteroids.add(generator.asteroid(1 + i % 3));
+    }
+    System.out.printf("%d asteroids, %d processors%n",
+      asteroidCount, Runtime.getRuntime().availableProcessors());
+    for (int round = 0; round < ROUND_COUNT; round++) {
+      measure(asteroids, 0);
+      measure(asteroids, PreparedAsteroids.WORKER_COUNT);
+    }
+  }
+
+
+  private static void measure(List<Asteroid> asteroids, int workerCount) {
+    PreparedAsteroids prepared = new PreparedAsteroids(BUCKET_COUNT, workerCount);
+    DisplayList world = new DisplayList(VIEW_SIZE, VIEW_SIZE);
+    double[] xs = new double[0];
+    double[] ys = new double[0];
+    long start = 0;
+    long preparingStart = 0;
+    long waitingStart = 0;
+    for (int frame = -WARMUP_FRAME_COUNT; frame < FRAME_COUNT; frame++) {
+      if (frame == 0) {
+        start = System.nanoTime();
+        preparingStart = prepared.getPreparingTime();
+        waitingStart = prepared.getWaitingTime();
+      }
+      world.reset();
+      prepared.prepare(asteroids, true, 0, 0, VIEW_SIZE, VIEW_SIZE,
+        Space.SPACE_WIDTH, Space.SPACE_HEIGHT);
+      for (int chunk = 0; chunk < prepared.chunkCount(); chunk++) {
+        prepared.await(chunk);
+        for (int i = prepared.chunkStart(chunk); i < prepared.chunkEnd(chunk); i++) {
+          int nbPoints = prepared.getNbPoints(i);
+          if (nbPoints > xs.length) {
+            xs = new double[nbPoints];
+            ys = new double[nbPoints];
+          }
+          System.arraycopy(prepared.getXs(), prepared.getStart(i), xs, 0, nbPoints);
+          System.arraycopy(prepared.getYs(), prepared.getStart(i), ys, 0, nbPoints);
+          world.fillPolygon(xs, ys, nbPoints);
+        }
+      }
+      prepared.awaitAll();
+    }
+    double nanosPerFrame = 1e6 * FRAME_COUNT;
+    System.out.printf("%d workers: %.3f ms per frame, %.3f ms preparing, %.3f ms waiting%n",
+      workerCount,
+      (System.nanoTime() - start) / nanosPerFrame,
+      (prepared.getPreparingTime() - preparingStart) / nanosPerFrame,
+      (prepared.getWaitingTime() - waitingStart) / nanosPerFrame);
+  }
+
+
+  private static final long SEED = 37;
+  private static final int DEFAULT_ASTEROID_COUNT = 20_000;
+  private static final int BUCKET_COUNT = 36;
+  private static final double VIEW_SIZE = 800;
+
+  // frames measured per setting after the warm-up, and settings measured
+  // alternately
+  private static final int WARMUP_FRAME_COUNT = 100;
+  private static final int FRAME_COUNT = 300;
+  private static final int ROUND_COUNT = 3;
+}
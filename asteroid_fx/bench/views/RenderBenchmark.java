@@ -0,0 +1,157 @@
+package views;
+
+import game.Space;
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Stage;
+import viewModel.ViewModel;
+
+import java.util.Arrays;
+
+/**
+ * Compares the ways of drawing the game, in a window refreshed at 60
+ * frames per second: on the canvas with asteroids as polygons or as
+ * cached sprites, and with the retained nodes of the scene graph view.
+ * Each mode draws the same number of frames of the same game, started
+ * with a fixed seed and advanced by 1/60 s per frame with the spaceship
+ * idle; the first frames of each mode, while caches fill and code is
+ * compiled, are not measured.
+ * <p>
+ * For each mode, it prints the time spent in the render method of the
+ * view on the JavaFX application thread (the mean and the 99th
+ * percentile), and the number of frames whose interval exceeded the
+ * budget of 1/60 s, which includes the time JavaFX takes to rasterize the
+ * canvases and to render the nodes. In sprite mode, it also prints the hits and misses of the
+ * cache of asteroid tiles.
+ * <p>
+ * Run with: java -cp bin views.RenderBenchmark [frames per mode], and
+ * -Dspace.width=... -Dspace.height=... for more asteroids.
+ */
+public class RenderBenchmark extends Application {
+
+  /**
+   * The ways of drawing the game, measured in this order.
+   */
+  private enum Mode {
+    POLYGONS, SPRITES, SCENE_GRAPH
+  }
+
+
+  private final StackPane root = new StackPane();
+  private int framesPerMode = DEFAULT_FRAMES_PER_MODE;
+  private Assets assets;
+
+
+  @Override
+  public void start(Stage stage) throws Exception {
+    if (!getParameters().getUnnamed().isEmpty()) {
+      framesPerMode = Integer.parseInt(getParameters().getUnnamed().get(0));
+    }
+    stage.setTitle("Render benchmark");
+    stage.setScene(new Scene(root, Main.CANVAS_WIDTH, Main.CANVAS_HEIGHT));
+    stage.show();
+    assets = Assets.preload().get();
+    System.out.printf("%d frames per mode, space of %.0f by %.0f%n",
+      framesPerMode, Space.SPACE_WIDTH, Space.SPACE_HEIGHT);
+    run(0);
+  }
+
+
+  /**
+   * Measures a mode, then the following ones, then quits.
+   *
+   * @param modeIndex the index of the mode to measure
+   */
+  private void run(int modeIndex) {
+    if (modeIndex == Mode.values().length) {
+      Platform.exit();
+      return;
+    }
+    Mode mode = Mode.values()[modeIndex];
+    Space space = new Space(SEED);
+    Canvas backgroundCanvas = new Canvas(Main.CANVAS_WIDTH, Main.CANVAS_HEIGHT);
+    Canvas worldCanvas = new Canvas(Main.CANVAS_WIDTH, Main.CANVAS_HEIGHT);
+    Canvas hudCanvas = new Canvas(Main.CANVAS_WIDTH, Main.CANVAS_HEIGHT);
+    Pane nodeLayer = new Pane();
+    root.getChildren().setAll(backgroundCanvas, worldCanvas, nodeLayer, hudCanvas);
+    FxRenderer world = new FxRenderer(worldCanvas, assets, SHIP_ANGLE_COUNT);
+    FxRenderer background = new FxRenderer(backgroundCanvas, assets, SHIP_ANGLE_COUNT);
+    FxRenderer hud = new FxRenderer(hudCanvas, assets, SHIP_ANGLE_COUNT);
+    ViewModel viewModel = new ViewModel(space, null);
+    CanvasView view =
+      (mode == Mode.SCENE_GRAPH) ?
+        new SceneGraphView(background, world, nodeLayer, hud, viewModel, assets) :
+        new CanvasView(background, world, hud, viewModel);
+    view.setAsteroidSpriteMode(mode == Mode.SPRITES);
+
+    long[] renderTimes = new long[framesPerMode];
+    new AnimationTimer() {
+      private int frame = -WARMUP_FRAMES;
+      private long lastPulse = -1;
+      private int lateFrameCount = 0;
+
+      @Override
+      public void handle(long now) {
+        if (frame >= 0 && lastPulse >= 0 && now - lastPulse > FRAME_BUDGET_NANOS) {
+          lateFrameCount++;
+        }
+        lastPulse = now;
+        space.update(FRAME_DURATION);
+        long start = System.nanoTime();
+        view.render();
+        long renderTime = System.nanoTime() - start;
+        if (frame >= 0) {
+          renderTimes[frame] = renderTime;
+        }
+        frame++;
+        if (frame == framesPerMode) {
+          stop();
+          report(mode, renderTimes, lateFrameCount, world);
+          Platform.runLater(() -> run(modeIndex + 1));
+        }
+      }
+    }.start();
+  }
+
+
+  private static void report(Mode mode, long[] renderTimes, int lateFrameCount,
+                             FxRenderer world) {
+    long[] sorted = renderTimes.clone();
+    Arrays.sort(sorted);
+    double mean = Arrays.stream(sorted).average().orElse(0);
+    long percentile99 = sorted[(int) (0.99 * (sorted.length - 1))];
+    System.out.printf("%-12s render %.3f ms mean, %.3f ms p99, %d frames over budget%n",
+      mode, mean * 1e-6, percentile99 * 1e-6, lateFrameCount);
+    if (mode == Mode.SPRITES) {
+      AsteroidSpriteCache tiles = world.getShapeTiles();
+      System.out.printf("%-12s tiles %d hits, %d misses, %d evictions, %d KiB%n",
+        "", tiles.getHitCount(), tiles.getMissCount(), tiles.getEvictionCount(),
+        tiles.getMemoryUsed() / 1024);
+    }
+  }
+
+
+  public static void main(String[] args) {
+    launch(args);
+  }
+
+
+  // the seed of the game drawn in every mode
+  private static final long SEED = 35;
+
+  // frames per mode, and frames drawn before measuring
+  private static final int DEFAULT_FRAMES_PER_MODE = 1200;
+  private static final int WARMUP_FRAMES = 120;
+
+  // the time step of the game, and the budget of a frame with a margin
+  // for the jitter of pulses
+  private static final double FRAME_DURATION = 1. / 60;
+  private static final long FRAME_BUDGET_NANOS = 18_000_000;
+
+  private static final int SHIP_ANGLE_COUNT = 72;
+}
@@ -0,0 +1,82 @@
+package tools;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The batch kernels computed with SIMD instructions, on as many values at
+ * once as the processor allows. The lanes left at the end of a range, too
+ * few to fill a vector, are computed one at a time.
+ * <p>
+ * This class needs the incubating module jdk.incubator.vector, at compile
+ * time and at run time (--add-modules jdk.incubator.vector); it is only
+ * loaded by VertexKernels when the module is available. It is therefore
+ * kept in the source set src-simd, outside the Eclipse project, and
+ * compiled after the project, from the directory asteroid_fx:
+ * javac --add-modules jdk.incubator.vector -cp bin -d bin src-simd/tools/*.java
+ */
+class SimdVertexKernels implements VertexKernels {
+
+  @Override
+  public void transform(double[] localXs, double[] localYs, int from, int to,
+                        double[] cosines, double[] sines, double[] centerXs, double[] centerYs,
+                        double[] xs, double[] ys) {
+    int i = from;
+    int vectorEnd = from + SPECIES.loopBound(to - from);
+    for (; i < vectorEnd; i += SPECIES.length()) {
+      DoubleVector localX = DoubleVector.fromArray(SPECIES, localXs, i);
+      DoubleVector localY = DoubleVector.fromArray(SPECIES, localYs, i);
+      DoubleVector cosine = DoubleVector.fromArray(SPECIES, cosines, i);
+      DoubleVector sine = DoubleVector.fromArray(SPECIES, sines, i);
+      DoubleVector centerX = DoubleVector.fromArray(SPECIES, centerXs, i);
+      DoubleVector centerY = DoubleVector.fromArray(SPECIES, centerYs, i);
+      cosine.mul(localX).add(sine.mul(localY)).add(centerX).intoArray(xs, i);
+      sine.neg().mul(localX).add(cosine.mul(localY)).add(centerY).intoArray(ys, i);
+    }
+    for (; i < to; i++) {
+      xs[i] = cosines[i] * localXs[i] + sines[i] * localYs[i] + centerXs[i];
+      ys[i] = -sines[i] * localXs[i] + cosines[i] * localYs[i] + centerYs[i];
+    }
+  }
+
+
+  @Override
+  public int findOverlaps(double x, double y, double radius,
+                          double[] xs, double[] ys, double[] radii, int from, int to,
+                          double width, double height, int[] overlaps) {
+    DoubleVector widths = DoubleVector.broadcast(SPECIES, width);
+    DoubleVector heights = DoubleVector.broadcast(SPECIES, height);
+    int count = 0;
+    int i = from;
+    int vectorEnd = from + SPECIES.loopBound(to - from);
+    for (; i < vectorEnd; i += SPECIES.length()) {
+      DoubleVector dx = DoubleVector.fromArray(SPECIES, xs, i).sub(x).abs();
+      DoubleVector dy = DoubleVector.fromArray(SPECIES, ys, i).sub(y).abs();
+      dx = dx.min(widths.sub(dx));
+      dy = dy.min(heights.sub(dy));
+      DoubleVector distance = DoubleVector.fromArray(SPECIES, radii, i).add(radius);
+      VectorMask<Double> isOverlapping =
+        dx.mul(dx).add(dy.mul(dy)).compare(VectorOperators.LT, distance.mul(distance));
+      for (long lanes = isOverlapping.toLong(); lanes != 0; lanes &= lanes - 1) {
+        overlaps[count++] = i + Long.numberOfTrailingZeros(lanes);
+      }
+    }
+    for (; i < to; i++) {
+      double dxi = Math.abs(xs[i] - x);
+      double dyi = Math.abs(ys[i] - y);
+      dxi = Math.min(dxi, width - dxi);
+      dyi = Math.min(dyi, height - dyi);
+      double distance = radius + radii[i];
+      if (dxi * dxi + dyi * dyi < distance * distance) {
+        overlaps[count++] = i;
+      }
+    }
+    return count;
+  }
+
+
+  // the widest vectors of doubles the processor handles
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+}
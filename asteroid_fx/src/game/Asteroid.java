@@ -1,16 +1,35 @@
 package game;
 
+import inspector.Hidden;
 import tools.Polygon;
+import tools.SimulationMath;
 import tools.Vector;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
+
 /**
  * Models an asteroid. An asteroid is a polygonal shape with velocity
  * and angular velocity. They have currently no acceleration so they travel
  * in straight lines. Their positions must be updated frequently using
  * the <em>update</em> method.
+ * <p>
+ * Alternatively, an asteroid may follow a clock: its position and angle
+ * are then computed from its state at a given time, when they are asked
+ * for, and the update method must not be used any more.
+ * <p>
+ * Updates may also be deferred: the delays are then accumulated until the
+ * next update, and the asteroid is seen meanwhile where it would be if it
+ * had been updated.
  */
 public class Asteroid {
 
+  /**
+   * The identifier of the asteroid, unique in the application and kept
+   * for its whole life, unlike its index in the lists of space.
+   */
+  private final int id = nextId.getAndIncrement();
+
   /**
    * The position of the center of the asteroid.
    */
@@ -42,13 +61,86 @@ public class Asteroid {
    */
   private final double size;
 
+  /**
+   * The distance from the center to the farthest vertex of the shape.
+   */
+  private final double boundingRadius;
+
+  /**
+   * The coordinates of the vertices of the shape, packed for batch
+   * transforms.
+   */
+  @Hidden private final double[] localXs;
+  @Hidden private final double[] localYs;
+
+  /**
+   * The convex hull of the shape, computed when first needed.
+   */
+  private Polygon hull;
+
+  /**
+   * The area of the shape, as mass, and its moment of inertia around the
+   * center, computed when first needed.
+   */
+  private double mass = Double.NaN;
+  private double momentOfInertia;
+
+  /**
+   * When following a clock: the clock, the time at which the asteroid
+   * started following it, and the position and angle it had then.
+   */
+  private DoubleSupplier clock;
+  private double originTime;
+  private Vector origin;
+  private double originAngle;
+
+  /**
+   * The time of the clock at which position and angle were last computed.
+   */
+  private double evaluationTime = Double.NaN;
+
+  /**
+   * The time in seconds elapsed since the last update, deferred to the
+   * next one.
+   */
+  private double deferredTime = 0;
+
+  /**
+   * How many ticks separate two updates, when they are deferred, and the
+   * tick of the next update.
+   */
+  private int updatePeriod = 1;
+  private long nextUpdateTick = 0;
+
   /**
    * @return the position of the center of the asteroid.
    */
   public Vector getPosition() {
+    evaluate();
+    if (deferredTime != 0) {
+      return Space.toricRemap(position.add(velocity.multiply(deferredTime)));
+    }
     return position;
   }
 
+  /**
+   * @return the horizontal coordinate of the center of the asteroid, as
+   * in getPosition() but without allocating.
+   */
+  public double getX() {
+    evaluate();
+    return Space.clamp(position.getX() + velocity.getX() * deferredTime, Space.SPACE_WIDTH);
+  }
+
+  /**
+   * @return the vertical coordinate of the center of the asteroid, as in
+   * getPosition() but without allocating.
+   */
+  public double getY() {
+    evaluate();
+    return Space.clamp(position.getY() + velocity.getY() * deferredTime, Space.SPACE_HEIGHT);
+  }
+
   /**
    * @return the velocity of the center of the asteroid.
    */
@@ -70,11 +162,156 @@ public class Asteroid {
     return size;
   }
 
+  /**
+   * @return the radius of a circle centered on the asteroid and containing it.
+   */
+  public double getBoundingRadius() {
+    return boundingRadius;
+  }
+
+  /**
+   * @return the rotation of the asteroid since its creation, in degree.
+   */
+  public double getAngle() {
+    evaluate();
+    return angle + angularVelocity * deferredTime;
+  }
+
+  /**
+   * @return the shape of the asteroid with center (0,0), before rotation.
+   */
+  public Polygon getLocalShape() {
+    return shape;
+  }
+
   /**
    * @return the shape of the asteroid, with same center as the asteroid.
    */
   public Polygon getShape() {
-    return shape.rotate(angle).translate(position);
+    return shape.rotate(getAngle()).translate(getPosition());
+  }
+
+
+  /**
+   * Writes the coordinates of the vertices of the shape, rotated and
+   * translated like the asteroid, into arrays provided by the caller.
+   * This gives the same vertices as getShape(), without allocating.
+   *
+   * @param xs the array receiving the horizontal coordinates
+   * @param ys the array receiving the vertical coordinates
+   * @return the number of vertices written
+   */
+  public int getVertices(double[] xs, double[] ys) {
+    double sine = SimulationMath.sin(getAngle());
+    double cosine = SimulationMath.cos(getAngle());
+    double x = getX();
+    double y = getY();
+    int nbVertices = localXs.length;
+    for (int i = 0; i < nbVertices; i++) {
+      xs[i] = cosine * localXs[i] + sine * localYs[i] + x;
+      ys[i] = -sine * localXs[i] + cosine * localYs[i] + y;
+    }
+    return nbVertices;
+  }
+
+  /**
+   * Copies the vertices of the shape with center (0,0), before rotation,
+   * into packed arrays, for batch transforms.
+   *
+   * @param xs the array receiving the horizontal coordinates
+   * @param ys the array receiving the vertical coordinates
+   * @param offset the index at which the first vertex is written
+   * @return the number of vertices written
+   */
+  public int getLocalVertices(double[] xs, double[] ys, int offset) {
+    System.arraycopy(localXs, 0, xs, offset, localXs.length);
+    System.arraycopy(localYs, 0, ys, offset, localYs.length);
+    return localXs.length;
+  }
+
+  /**
+   * @return the convex hull of the shape with center (0,0), before
+   * rotation, with vertices in counterclockwise order.
+   */
+  public Polygon getLocalHull() {
+    if (hull == null) {
+      hull = shape.convexHull();
+    }
+    return hull;
+  }
+
+
+  /**
+   * @return the mass of the asteroid: the area of its shape, in square
+   * pixels.
+   */
+  public double getMass() {
+    if (Double.isNaN(mass)) {
+      computeMass();
+    }
+    return mass;
+  }
+
+  /**
+   * @return the moment of inertia of the asteroid around its center, for
+   * the mass given by getMass().
+   */
+  public double getMomentOfInertia() {
+    if (Double.isNaN(mass)) {
+      computeMass();
+    }
+    return momentOfInertia;
+  }
+
+  /**
+   * Computes the area and the moment of inertia of the shape, as a fan of
+   * triangles around the center.
+   */
+  private void computeMass() {
+    double area = 0;
+    double inertia = 0;
+    int nbVertices = shape.nbVertices();
+    for (int i = 0; i < nbVertices; i++) {
+      Vector current = shape.getVertex(i);
+      Vector next = shape.getVertex((i + 1) % nbVertices);
+      double cross = current.getX() * next.getY() - current.getY() * next.getX();
+      area += cross / 2;
+      inertia += cross / 12 * (current.norm2() + current.dotProduct(next) + next.norm2());
+    }
+    momentOfInertia = Math.abs(inertia);
+    mass = Math.abs(area);
+  }
+
+
+  /**
+   * Writes the coordinates of the vertices of the convex hull of the
+   * shape, rotated like the asteroid and centered on a given position,
+   * into arrays provided by the caller.
+   *
+   * @param centerX the horizontal position of the center
+   * @param centerY the vertical position of the center
+   * @param xs the array receiving the horizontal coordinates
+   * @param ys the array receiving the vertical coordinates
+   * @return the number of vertices written
+   */
+  public int getHullVertices(double centerX, double centerY, double[] xs, double[] ys) {
+    Polygon hull = getLocalHull();
+    double sine = SimulationMath.sin(getAngle());
+    double cosine = SimulationMath.cos(getAngle());
+    int nbVertices = hull.nbVertices();
+    for (int i = 0; i < nbVertices; i++) {
+      Vector vertex = hull.getVertex(i);
+      xs[i] = cosine * vertex.getX() + sine * vertex.getY() + centerX;
+      ys[i] = -sine * vertex.getX() + cosine * vertex.getY() + centerY;
+    }
+    return nbVertices;
+  }
+
+  /**
+   * @return the number of vertices of the shape of the asteroid.
+   */
+  public int nbVertices() {
+    return shape.nbVertices();
   }
 
 
@@ -90,27 +327,180 @@ public class Asteroid {
                   Vector velocity,
                   double angularVelocity,
                   double size) {
+    this(center, shape, velocity, 0, angularVelocity, size);
+  }
+
+
+  /**
+   * @param center          the center of the asteroid
+   * @param shape           the shape with center (0,0) of the asteroid
+   * @param velocity        the velocity (in pixel per second) of the asteroid
+   * @param angle           the rotation (in degree) of the asteroid since its creation
+   * @param angularVelocity the angular velocity (in degree per second) of the asteroid
+   * @param size            the relative size of the asteroid.
+   */
+  public Asteroid(Vector center,
+                  Polygon shape,
+                  Vector velocity,
+                  double angle,
+                  double angularVelocity,
+                  double size) {
     this.position = center;
     this.shape = shape;
-    this.angle = 0;
+    this.angle = angle;
     this.velocity = velocity;
     this.angularVelocity = angularVelocity;
     this.size = size;
+    this.boundingRadius = shape.radius();
+    this.localXs = new double[shape.nbVertices()];
+    this.localYs = new double[shape.nbVertices()];
+    for (int i = 0; i < shape.nbVertices(); i++) {
+      localXs[i] = shape.getVertex(i).getX();
+      localYs[i] = shape.getVertex(i).getY();
+    }
   }
 
 
   /**
    * Asteroids move over time. To simulate the movement, their positions
    * and other physical properties must be updated regularly. This method
-   * simulates the effect of a small time delay <em>dt</em> upon the asteroid.
+   * simulates the effect of a small time delay <em>dt</em> upon the asteroid,
+   * after the deferred delays.
    *
    * @param dt the time delay to simulate.
    */
   public void update(double dt) {
+    if (clock != null) {
+      throw new IllegalStateException("asteroid following a clock");
+    }
+    dt = dt + deferredTime;
+    deferredTime = 0;
     position = position.add(velocity.multiply(dt));
     position = Space.toricRemap(position);
     angle = angle + angularVelocity * dt;
   }
 
 
+  /**
+   * Postpones the simulation of a time delay to the next update.
+   *
+   * @param dt the time delay to simulate later.
+   */
+  public void defer(double dt) {
+    if (clock != null) {
+      throw new IllegalStateException("asteroid following a clock");
+    }
+    deferredTime = deferredTime + dt;
+  }
+
+
+  /**
+   * Changes the velocity of the asteroid, after simulating the deferred
+   * delays at the former velocity. An asteroid following a clock starts
+   * again from its position and angle at the time of the clock.
+   *
+   * @param deltaV the change of velocity, in pixels per second
+   */
+  public void accelerate(Vector deltaV) {
+    if (clock != null) {
+      evaluate();
+      originTime = evaluationTime;
+      origin = position;
+      originAngle = angle;
+    } else if (deferredTime != 0) {
+      update(0);
+    }
+    velocity = velocity.add(deltaV);
+  }
+
+
+  /**
+   * Changes the angular velocity of the asteroid, after simulating the
+   * deferred delays at the former one.
+   *
+   * @param deltaAngularVelocity the change, in degree per second
+   */
+  public void spin(double deltaAngularVelocity) {
+    if (clock != null) {
+      throw new IllegalStateException("asteroid following a clock");
+    }
+    if (deferredTime != 0) {
+      update(0);
+    }
+    angularVelocity = angularVelocity + deltaAngularVelocity;
+  }
+
+
+  /**
+   * Moves the asteroid without changing its velocity, for instance to
+   * push it out of another one.
+   *
+   * @param dx the horizontal displacement
+   * @param dy the vertical displacement
+   */
+  public void moveBy(double dx, double dy) {
+    if (clock != null) {
+      throw new IllegalStateException("asteroid following a clock");
+    }
+    position = Space.toricRemap(new Vector(position.getX() + dx, position.getY() + dy));
+  }
+
+
+  int getId() {
+    return id;
+  }
+
+  int getUpdatePeriod() {
+    return updatePeriod;
+  }
+
+  void setUpdatePeriod(int updatePeriod) {
+    this.updatePeriod = updatePeriod;
+  }
+
+  long getNextUpdateTick() {
+    return nextUpdateTick;
+  }
+
+  void setNextUpdateTick(long nextUpdateTick) {
+    this.nextUpdateTick = nextUpdateTick;
+  }
+
+
+  /**
+   * Makes the asteroid follow a clock from now on: its position and angle
+   * become functions of the time of the clock, computed on demand.
+   *
+   * @param clock gives the current time, in seconds
+   */
+  public void followClock(DoubleSupplier clock) {
+    this.clock = clock;
+    originTime = clock.getAsDouble();
+    origin = position;
+    originAngle = angle;
+    evaluationTime = originTime;
+  }
+
+
+  /**
+   * When following a clock, computes the position and angle at the time
+   * of the clock, unless already computed for that time.
+   */
+  private void evaluate() {
+    if (clock == null) {
+      return;
+    }
+    double time = clock.getAsDouble();
+    if (time == evaluationTime) {
+      return;
+    }
+    double elapsed = time - originTime;
+    position = Space.toricRemap(origin.add(velocity.multiply(elapsed)));
+    angle = originAngle + angularVelocity * elapsed;
+    evaluationTime = time;
+  }
+
+
+  // identifier of the next asteroid created
+  private static final AtomicInteger nextId = new AtomicInteger();
 }
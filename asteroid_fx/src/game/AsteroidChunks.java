@@ -0,0 +1,382 @@
+package game;
+
+import inspector.Hidden;
+import tools.Polygon;
+import tools.SimulationMath;
+import tools.Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Divides space into chunks, of which only those near the spaceship are
+ * simulated. Asteroids in the other chunks are dormant: they are removed
+ * from the list of asteroids of space and stored in their chunk as a
+ * compact record of primitives, their state and the time at which they
+ * fell asleep, with the vertices of their shape packed in arrays. Waking
+ * up builds new asteroids from the records; their hull and mass are
+ * computed again when needed.
+ * <p>
+ * As asteroids move in straight lines at constant speed, a dormant
+ * asteroid can be brought to any later time at once. A dormant chunk may
+ * have been left by its asteroids since it fell asleep, but not further
+ * than its fastest asteroid could travel: it wakes up when this extended
+ * area comes near the spaceship.
+ * <p>
+ * Chunks are not all checked at each update. Each chunk is given the
+ * distance it is from changing state, which can only be used up by the
+ * moves of the spaceship and by the travel of dormant asteroids, at most
+ * the speed of the fastest asteroid ever put to sleep. Both are summed in
+ * a single budget, growing at each update, and a chunk is checked again
+ * only when the budget reaches the value at which it may change state;
+ * chunks are kept in a heap by that value. Each update thus looks at the
+ * few chunks near a change of state rather than at all of them.
+ */
+public class AsteroidChunks {
+
+  /**
+   * The dormant asteroids of a chunk: for each of them, a record of
+   * RECORD_LENGTH values and the vertices of its shape. The arrays are
+   * released when the chunk wakes up.
+   */
+  private static class Chunk {
+    boolean isDormant = false;
+    int count = 0;
+    @Hidden double[] records;
+    @Hidden int[] nbVertices;
+    int vertexCount = 0;
+    @Hidden double[] vertexXs;
+    @Hidden double[] vertexYs;
+    double sleepTime = 0; // when the chunk fell asleep, before any of its asteroids
+    double maxSpeed = 0;
+    double maxRadius = 0;
+    double checkBudget = 0; // the budget at which to check the chunk again
+  }
+
+  private final double width;
+  private final double height;
+  private final int columns;
+  private final int rows;
+  private final double chunkWidth;
+  private final double chunkHeight;
+  private final double wakeDistance;
+  private final double sleepDistance;
+  @Hidden private final Chunk[] chunks;
+
+  /* the chunks to check, by the budget at which to check them; a chunk
+     checked again sooner than planned leaves a stale entry behind */
+  @Hidden private double[] heapBudgets;
+  @Hidden private int[] heapChunks;
+  private int heapSize = 0;
+  @Hidden private final int[] dueChunks;
+
+  /* the budget used up so far, and what it is made of */
+  private double budget = 0;
+  private double shipTravel = 0;
+  private double maxAsteroidSpeed = 0;
+  private double lastShipX = Double.NaN;
+  private double lastShipY = Double.NaN;
+
+  private int dormantChunkCount = 0;
+  private int dormantAsteroidCount = 0;
+
+
+  /**
+   * @param width the width of space
+   * @param height the height of space
+   * @param chunkSize the approximate size of the chunks, adjusted so that
+   *                  chunks cover space exactly
+   * @param wakeDistance the distance to the spaceship under which a chunk
+   *                     is simulated
+   * @param sleepDistance the distance to the spaceship above which a chunk
+   *                      becomes dormant, larger than wakeDistance so that
+   *                      chunks at the limit do not switch every update
+   */
+  public AsteroidChunks(double width, double height, double chunkSize,
+                        double wakeDistance, double sleepDistance) {
+    if (sleepDistance < wakeDistance) {
+      throw new IllegalArgumentException("sleep distance below wake distance");
+    }
+    this.width = width;
+    this.height = height;
+    this.columns = Math.max(1, (int) Math.round(width / chunkSize));
+    this.rows = Math.max(1, (int) Math.round(height / chunkSize));
+    this.chunkWidth = width / columns;
+    this.chunkHeight = height / rows;
+    this.wakeDistance = wakeDistance;
+    this.sleepDistance = sleepDistance;
+    this.chunks = new Chunk[columns * rows];
+    this.heapBudgets = new double[chunks.length];
+    this.heapChunks = new int[chunks.length];
+    this.dueChunks = new int[chunks.length];
+    for (int i = 0; i < chunks.length; i++) {
+      chunks[i] = new Chunk();
+      schedule(i, 0);
+    }
+  }
+
+
+  public int getDormantChunkCount() {
+    return dormantChunkCount;
+  }
+
+  public int getDormantAsteroidCount() {
+    return dormantAsteroidCount;
+  }
+
+
+  /**
+   * Wakes up the dormant chunks which may now hold asteroids near the
+   * spaceship, then puts to sleep the chunks far from it, with the
+   * simulated asteroids they contain. Only the chunks whose check is due
+   * are looked at.
+   *
+   * @param asteroids the simulated asteroids, modified in place
+   * @param spaceship the position of the spaceship
+   * @param time the current time, in seconds
+   */
+  public void update(List<Asteroid> asteroids, Vector spaceship, double time) {
+    if (!Double.isNaN(lastShipX)) {
+      double dx = Math.abs(spaceship.getX() - lastShipX);
+      double dy = Math.abs(spaceship.getY() - lastShipY);
+      shipTravel += SimulationMath.hypot(Math.min(dx, width - dx), Math.min(dy, height - dy));
+    }
+    lastShipX = spaceship.getX();
+    lastShipY = spaceship.getY();
+    budget = shipTravel + maxAsteroidSpeed * time;
+    int dueCount = 0;
+    while (heapSize > 0 && heapBudgets[0] <= budget) {
+      Chunk chunk = chunks[heapChunks[0]];
+      if (heapBudgets[0] == chunk.checkBudget) {
+        dueChunks[dueCount++] = heapChunks[0];
+        chunk.checkBudget = Double.NaN; // its other entries are stale
+      }
+      removeFirst();
+    }
+    for (int i = 0; i < dueCount; i++) {
+      check(dueChunks[i], spaceship, time, asteroids);
+    }
+    if (dormantChunkCount > 0) {
+      asteroids.removeIf(asteroid -> sleepIfDormant(asteroid, time));
+    }
+  }
+
+
+  /**
+   * Wakes up a dormant chunk near the spaceship, or puts to sleep a chunk
+   * far from it, then plans its next check.
+   */
+  private void check(int index, Vector spaceship, double time, List<Asteroid> asteroids) {
+    Chunk chunk = chunks[index];
+    double distance = distance(index, spaceship);
+    if (chunk.isDormant) {
+      double reach = chunk.maxSpeed * (time - chunk.sleepTime) + chunk.maxRadius;
+      if (distance - reach >= wakeDistance) {
+        schedule(index, budget + distance - reach - wakeDistance);
+        return;
+      }
+      wake(chunk, asteroids, time);
+    } else if (distance > sleepDistance) {
+      chunk.isDormant = true;
+      chunk.sleepTime = time;
+      dormantChunkCount++;
+      schedule(index, budget + distance - wakeDistance);
+      return;
+    }
+    schedule(index, budget + sleepDistance - distance);
+  }
+
+
+  /**
+   * Builds the asteroids of a dormant chunk at the current time from their
+   * records, and adds them back to the simulated asteroids.
+   */
+  private void wake(Chunk chunk, List<Asteroid> asteroids, double time) {
+    int vertex = 0;
+    for (int i = 0; i < chunk.count; i++) {
+      int record = i * RECORD_LENGTH;
+      double dt = time - chunk.records[record + TIME];
+      double velocityX = chunk.records[record + VELOCITY_X];
+      double velocityY = chunk.records[record + VELOCITY_Y];
+      double angularVelocity = chunk.records[record + ANGULAR_VELOCITY];
+      List<Vector> vertices = new ArrayList<>(chunk.nbVertices[i]);
+      for (int k = 0; k < chunk.nbVertices[i]; k++) {
+        vertices.add(new Vector(chunk.vertexXs[vertex], chunk.vertexYs[vertex]));
+        vertex++;
+      }
+      asteroids.add(new Asteroid(
+        Space.toricRemap(new Vector(
+          chunk.records[record + X] + velocityX * dt,
+          chunk.records[record + Y] + velocityY * dt)),
+        new Polygon(vertices),
+        new Vector(velocityX, velocityY),
+        chunk.records[record + ANGLE] + angularVelocity * dt,
+        angularVelocity,
+        chunk.records[record + SIZE]));
+    }
+    dormantAsteroidCount -= chunk.count;
+    dormantChunkCount--;
+    chunk.isDormant = false;
+    chunk.count = 0;
+    chunk.records = null;
+    chunk.nbVertices = null;
+    chunk.vertexCount = 0;
+    chunk.vertexXs = null;
+    chunk.vertexYs = null;
+    chunk.maxSpeed = 0;
+    chunk.maxRadius = 0;
+  }
+
+
+  /**
+   * Stores the record of an asteroid in its chunk if the chunk is dormant.
+   *
+   * @return whether the asteroid was stored, and must leave the simulation
+   */
+  private boolean sleepIfDormant(Asteroid asteroid, double time) {
+    int column = Math.floorMod((int) Math.floor(asteroid.getX() / chunkWidth), columns);
+    int row = Math.floorMod((int) Math.floor(asteroid.getY() / chunkHeight), rows);
+    int index = row * columns + column;
+    Chunk chunk = chunks[index];
+    if (!chunk.isDormant) {
+      return false;
+    }
+    int nbVertices = asteroid.nbVertices();
+    if (chunk.records == null || chunk.count == chunk.nbVertices.length) {
+      growRecords(chunk);
+    }
+    if (chunk.vertexCount + nbVertices > chunk.vertexXs.length) {
+      growVertices(chunk, chunk.vertexCount + nbVertices);
+    }
+    int i = chunk.count++;
+    int record = i * RECORD_LENGTH;
+    Vector velocity = asteroid.getVelocity();
+    chunk.records[record + X] = asteroid.getX();
+    chunk.records[record + Y] = asteroid.getY();
+    chunk.records[record + VELOCITY_X] = velocity.getX();
+    chunk.records[record + VELOCITY_Y] = velocity.getY();
+    chunk.records[record + ANGLE] = asteroid.getAngle();
+    chunk.records[record + ANGULAR_VELOCITY] = asteroid.getAngularVelocity();
+    chunk.records[record + SIZE] = asteroid.getSize();
+    chunk.records[record + TIME] = time;
+    chunk.nbVertices[i] = nbVertices;
+    asteroid.getLocalVertices(chunk.vertexXs, chunk.vertexYs, chunk.vertexCount);
+    chunk.vertexCount += nbVertices;
+    double speed = velocity.norm();
+    if (speed > chunk.maxSpeed || asteroid.getBoundingRadius() > chunk.maxRadius) {
+      chunk.maxSpeed = Math.max(chunk.maxSpeed, speed);
+      chunk.maxRadius = Math.max(chunk.maxRadius, asteroid.getBoundingRadius());
+      // the chunk reaches further, its planned check may be late
+      schedule(index, budget);
+    }
+    maxAsteroidSpeed = Math.max(maxAsteroidSpeed, speed);
+    dormantAsteroidCount++;
+    return true;
+  }
+
+
+  private static void growRecords(Chunk chunk) {
+    if (chunk.records == null) {
+      chunk.records = new double[INITIAL_CHUNK_CAPACITY * RECORD_LENGTH];
+      chunk.nbVertices = new int[INITIAL_CHUNK_CAPACITY];
+      chunk.vertexXs = new double[INITIAL_CHUNK_CAPACITY * INITIAL_VERTICES_PER_ASTEROID];
+      chunk.vertexYs = new double[INITIAL_CHUNK_CAPACITY * INITIAL_VERTICES_PER_ASTEROID];
+      return;
+    }
+    chunk.records = Arrays.copyOf(chunk.records, 2 * chunk.records.length);
+    chunk.nbVertices = Arrays.copyOf(chunk.nbVertices, 2 * chunk.nbVertices.length);
+  }
+
+
+  private static void growVertices(Chunk chunk, int capacity) {
+    int newCapacity = Math.max(capacity, 2 * chunk.vertexXs.length);
+    chunk.vertexXs = Arrays.copyOf(chunk.vertexXs, newCapacity);
+    chunk.vertexYs = Arrays.copyOf(chunk.vertexYs, newCapacity);
+  }
+
+
+  /**
+   * @param index the index of a chunk
+   * @param position a position in space
+   * @return the toric distance from the position to the chunk, 0 inside it
+   */
+  private double distance(int index, Vector position) {
+    double centerX = (index % columns + 0.5) * chunkWidth;
+    double centerY = (index / columns + 0.5) * chunkHeight;
+    double dx = Math.abs(position.getX() - centerX);
+    double dy = Math.abs(position.getY() - centerY);
+    dx = Math.max(0, Math.min(dx, width - dx) - chunkWidth / 2);
+    dy = Math.max(0, Math.min(dy, height - dy) - chunkHeight / 2);
+    return SimulationMath.hypot(dx, dy);
+  }
+
+
+  /*
+   * The heap of chunks to check, a binary heap by budget in two parallel
+   * arrays. Planning a chunk again adds a new entry; the former one is
+   * recognized as stale when it comes first, as its budget is no longer
+   * the one of the chunk.
+   */
+
+  /**
+   * Plans the next check of a chunk.
+   *
+   * @param index the index of the chunk
+   * @param checkBudget the budget at which to check it
+   */
+  private void schedule(int index, double checkBudget) {
+    chunks[index].checkBudget = checkBudget;
+    if (heapSize == heapBudgets.length) {
+      heapBudgets = Arrays.copyOf(heapBudgets, 2 * heapSize);
+      heapChunks = Arrays.copyOf(heapChunks, 2 * heapSize);
+    }
+    int i = heapSize++;
+    while (i > 0 && heapBudgets[(i - 1) / 2] > checkBudget) {
+      heapBudgets[i] = heapBudgets[(i - 1) / 2];
+      heapChunks[i] = heapChunks[(i - 1) / 2];
+      i = (i - 1) / 2;
+    }
+    heapBudgets[i] = checkBudget;
+    heapChunks[i] = index;
+  }
+
+  private void removeFirst() {
+    heapSize--;
+    double lastBudget = heapBudgets[heapSize];
+    int lastChunk = heapChunks[heapSize];
+    int i = 0;
+    while (2 * i + 1 < heapSize) {
+      int child = 2 * i + 1;
+      if (child + 1 < heapSize && heapBudgets[child + 1] < heapBudgets[child]) {
+        child++;
+      }
+      if (heapBudgets[child] >= lastBudget) {
+        break;
+      }
+      heapBudgets[i] = heapBudgets[child];
+      heapChunks[i] = heapChunks[child];
+      i = child;
+    }
+    heapBudgets[i] = lastBudget;
+    heapChunks[i] = lastChunk;
+  }
+
+
+  // the record of a dormant asteroid: its state when it fell asleep, then
+  // the time at which it did
+  private static final int X = 0;
+  private static final int Y = 1;
+  private static final int VELOCITY_X = 2;
+  private static final int VELOCITY_Y = 3;
+  private static final int ANGLE = 4;
+  private static final int ANGULAR_VELOCITY = 5;
+  private static final int SIZE = 6;
+  private static final int TIME = 7;
+  private static final int RECORD_LENGTH = 8;
+
+  // number of asteroids a dormant chunk can store before growing, and of
+  // vertices per asteroid planned for at first
+  private static final int INITIAL_CHUNK_CAPACITY = 16;
+  private static final int INITIAL_VERTICES_PER_ASTEROID = 12;
+}
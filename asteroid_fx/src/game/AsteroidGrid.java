@@ -0,0 +1,220 @@
+package game;
+
+import inspector.Hidden;
+import tools.VertexKernels;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * A spatial index of the asteroids: space is divided into a grid of
+ * cells, and the asteroids are sorted by the cell containing their
+ * center. Finding the asteroids meeting an area then only visits the
+ * cells around that area, whatever the total number of asteroids.
+ * <p>
+ * The grid is rebuilt from scratch after the asteroids move, which costs
+ * a counting sort and allocates nothing once the arrays are large enough.
+ * Like space, the grid is toric: areas may extend beyond the borders.
+ */
+public class AsteroidGrid {
+
+  private final double width;
+  private final double height;
+  private final int columns;
+  private final int rows;
+  private final double cellWidth;
+  private final double cellHeight;
+
+  /* the asteroids of cell c are entries[cellStarts[c]] to entries[cellStarts[c + 1] - 1] */
+  @Hidden private final int[] cellStarts;
+  @Hidden private Asteroid[] entries = new Asteroid[0];
+  @Hidden private int[] cells = new int[0];
+
+  /* the index in the indexed list, position and bounding radius of each entry */
+  @Hidden private int[] entryIndices = new int[0];
+  @Hidden private double[] entryXs = new double[0];
+  @Hidden private double[] entryYs = new double[0];
+  @Hidden private double[] entryRadii = new double[0];
+
+  /* the entries found overlapping an entry, by the batch kernels */
+  @Hidden private int[] overlaps = new int[0];
+
+  private int entryCount = 0;
+
+  /* the largest bounding radius of the indexed asteroids */
+  private double maxRadius = 0;
+
+
+  /**
+   * @param width the width of space
+   * @param height the height of space
+   * @param cellSize the approximate size of the cells, adjusted so that
+   *                 cells cover space exactly
+   */
+  public AsteroidGrid(double width, double height, double cellSize) {
+    this.width = width;
+    this.height = height;
+    this.columns = Math.max(1, (int) Math.round(width / cellSize));
+    this.rows = Math.max(1, (int) Math.round(height / cellSize));
+    this.cellWidth = width / columns;
+    this.cellHeight = height / rows;
+    this.cellStarts = new int[columns * rows + 1];
+  }
+
+
+  /**
+   * Sorts the asteroids by cell.
+   *
+   * @param asteroids the asteroids to index, with canonical toric positions
+   */
+  public void rebuild(List<Asteroid> asteroids) {
+    int count = asteroids.size();
+    if (count > entries.length) {
+      entries = new Asteroid[count];
+      cells = new int[count];
+      entryIndices = new int[count];
+      entryXs = new double[count];
+      entryYs = new double[count];
+      entryRadii = new double[count];
+      overlaps = new int[count];
+    }
+    Arrays.fill(cellStarts, 0);
+    maxRadius = 0;
+    for (int i = 0; i < count; i++) {
+      Asteroid asteroid = asteroids.get(i);
+      int cell = cell(asteroid.getX(), asteroid.getY());
+      cells[i] = cell;
+      cellStarts[cell]++;
+      maxRadius = Math.max(maxRadius, asteroid.getBoundingRadius());
+    }
+    // cellStarts[c] is now the end of cell c, and becomes its start as it is filled
+    for (int cell = 1; cell < columns * rows; cell++) {
+      cellStarts[cell] += cellStarts[cell - 1];
+    }
+    cellStarts[columns * rows] = count;
+    for (int i = count - 1; i >= 0; i--) {
+      int entry = --cellStarts[cells[i]];
+      Asteroid asteroid = asteroids.get(i);
+      entries[entry] = asteroid;
+      entryIndices[entry] = i;
+      entryXs[entry] = asteroid.getX();
+      entryYs[entry] = asteroid.getY();
+      entryRadii[entry] = asteroid.getBoundingRadius();
+    }
+    Arrays.fill(entries, count, entries.length, null);
+    entryCount = count;
+  }
+
+
+  /**
+   * Finds the pairs of indexed asteroids whose bounding circles overlap,
+   * at their nearest copies. Each cell is compared with itself and with
+   * four of its neighbors, so that each pair is found once; when cells are
+   * too small for the asteroids or the grid too small for its neighbors
+   * to be distinct, all the pairs are compared.
+   *
+   * @param pairs receives each pair, as the index in the list given to
+   *              rebuild of the first asteroid, shifted left by 32 bits,
+   *              or-ed with the index of the second, the first index
+   *              being the smallest
+   */
+  public void findOverlappingPairs(LongConsumer pairs) {
+    if (columns < 3 || rows < 3 || 2 * maxRadius > Math.min(cellWidth, cellHeight)) {
+      for (int first = 0; first < entryCount; first++) {
+        reportOverlapping(first, first + 1, entryCount, pairs);
+      }
+      return;
+    }
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        int cell = row * columns + column;
+        for (int first = cellStarts[cell]; first < cellStarts[cell + 1]; first++) {
+          reportOverlapping(first, first + 1, cellStarts[cell + 1], pairs);
+          for (int neighbor = 0; neighbor < FORWARD_NEIGHBORS.length; neighbor += 2) {
+            int other = Math.floorMod(row + FORWARD_NEIGHBORS[neighbor + 1], rows) * columns
+              + Math.floorMod(column + FORWARD_NEIGHBORS[neighbor], columns);
+            reportOverlapping(first, cellStarts[other], cellStarts[other + 1], pairs);
+          }
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Reports the pairs formed by an entry and the entries of a range whose
+   * bounding circles it overlaps, tested in a batch.
+   */
+  private void reportOverlapping(int first, int from, int to, LongConsumer pairs) {
+    if (from >= to) {
+      return;
+    }
+    int count = VertexKernels.INSTANCE.findOverlaps(
+      entryXs[first], entryYs[first], entryRadii[first],
+      entryXs, entryYs, entryRadii, from, to, width, height, overlaps);
+    for (int i = 0; i < count; i++) {
+      int second = overlaps[i];
+      long firstIndex = Math.min(entryIndices[first], entryIndices[second]);
+      long secondIndex = Math.max(entryIndices[first], entryIndices[second]);
+      pairs.accept(firstIndex << 32 | secondIndex);
+    }
+  }
+
+
+  /**
+   * Finds the asteroids which may meet an area: those whose center lies in
+   * a cell near the area, extended by the largest bounding radius. Each
+   * asteroid is given once, even if the area is larger than space.
+   *
+   * @param minX the left of the area, possibly beyond the borders of space
+   * @param minY the top of the area, possibly beyond the borders of space
+   * @param maxX the right of the area
+   * @param maxY the bottom of the area
+   * @param result the list receiving the asteroids, cleared first
+   */
+  public void findAsteroids(double minX, double minY, double maxX, double maxY,
+                            List<Asteroid> result) {
+    result.clear();
+    int fromColumn = (int) Math.floor((minX - maxRadius) / cellWidth);
+    int toColumn = (int) Math.floor((maxX + maxRadius) / cellWidth);
+    if (toColumn - fromColumn >= columns) {
+      fromColumn = 0;
+      toColumn = columns - 1;
+    }
+    int fromRow = (int) Math.floor((minY - maxRadius) / cellHeight);
+    int toRow = (int) Math.floor((maxY + maxRadius) / cellHeight);
+    if (toRow - fromRow >= rows) {
+      fromRow = 0;
+      toRow = rows - 1;
+    }
+    for (int row = fromRow; row <= toRow; row++) {
+      int rowStart = Math.floorMod(row, rows) * columns;
+      for (int column = fromColumn; column <= toColumn; column++) {
+        int cell = rowStart + Math.floorMod(column, columns);
+        for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+          result.add(entries[i]);
+        }
+      }
+    }
+  }
+
+
+  /**
+   * @return the largest bounding radius of the indexed asteroids.
+   */
+  public double getMaxRadius() {
+    return maxRadius;
+  }
+
+
+  private int cell(double x, double y) {
+    int column = Math.floorMod((int) Math.floor(x / cellWidth), columns);
+    int row = Math.floorMod((int) Math.floor(y / cellHeight), rows);
+    return row * columns + column;
+  }
+
+
+  // column and row offsets of the neighbors compared with each cell
+  private static final int[] FORWARD_NEIGHBORS = {1, 0, -1, 1, 0, 1, 1, 1};
+}
@@ -0,0 +1,573 @@
+package game;
+
+import inspector.Hidden;
+import tools.Vector;
+import tools.WorkerPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Makes asteroids bounce off each other. Candidate pairs come from the
+ * grid of asteroids, whose bounding circles overlap; the narrow phase
+ * then finds the contacts between their hulls. Touching asteroids are
+ * grouped in islands, and each island is solved with sequential impulses:
+ * impulses along the contact normals are applied at the contact points,
+ * so that approaching bodies bounce back with the same normal speed, and
+ * change their angular velocities too. Overlaps are then partly undone by
+ * moving the bodies apart.
+ * <p>
+ * The narrow phase and the islands run on worker threads. Pairs are
+ * sorted by index and islands by their smallest body, and each island is
+ * solved by a single thread in that order, so that the results do not
+ * depend on the threads: replays give the same game.
+ */
+public class CollisionSolver {
+
+  /**
+   * The manifolds of pairs of asteroids, by the identifiers of the
+   * asteroids as first << 32 | second, in a table with open addressing
+   * and linear probing, so that looking a pair up neither boxes its key
+   * nor allocates an entry. A manifold taken from the table leaves its key
+   * behind, so that the probes of the other keys still find them; the
+   * table is only emptied as a whole.
+   */
+  private static class ManifoldTable {
+
+    @Hidden private long[] keys = new long[INITIAL_TABLE_CAPACITY];
+    @Hidden private ContactManifold[] manifolds = new ContactManifold[INITIAL_TABLE_CAPACITY];
+    private int count = 0;
+
+    ManifoldTable() {
+      Arrays.fill(keys, EMPTY_KEY);
+    }
+
+    private int slot(long key) {
+      int mask = keys.length - 1;
+      int slot = (int) ((key * HASH_MULTIPLIER) >>> 32) & mask;
+      while (keys[slot] != EMPTY_KEY && keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    /**
+     * @return the manifold of a pair, removed from the table, or null if
+     * there is none
+     */
+    ContactManifold take(long key) {
+      int slot = slot(key);
+      ContactManifold manifold = manifolds[slot];
+      manifolds[slot] = null;
+      return manifold;
+    }
+
+    /**
+     * Stores the manifold of a pair not in the table.
+     */
+    void put(long key, ContactManifold manifold) {
+      if (2 * (count + 1) > keys.length) {
+        grow();
+      }
+      int slot = slot(key);
+      keys[slot] = key;
+      manifolds[slot] = manifold;
+      count++;
+    }
+
+    private void grow() {
+      long[] oldKeys = keys;
+      ContactManifold[] oldManifolds = manifolds;
+      keys = new long[2 * oldKeys.length];
+      manifolds = new ContactManifold[keys.length];
+      Arrays.fill(keys, EMPTY_KEY);
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != EMPTY_KEY) {
+          int slot = slot(oldKeys[i]);
+          keys[slot] = oldKeys[i];
+          manifolds[slot] = oldManifolds[i];
+        }
+      }
+    }
+
+    /**
+     * Empties the table, handing the manifolds not taken to the solver
+     * for other pairs.
+     */
+    void clear(CollisionSolver solver) {
+      for (int i = 0; i < keys.length && count > 0; i++) {
+        if (keys[i] != EMPTY_KEY) {
+          if (manifolds[i] != null) {
+            solver.releaseManifold(manifolds[i]);
+            manifolds[i] = null;
+          }
+          keys[i] = EMPTY_KEY;
+          count--;
+        }
+      }
+    }
+  }
+
+
+  private final double width;
+  private final double height;
+
+  /* the candidate pairs, as first index << 32 | second index, sorted */
+  @Hidden private long[] pairs = new long[INITIAL_PAIR_CAPACITY];
+  private int pairCount = 0;
+
+  /* the manifold of each candidate pair, kept from frame to frame under
+     the identifiers of its asteroids, as their indices change when chunks
+     of space fall asleep or wake up; a pair seen in the other order gets a
+     new manifold, as the normals of the old one would point backwards */
+  @Hidden private ContactManifold[] manifolds = new ContactManifold[INITIAL_PAIR_CAPACITY];
+  @Hidden private ManifoldTable pairManifolds = new ManifoldTable();
+  @Hidden private ManifoldTable previousPairManifolds = new ManifoldTable();
+
+  /* the manifolds of pairs no longer candidates, reused for new pairs */
+  @Hidden private ContactManifold[] freeManifolds = new ContactManifold[INITIAL_PAIR_CAPACITY];
+  private int freeManifoldCount = 0;
+  @Hidden private NarrowPhase[] narrowPhases = new NarrowPhase[0];
+
+  /* the touching pairs, as island << 32 | pair, sorted, and where each island starts */
+  @Hidden private long[] contacts = new long[INITIAL_PAIR_CAPACITY];
+  private int contactCount = 0;
+  @Hidden private int[] islandStarts = new int[INITIAL_PAIR_CAPACITY + 1];
+  private int islandCount = 0;
+
+  /* the bodies, by index in the list of asteroids */
+  @Hidden private int[] parents = new int[0]; // union-find forest of islands
+  @Hidden private boolean[] isInvolved = new boolean[0];
+  @Hidden private double[] xs = new double[0];
+  @Hidden private double[] ys = new double[0];
+  @Hidden private double[] vxs = new double[0];
+  @Hidden private double[] vys = new double[0];
+  @Hidden private double[] omegas = new double[0]; // radians per second, from x toward y
+  @Hidden private double[] inverseMasses = new double[0];
+  @Hidden private double[] inverseInertias = new double[0];
+  @Hidden private double[] corrections = new double[0]; // displacements, x then y
+
+  /* for the two points of each contact: the arms from both centers,
+     the normal mass, the target normal speed and the impulse so far */
+  @Hidden private double[] pointData = new double[0];
+
+
+  /**
+   * @param width the width of space
+   * @param height the height of space
+   */
+  public CollisionSolver(double width, double height) {
+    this.width = width;
+    this.height = height;
+  }
+
+
+  public int getCandidatePairCount() {
+    return pairCount;
+  }
+
+  public int getContactCount() {
+    return contactCount;
+  }
+
+  public int getIslandCount() {
+    return islandCount;
+  }
+
+
+  /**
+   * Finds the asteroids touching each other, and changes their velocities,
+   * angular velocities and positions so that they bounce apart.
+   *
+   * @param asteroids the asteroids, indexed by the grid
+   * @param grid the grid, rebuilt since the asteroids last moved
+   */
+  public void solve(List<Asteroid> asteroids, AsteroidGrid grid) {
+    pairCount = 0;
+    grid.findOverlappingPairs(this::addPair);
+    Arrays.sort(pairs, 0, pairCount);
+    findContacts(asteroids);
+    if (contactCount == 0) {
+      islandCount = 0;
+      return;
+    }
+    loadBodies(asteroids);
+    findIslands();
+    if (2 * contactCount * POINT_DATA > pointData.length) {
+      pointData = new double[4 * contactCount * POINT_DATA];
+    }
+    List<Callable<Object>> tasks = new ArrayList<>();
+    int island = 0;
+    while (island < islandCount) {
+      int first = island;
+      while (island < islandCount
+        && islandStarts[island + 1] - islandStarts[first] < CONTACTS_PER_TASK) {
+        island++;
+      }
+      island = Math.max(island, first + 1);
+      int last = island;
+      tasks.add(() -> {
+        for (int i = first; i < last; i++) {
+          solveIsland(islandStarts[i], islandStarts[i + 1]);
+        }
+        return null;
+      });
+    }
+    WorkerPool.runAll(tasks);
+    storeBodies(asteroids);
+  }
+
+
+  private void addPair(long pair) {
+    if (pairCount == pairs.length) {
+      pairs = Arrays.copyOf(pairs, 2 * pairs.length);
+    }
+    pairs[pairCount++] = pair;
+  }
+
+
+  /**
+   * Runs the narrow phase on the candidate pairs, with the manifolds of the
+   * pairs already candidates at the previous frame, and lists the pairs
+   * touching.
+   */
+  private void findContacts(List<Asteroid> asteroids) {
+    if (pairCount > manifolds.length) {
+      manifolds = new ContactManifold[Math.max(pairCount, 2 * manifolds.length)];
+    }
+    ManifoldTable previous = pairManifolds;
+    pairManifolds = previousPairManifolds;
+    previousPairManifolds = previous;
+    for (int i = 0; i < pairCount; i++) {
+      long key = (long) asteroids.get((int) (pairs[i] >>> 32)).getId() << 32
+        | asteroids.get((int) pairs[i]).getId();
+      ContactManifold manifold = previous.take(key);
+      if (manifold == null) {
+        manifold = newManifold();
+      }
+      manifolds[i] = manifold;
+      pairManifolds.put(key, manifold);
+    }
+    previous.clear(this);
+
+    int taskCount = (pairCount + PAIRS_PER_TASK - 1) / PAIRS_PER_TASK;
+    if (taskCount > narrowPhases.length) {
+      int oldLength = narrowPhases.length;
+      narrowPhases = Arrays.copyOf(narrowPhases, taskCount);
+      for (int i = oldLength; i < taskCount; i++) {
+        narrowPhases[i] = new NarrowPhase(width, height);
+      }
+    }
+    List<Callable<Object>> tasks = new ArrayList<>(taskCount);
+    for (int task = 0; task < taskCount; task++) {
+      NarrowPhase narrowPhase = narrowPhases[task];
+      int from = task * PAIRS_PER_TASK;
+      int to = Math.min(pairCount, from + PAIRS_PER_TASK);
+      tasks.add(() -> {
+        for (int i = from; i < to; i++) {
+          narrowPhase.collide(asteroids.get((int) (pairs[i] >>> 32)),
+            asteroids.get((int) pairs[i]), manifolds[i]);
+        }
+        return null;
+      });
+    }
+    WorkerPool.runAll(tasks);
+
+    contactCount = 0;
+    if (pairCount > contacts.length) {
+      contacts = new long[Math.max(pairCount, 2 * contacts.length)];
+      islandStarts = new int[contacts.length + 1];
+    }
+    for (int i = 0; i < pairCount; i++) {
+      if (manifolds[i].isTouching()) {
+        contacts[contactCount++] = i;
+      }
+    }
+  }
+
+
+  private ContactManifold newManifold() {
+    if (freeManifoldCount == 0) {
+      return new ContactManifold();
+    }
+    ContactManifold manifold = freeManifolds[--freeManifoldCount];
+    freeManifolds[freeManifoldCount] = null;
+    return manifold;
+  }
+
+  private void releaseManifold(ContactManifold manifold) {
+    if (freeManifoldCount == freeManifolds.length) {
+      freeManifolds = Arrays.copyOf(freeManifolds, 2 * freeManifolds.length);
+    }
+    manifold.reset();
+    freeManifolds[freeManifoldCount++] = manifold;
+  }
+
+
+  /**
+   * Copies the state of the bodies in contact into arrays.
+   */
+  private void loadBodies(List<Asteroid> asteroids) {
+    int count = asteroids.size();
+    if (count > parents.length) {
+      int capacity = Math.max(count, 2 * parents.length);
+      parents = new int[capacity];
+      isInvolved = new boolean[capacity];
+      xs = new double[capacity];
+      ys = new double[capacity];
+      vxs = new double[capacity];
+      vys = new double[capacity];
+      omegas = new double[capacity];
+      inverseMasses = new double[capacity];
+      inverseInertias = new double[capacity];
+      corrections = new double[2 * capacity];
+    }
+    Arrays.fill(isInvolved, 0, count, false);
+    for (int c = 0; c < contactCount; c++) {
+      long pair = pairs[(int) contacts[c]];
+      loadBody(asteroids, (int) (pair >>> 32));
+      loadBody(asteroids, (int) pair);
+    }
+  }
+
+  private void loadBody(List<Asteroid> asteroids, int body) {
+    if (isInvolved[body]) {
+      return;
+    }
+    Asteroid asteroid = asteroids.get(body);
+    isInvolved[body] = true;
+    parents[body] = body;
+    xs[body] = asteroid.getX();
+    ys[body] = asteroid.getY();
+    vxs[body] = asteroid.getVelocity().getX();
+    vys[body] = asteroid.getVelocity().getY();
+    // the vertices of asteroids turn from y toward x when their angle grows
+    omegas[body] = -Math.toRadians(asteroid.getAngularVelocity());
+    inverseMasses[body] = 1 / asteroid.getMass();
+    inverseInertias[body] = 1 / asteroid.getMomentOfInertia();
+    corrections[2 * body] = 0;
+    corrections[2 * body + 1] = 0;
+  }
+
+
+  /**
+   * Groups the contacts by island, islands being numbered by their
+   * smallest body, and sorts them.
+   */
+  private void findIslands() {
+    for (int c = 0; c < contactCount; c++) {
+      long pair = pairs[(int) contacts[c]];
+      int first = find((int) (pair >>> 32));
+      int second = find((int) pair);
+      if (first != second) {
+        parents[Math.max(first, second)] = Math.min(first, second);
+      }
+    }
+    for (int c = 0; c < contactCount; c++) {
+      int pair = (int) contacts[c];
+      long island = find((int) (pairs[pair] >>> 32));
+      contacts[c] = island << 32 | pair;
+    }
+    Arrays.sort(contacts, 0, contactCount);
+    islandCount = 0;
+    for (int c = 0; c < contactCount; c++) {
+      if (c == 0 || contacts[c] >>> 32 != contacts[c - 1] >>> 32) {
+        islandStarts[islandCount++] = c;
+      }
+    }
+    islandStarts[islandCount] = contactCount;
+  }
+
+  private int find(int body) {
+    while (parents[body] != body) {
+      parents[body] = parents[parents[body]];
+      body = parents[body];
+    }
+    return body;
+  }
+
+
+  /**
+   * Solves the contacts of an island: applies impulses until the contact
+   * points stop approaching, then pushes the bodies apart.
+   *
+   * @param from the first contact of the island, in the sorted contacts
+   * @param to the end of the contacts of the island
+   */
+  private void solveIsland(int from, int to) {
+    for (int c = from; c < to; c++) {
+      prepare(c);
+    }
+    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+      for (int c = from; c < to; c++) {
+        applyImpulses(c);
+      }
+    }
+    for (int c = from; c < to; c++) {
+      separate(c);
+    }
+  }
+
+
+  /**
+   * Computes the lever arms, effective masses and bouncing speeds of the
+   * points of a contact.
+   */
+  private void prepare(int c) {
+    int pair = (int) contacts[c];
+    ContactManifold manifold = manifolds[pair];
+    int first = (int) (pairs[pair] >>> 32);
+    int second = (int) pairs[pair];
+    double normalX = manifold.getNormalX();
+    double normalY = manifold.getNormalY();
+    double secondX = xs[first] + Space.wrap(xs[second] - xs[first], width);
+    double secondY = ys[first] + Space.wrap(ys[second] - ys[first], height);
+    for (int point = 0; point < 2; point++) {
+      if (point >= manifold.getPointCount()) {
+        break;
+      }
+      int base = (2 * c + point) * POINT_DATA;
+      double firstArmX = manifold.getPointX(point) - xs[first];
+      double firstArmY = manifold.getPointY(point) - ys[first];
+      double secondArmX = manifold.getPointX(point) - secondX;
+      double secondArmY = manifold.getPointY(point) - secondY;
+      double firstCross = firstArmX * normalY - firstArmY * normalX;
+      double secondCross = secondArmX * normalY - secondArmY * normalX;
+      double inverseNormalMass = inverseMasses[first] + inverseMasses[second]
+        + firstCross * firstCross * inverseInertias[first]
+        + secondCross * secondCross * inverseInertias[second];
+      double normalSpeed = normalSpeed(first, second, firstArmX, firstArmY,
+        secondArmX, secondArmY, normalX, normalY);
+      pointData[base] = firstArmX;
+      pointData[base + 1] = firstArmY;
+      pointData[base + 2] = secondArmX;
+      pointData[base + 3] = secondArmY;
+      pointData[base + 4] = 1 / inverseNormalMass;
+      pointData[base + 5] = (normalSpeed < -RESTITUTION_THRESHOLD) ? -normalSpeed : 0;
+      pointData[base + 6] = 0;
+    }
+  }
+
+
+  /**
+   * Applies at each point of a contact the impulse bringing the normal
+   * speed to its target, never pulling the bodies together in total.
+   */
+  private void applyImpulses(int c) {
+    int pair = (int) contacts[c];
+    ContactManifold manifold = manifolds[pair];
+    int first = (int) (pairs[pair] >>> 32);
+    int second = (int) pairs[pair];
+    double normalX = manifold.getNormalX();
+    double normalY = manifold.getNormalY();
+    for (int point = 0; point < manifold.getPointCount(); point++) {
+      int base = (2 * c + point) * POINT_DATA;
+      double firstArmX = pointData[base];
+      double firstArmY = pointData[base + 1];
+      double secondArmX = pointData[base + 2];
+      double secondArmY = pointData[base + 3];
+      double normalSpeed = normalSpeed(first, second, firstArmX, firstArmY,
+        secondArmX, secondArmY, normalX, normalY);
+      double impulse = pointData[base + 4] * (pointData[base + 5] - normalSpeed);
+      double accumulated = Math.max(pointData[base + 6] + impulse, 0);
+      impulse = accumulated - pointData[base + 6];
+      pointData[base + 6] = accumulated;
+      double impulseX = impulse * normalX;
+      double impulseY = impulse * normalY;
+      vxs[first] -= impulseX * inverseMasses[first];
+      vys[first] -= impulseY * inverseMasses[first];
+      omegas[first] -= (firstArmX * impulseY - firstArmY * impulseX) * inverseInertias[first];
+      vxs[second] += impulseX * inverseMasses[second];
+      vys[second] += impulseY * inverseMasses[second];
+      omegas[second] += (secondArmX * impulseY - secondArmY * impulseX) * inverseInertias[second];
+    }
+  }
+
+
+  /**
+   * @return the speed at which the points of two bodies at the given arms
+   * move apart along the normal, negative when they approach
+   */
+  private double normalSpeed(int first, int second,
+                             double firstArmX, double firstArmY,
+                             double secondArmX, double secondArmY,
+                             double normalX, double normalY) {
+    double relativeX = vxs[second] - omegas[second] * secondArmY
+      - vxs[first] + omegas[first] * firstArmY;
+    double relativeY = vys[second] + omegas[second] * secondArmX
+      - vys[first] - omegas[first] * firstArmX;
+    return relativeX * normalX + relativeY * normalY;
+  }
+
+
+  /**
+   * Moves the bodies of a contact apart along the normal by part of their
+   * overlap, shared by inverse mass.
+   */
+  private void separate(int c) {
+    int pair = (int) contacts[c];
+    ContactManifold manifold = manifolds[pair];
+    int first = (int) (pairs[pair] >>> 32);
+    int second = (int) pairs[pair];
+    double overlap = manifold.getDepth() - ALLOWED_OVERLAP;
+    if (overlap <= 0) {
+      return;
+    }
+    double push = CORRECTION_RATE * overlap / (inverseMasses[first] + inverseMasses[second]);
+    corrections[2 * first] -= push * inverseMasses[first] * manifold.getNormalX();
+    corrections[2 * first + 1] -= push * inverseMasses[first] * manifold.getNormalY();
+    corrections[2 * second] += push * inverseMasses[second] * manifold.getNormalX();
+    corrections[2 * second + 1] += push * inverseMasses[second] * manifold.getNormalY();
+  }
+
+
+  /**
+   * Applies the changes of the bodies in contact to the asteroids.
+   */
+  private void storeBodies(List<Asteroid> asteroids) {
+    int count = asteroids.size();
+    for (int body = 0; body < count; body++) {
+      if (!isInvolved[body]) {
+        continue;
+      }
+      Asteroid asteroid = asteroids.get(body);
+      asteroid.accelerate(new Vector(
+        vxs[body] - asteroid.getVelocity().getX(),
+        vys[body] - asteroid.getVelocity().getY()));
+      asteroid.spin(-Math.toDegrees(omegas[body]) - asteroid.getAngularVelocity());
+      asteroid.moveBy(corrections[2 * body], corrections[2 * body + 1]);
+    }
+  }
+
+
+  // numbers stored in pointData per contact point
+  private static final int POINT_DATA = 7;
+
+  // number of pairs the arrays hold before growing
+  private static final int INITIAL_PAIR_CAPACITY = 64;
+
+  // number of slots of the tables of manifolds before growing, a power of 2
+  private static final int INITIAL_TABLE_CAPACITY = 128;
+
+  // marks the free slots of the tables: identifiers are never negative
+  private static final long EMPTY_KEY = -1;
+
+  // spreads the keys over the slots, Fibonacci hashing
+  private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+  // number of pairs tested, or contacts solved, by one task
+  private static final int PAIRS_PER_TASK = 256;
+  private static final int CONTACTS_PER_TASK = 64;
+
+  // number of passes over the contacts of an island
+  private static final int ITERATIONS = 8;
+
+  // normal speed below which contacts do not bounce, in pixels per second
+  private static final double RESTITUTION_THRESHOLD = 1;
+
+  // overlap left to keep contacts stable, and fraction of the rest undone per frame
+  private static final double ALLOWED_OVERLAP = 0.5;
+  private static final double CORRECTION_RATE = 0.4;
+}
@@ -0,0 +1,123 @@
+package game;
+
+/**
+ * The contact between two asteroids, as found by the narrow phase: the
+ * direction along which to push them apart, how deep they overlap, and
+ * the points where they touch. One manifold is kept per pair of
+ * asteroids, so that it also remembers the axis which separated them last
+ * time, tested first at the next frame.
+ */
+public class ContactManifold {
+
+  private boolean isTouching = false;
+
+  /* unit normal, from the first asteroid toward the second */
+  private double normalX;
+  private double normalY;
+
+  /* how far the asteroids overlap along the normal */
+  private double depth;
+
+  /* the contact points, one or two */
+  private int pointCount = 0;
+  private final double[] pointXs = new double[2];
+  private final double[] pointYs = new double[2];
+
+  /* the last separating or least penetrating axis: an edge of either hull */
+  private boolean isAxisOnSecond = false;
+  private int axisEdge = -1;
+
+
+  public boolean isTouching() {
+    return isTouching;
+  }
+
+  /**
+   * @return the horizontal coordinate of the unit normal of the contact,
+   * pointing from the first asteroid toward the second.
+   */
+  public double getNormalX() {
+    return normalX;
+  }
+
+  /**
+   * @return the vertical coordinate of the unit normal of the contact,
+   * pointing from the first asteroid toward the second.
+   */
+  public double getNormalY() {
+    return normalY;
+  }
+
+  /**
+   * @return the distance along the normal over which the asteroids overlap.
+   */
+  public double getDepth() {
+    return depth;
+  }
+
+  public int getPointCount() {
+    return pointCount;
+  }
+
+  /**
+   * @param index the index of a contact point, 0 or 1
+   * @return the horizontal coordinate of the point, the second asteroid
+   * being taken at its copy nearest to the first
+   */
+  public double getPointX(int index) {
+    return pointXs[index];
+  }
+
+  /**
+   * @param index the index of a contact point, 0 or 1
+   * @return the vertical coordinate of the point, the second asteroid
+   * being taken at its copy nearest to the first
+   */
+  public double getPointY(int index) {
+    return pointYs[index];
+  }
+
+
+  void setSeparated() {
+    isTouching = false;
+    pointCount = 0;
+    depth = 0;
+  }
+
+  /**
+   * Forgets the contact and the axis, for the manifold to be used by
+   * another pair.
+   */
+  void reset() {
+    setSeparated();
+    isAxisOnSecond = false;
+    axisEdge = -1;
+  }
+
+  void setContact(double normalX, double normalY, double depth) {
+    this.isTouching = true;
+    this.normalX = normalX;
+    this.normalY = normalY;
+    this.depth = depth;
+    this.pointCount = 0;
+  }
+
+  void addPoint(double x, double y) {
+    pointXs[pointCount] = x;
+    pointYs[pointCount] = y;
+    pointCount++;
+  }
+
+  boolean isAxisOnSecond() {
+    return isAxisOnSecond;
+  }
+
+  int getAxisEdge() {
+    return axisEdge;
+  }
+
+  void setAxis(boolean isOnSecond, int edge) {
+    this.isAxisOnSecond = isOnSecond;
+    this.axisEdge = edge;
+  }
+}
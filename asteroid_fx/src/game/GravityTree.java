@@ -0,0 +1,540 @@
+package game;
+
+import inspector.Hidden;
+import tools.Vector;
+import tools.WorkerPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Computes the gravitational attraction between the asteroids and the
+ * spaceship with the Barnes-Hut approximation: bodies are grouped in a
+ * quadtree over space, and a group far enough from a body, as seen under
+ * an angle smaller than the opening angle, attracts it as a single body
+ * at its center of mass. Computing all the forces then costs about
+ * n log n instead of n squared.
+ * <p>
+ * Space being toric, each body is attracted by the nearest copy of every
+ * other body or group (the minimum image convention); groups larger than
+ * half of space are always opened, as their nearest copy is ambiguous.
+ * <p>
+ * The tree is rebuilt at each tick into arrays reused from tick to tick.
+ * Bodies are sorted by the Morton code of their position, so that each
+ * node covers a contiguous range of them, and nodes are stored depth
+ * first with the index following their subtree, so that the force pass
+ * needs no stack. The sort, the subtrees below the first levels and the
+ * force pass are run on worker threads.
+ */
+public class GravityTree {
+
+  private final double width;
+  private final double height;
+  private final double gravityConstant;
+  private final double squaredSoftening;
+  private double openingAngle;
+
+  /* the bodies sorted by Morton code: entries are the code << 32 | the body */
+  @Hidden private long[] sortedCodes = new long[0];
+  @Hidden private Object[] bodies = new Object[0]; // asteroids, then the spaceship
+  @Hidden private double[] bodyXs = new double[0]; // by body, before sorting
+  @Hidden private double[] bodyYs = new double[0];
+  @Hidden private double[] bodyMasses = new double[0];
+  @Hidden private double[] xs = new double[0]; // by rank in the sorted order
+  @Hidden private double[] ys = new double[0];
+  @Hidden private double[] masses = new double[0];
+  private int bodyCount = 0;
+
+  /* the nodes, depth first; node i covers the bodies of rank from[i] to to[i] - 1 */
+  @Hidden private int[] nodeFrom = new int[0];
+  @Hidden private int[] nodeTo = new int[0];
+  @Hidden private int[] nodeNext = new int[0]; // the first node after the subtree
+  @Hidden private int[] nodeDepth = new int[0];
+  @Hidden private double[] nodeMass = new double[0];
+  @Hidden private double[] nodeX = new double[0]; // center of mass
+  @Hidden private double[] nodeY = new double[0];
+  private int nodeCount = 0;
+
+  /* the subtrees built by worker threads, and the first levels above them */
+  @Hidden private final List<int[]> subtrees = new ArrayList<>(); // from, to, depth, count
+  @Hidden private final List<Integer> topNodes = new ArrayList<>();
+
+  private long interactionCount = 0;
+
+  /* the time spent in the force pass, in nanoseconds, since the creation */
+  private long forceTime = 0;
+
+
+  /**
+   * @param width the width of space
+   * @param height the height of space
+   * @param gravityConstant the acceleration given by a body of mass 1 at
+   *                        distance 1
+   * @param softening a distance added to all distances, so that close
+   *                  bodies do not get infinite accelerations
+   * @param openingAngle the largest angle, in radians, under which a group
+   *                     of bodies is approximated by its center of mass
+   */
+  public GravityTree(double width, double height, double gravityConstant,
+                     double softening, double openingAngle) {
+    this.width = width;
+    this.height = height;
+    this.gravityConstant = gravityConstant;
+    this.squaredSoftening = softening * softening;
+    setOpeningAngle(openingAngle);
+  }
+
+
+  /**
+   * Sets the tradeoff between accuracy and speed: 0 computes the exact
+   * forces, larger angles approximate more bodies by groups.
+   *
+   * @param openingAngle the largest angle, in radians, under which a group
+   *                     of bodies is approximated by its center of mass
+   */
+  public void setOpeningAngle(double openingAngle) {
+    if (!(openingAngle >= 0)) {
+      throw new IllegalArgumentException("opening angle must not be negative: " + openingAngle);
+    }
+    this.openingAngle = openingAngle;
+  }
+
+  public double getOpeningAngle() {
+    return openingAngle;
+  }
+
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * @return the number of bodies and groups which attracted a body, summed
+   * over the bodies, at the last tick.
+   */
+  public long getInteractionCount() {
+    return interactionCount;
+  }
+
+
+  /**
+   * @return the time spent computing the forces, on the workers, in
+   * nanoseconds, since this object was created. The rest of a tick sorts
+   * the bodies and builds the tree.
+   */
+  long getForceTime() {
+    return forceTime;
+  }
+
+
+  /**
+   * Changes the velocities of the asteroids and of the spaceship by the
+   * attraction they undergo during a time delay. Masses are the sizes of
+   * the asteroids.
+   *
+   * @param asteroids the asteroids
+   * @param spaceship the spaceship
+   * @param spaceshipMass the mass of the spaceship
+   * @param dt the time delay, in seconds
+   */
+  public void apply(List<Asteroid> asteroids, Spaceship spaceship,
+                    double spaceshipMass, double dt) {
+    load(asteroids, spaceship, spaceshipMass);
+    build();
+    List<Callable<Long>> tasks = new ArrayList<>();
+    for (int from = 0; from < bodyCount; from += FORCE_CHUNK_SIZE) {
+      int chunkFrom = from;
+      int chunkTo = Math.min(bodyCount, from + FORCE_CHUNK_SIZE);
+      tasks.add(() -> accelerate(chunkFrom, chunkTo, dt));
+    }
+    interactionCount = 0;
+    long start = System.nanoTime();
+    for (long count : WorkerPool.runAll(tasks)) {
+      interactionCount += count;
+    }
+    forceTime += System.nanoTime() - start;
+  }
+
+
+  /**
+   * Copies the positions and masses of the bodies and sorts them by
+   * Morton code.
+   */
+  private void load(List<Asteroid> asteroids, Spaceship spaceship, double spaceshipMass) {
+    bodyCount = asteroids.size() + 1;
+    if (bodyCount > sortedCodes.length) {
+      int capacity = Math.max(bodyCount, 2 * sortedCodes.length);
+      sortedCodes = new long[capacity];
+      bodies = new Object[capacity];
+      bodyXs = new double[capacity];
+      bodyYs = new double[capacity];
+      bodyMasses = new double[capacity];
+      xs = new double[capacity];
+      ys = new double[capacity];
+      masses = new double[capacity];
+    }
+    for (int i = 0; i < bodyCount - 1; i++) {
+      Asteroid asteroid = asteroids.get(i);
+      bodies[i] = asteroid;
+      bodyXs[i] = asteroid.getX();
+      bodyYs[i] = asteroid.getY();
+      bodyMasses[i] = asteroid.getSize();
+    }
+    int ship = bodyCount - 1;
+    bodies[ship] = spaceship;
+    bodyXs[ship] = spaceship.getPosition().getX();
+    bodyYs[ship] = spaceship.getPosition().getY();
+    bodyMasses[ship] = spaceshipMass;
+    for (int i = 0; i < bodyCount; i++) {
+      sortedCodes[i] = (long) mortonCode(bodyXs[i], bodyYs[i]) << 32 | i;
+    }
+    Arrays.parallelSort(sortedCodes, 0, bodyCount);
+    for (int rank = 0; rank < bodyCount; rank++) {
+      int body = (int) sortedCodes[rank];
+      xs[rank] = bodyXs[body];
+      ys[rank] = bodyYs[body];
+      masses[rank] = bodyMasses[body];
+    }
+  }
+
+
+  /**
+   * Builds the tree: the first levels are laid out on this thread, the
+   * subtrees below are counted, then built, by worker threads.
+   */
+  private void build() {
+    subtrees.clear();
+    topNodes.clear();
+    planSubtrees(0, bodyCount, 0);
+    List<Callable<Long>> tasks = new ArrayList<>();
+    for (int[] subtree : subtrees) {
+      tasks.add(() -> (long) countNodes(subtree[0], subtree[1], subtree[2]));
+    }
+    List<Long> counts = WorkerPool.runAll(tasks);
+    for (int i = 0; i < subtrees.size(); i++) {
+      subtrees.get(i)[3] = (int) (long) counts.get(i);
+    }
+    nodeCount = topNodes.size();
+    for (int[] subtree : subtrees) {
+      nodeCount += subtree[3];
+    }
+    ensureNodeCapacity(nodeCount);
+    tasks.clear();
+    int[] subtreeIndex = {0};
+    layOutTopNodes(0, bodyCount, 0, 0, subtreeIndex, tasks);
+    WorkerPool.runAll(tasks);
+    for (int i = topNodes.size() - 1; i >= 0; i--) {
+      summarize(topNodes.get(i));
+    }
+  }
+
+
+  /**
+   * Lists the subtrees rooted at the parallel depth, or above it when a
+   * node is a leaf, in depth first order, and counts the nodes above them.
+   */
+  private void planSubtrees(int from, int to, int depth) {
+    if (depth == PARALLEL_DEPTH || isLeaf(from, to, depth)) {
+      subtrees.add(new int[] {from, to, depth, 0});
+      return;
+    }
+    topNodes.add(-1); // placeholder, replaced by its index when laid out
+    for (int quadrant = 0; quadrant < 4; quadrant++) {
+      int end = quadrantEnd(from, to, depth, quadrant);
+      if (end > from) {
+        planSubtrees(from, end, depth + 1);
+      }
+      from = end;
+    }
+  }
+
+
+  /**
+   * Writes the nodes above the subtrees, and creates the tasks building
+   * the subtrees at their place.
+   *
+   * @return the index of the first node after this one and its subtree
+   */
+  private int layOutTopNodes(int from, int to, int depth, int index,
+                             int[] subtreeIndex, List<Callable<Long>> tasks) {
+    if (depth == PARALLEL_DEPTH || isLeaf(from, to, depth)) {
+      int[] subtree = subtrees.get(subtreeIndex[0]++);
+      tasks.add(() -> (long) buildNode(subtree[0], subtree[1], subtree[2], index));
+      return index + subtree[3];
+    }
+    topNodes.set(topNodes.indexOf(-1), index);
+    setNode(index, from, to, depth);
+    int next = index + 1;
+    int start = from;
+    for (int quadrant = 0; quadrant < 4; quadrant++) {
+      int end = quadrantEnd(start, to, depth, quadrant);
+      if (end > start) {
+        next = layOutTopNodes(start, end, depth + 1, next, subtreeIndex, tasks);
+      }
+      start = end;
+    }
+    nodeNext[index] = next;
+    return next;
+  }
+
+
+  /**
+   * @return the number of nodes of the subtree covering a range of bodies.
+   */
+  private int countNodes(int from, int to, int depth) {
+    if (isLeaf(from, to, depth)) {
+      return 1;
+    }
+    int count = 1;
+    for (int quadrant = 0; quadrant < 4; quadrant++) {
+      int end = quadrantEnd(from, to, depth, quadrant);
+      if (end > from) {
+        count += countNodes(from, end, depth + 1);
+      }
+      from = end;
+    }
+    return count;
+  }
+
+
+  /**
+   * Writes the nodes of the subtree covering a range of bodies, with
+   * their masses and centers of mass.
+   *
+   * @return the index of the first node after the subtree
+   */
+  private int buildNode(int from, int to, int depth, int index) {
+    setNode(index, from, to, depth);
+    if (isLeaf(from, to, depth)) {
+      double mass = 0;
+      double x = 0;
+      double y = 0;
+      for (int rank = from; rank < to; rank++) {
+        mass += masses[rank];
+        x += masses[rank] * xs[rank];
+        y += masses[rank] * ys[rank];
+      }
+      setMass(index, mass, x, y);
+      nodeNext[index] = index + 1;
+      return index + 1;
+    }
+    int next = index + 1;
+    int start = from;
+    for (int quadrant = 0; quadrant < 4; quadrant++) {
+      int end = quadrantEnd(start, to, depth, quadrant);
+      if (end > start) {
+        next = buildNode(start, end, depth + 1, next);
+      }
+      start = end;
+    }
+    nodeNext[index] = next;
+    summarize(index);
+    return next;
+  }
+
+
+  /**
+   * Computes the mass and center of mass of an inner node from its children.
+   */
+  private void summarize(int index) {
+    double mass = 0;
+    double x = 0;
+    double y = 0;
+    for (int child = index + 1; child < nodeNext[index]; child = nodeNext[child]) {
+      mass += nodeMass[child];
+      x += nodeMass[child] * nodeX[child];
+      y += nodeMass[child] * nodeY[child];
+    }
+    setMass(index, mass, x, y);
+  }
+
+
+  /**
+   * Computes the accelerations of a range of bodies, and changes their
+   * velocities accordingly.
+   *
+   * @return the number of interactions computed
+   */
+  private long accelerate(int from, int to, double dt) {
+    long interactions = 0;
+    double halfWidth = width / 2;
+    double halfHeight = height / 2;
+    // a node at some depth attracts as a whole beyond the limit squared distance
+    double[] limits = new double[MAX_DEPTH + 1];
+    for (int depth = 0; depth <= MAX_DEPTH; depth++) {
+      double size = Math.max(width, height) / (1 << depth);
+      limits[depth] = (size <= Math.min(halfWidth, halfHeight)) ?
+        size * size / (openingAngle * openingAngle) :
+        Double.POSITIVE_INFINITY;
+    }
+    for (int rank = from; rank < to; rank++) {
+      double x = xs[rank];
+      double y = ys[rank];
+      double ax = 0;
+      double ay = 0;
+      int node = 0;
+      while (node < nodeCount) {
+        boolean contains = nodeFrom[node] <= rank && rank < nodeTo[node];
+        boolean isLeaf = nodeNext[node] == node + 1;
+        if (!contains) {
+          double dx = wrap(nodeX[node] - x, width, halfWidth);
+          double dy = wrap(nodeY[node] - y, height, halfHeight);
+          double squaredDistance = dx * dx + dy * dy;
+          if (squaredDistance > limits[nodeDepth[node]]) {
+            double factor = attraction(nodeMass[node], squaredDistance);
+            ax += factor * dx;
+            ay += factor * dy;
+            interactions++;
+            node = nodeNext[node];
+            continue;
+          }
+        }
+        if (!isLeaf) {
+          node++;
+          continue;
+        }
+        for (int other = nodeFrom[node]; other < nodeTo[node]; other++) {
+          if (other != rank) {
+            double dx = wrap(xs[other] - x, width, halfWidth);
+            double dy = wrap(ys[other] - y, height, halfHeight);
+            double factor = attraction(masses[other], dx * dx + dy * dy);
+            ax += factor * dx;
+            ay += factor * dy;
+            interactions++;
+          }
+        }
+        node = nodeNext[node];
+      }
+      Vector deltaV = new Vector(ax * dt, ay * dt);
+      Object body = bodies[(int) sortedCodes[rank]];
+      if (body instanceof Asteroid) {
+        ((Asteroid) body).accelerate(deltaV);
+      } else {
+        ((Spaceship) body).accelerate(deltaV);
+      }
+    }
+    return interactions;
+  }
+
+
+  /**
+   * @return the acceleration given by a mass at some distance, divided by
+   * the distance
+   */
+  private double attraction(double mass, double squaredDistance) {
+    double softened = squaredDistance + squaredSoftening;
+    return gravityConstant * mass / (softened * Math.sqrt(softened));
+  }
+
+
+  /**
+   * Same as Space.wrap, without a division, for differences between two
+   * coordinates in space, which are less than a size apart.
+   *
+   * @return the difference of two coordinates in space, to the nearest
+   * copy of the second
+   */
+  private static double wrap(double difference, double size, double halfSize) {
+    if (difference > halfSize) {
+      return difference - size;
+    }
+    if (difference < -halfSize) {
+      return difference + size;
+    }
+    return difference;
+  }
+
+
+  private boolean isLeaf(int from, int to, int depth) {
+    return to - from <= LEAF_SIZE || depth == MAX_DEPTH;
+  }
+
+
+  /**
+   * @return the end of the range of bodies lying in a quadrant of a node,
+   * and of the previous quadrants, found by binary search on the codes
+   */
+  private int quadrantEnd(int from, int to, int depth, int quadrant) {
+    if (quadrant == 3) {
+      return to;
+    }
+    int shift = 2 * (MAX_DEPTH - depth - 1);
+    long prefix = (sortedCodes[from] >>> 32) >>> (shift + 2) << (shift + 2);
+    long bound = (prefix + ((long) (quadrant + 1) << shift)) << 32;
+    int low = from;
+    int high = to;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (sortedCodes[middle] < bound) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+
+  /**
+   * @return the Morton code of a position: the bits of its cell coordinates
+   * at the deepest level, interleaved
+   */
+  private int mortonCode(double x, double y) {
+    int cells = 1 << MAX_DEPTH;
+    int column = Math.min(cells - 1, Math.max(0, (int) (x / width * cells)));
+    int row = Math.min(cells - 1, Math.max(0, (int) (y / height * cells)));
+    return spreadBits(column) | (spreadBits(row) << 1);
+  }
+
+  /**
+   * @return the bits of a number, separated by zeros
+   */
+  private static int spreadBits(int bits) {
+    bits = (bits | (bits << 8)) & 0x00ff00ff;
+    bits = (bits | (bits << 4)) & 0x0f0f0f0f;
+    bits = (bits | (bits << 2)) & 0x33333333;
+    bits = (bits | (bits << 1)) & 0x55555555;
+    return bits;
+  }
+
+
+  private void setNode(int index, int from, int to, int depth) {
+    nodeFrom[index] = from;
+    nodeTo[index] = to;
+    nodeDepth[index] = depth;
+  }
+
+  private void setMass(int index, double mass, double weightedX, double weightedY) {
+    nodeMass[index] = mass;
+    nodeX[index] = (mass > 0) ? weightedX / mass : 0;
+    nodeY[index] = (mass > 0) ? weightedY / mass : 0;
+  }
+
+  private void ensureNodeCapacity(int capacity) {
+    if (capacity <= nodeFrom.length) {
+      return;
+    }
+    capacity = Math.max(capacity, 2 * nodeFrom.length);
+    nodeFrom = new int[capacity];
+    nodeTo = new int[capacity];
+    nodeNext = new int[capacity];
+    nodeDepth = new int[capacity];
+    nodeMass = new double[capacity];
+    nodeX = new double[capacity];
+    nodeY = new double[capacity];
+  }
+
+
+  // bodies per leaf of the tree, attracting the others one by one
+  private static final int LEAF_SIZE = 8;
+
+  // depth of the deepest nodes, whose cells hold equal Morton codes
+  private static final int MAX_DEPTH = 15;
+
+  // depth of the subtrees built in parallel, up to 16 of them
+  private static final int PARALLEL_DEPTH = 2;
+
+  // number of bodies whose accelerations are computed by one task
+  private static final int FORCE_CHUNK_SIZE = 512;
+}
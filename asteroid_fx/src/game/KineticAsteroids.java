@@ -0,0 +1,382 @@
+package game;
+
+import inspector.Hidden;
+import tools.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.BiConsumer;
+
+/**
+ * Simulates asteroids analytically: each asteroid follows the clock of
+ * this object, so that its position is computed from its initial state
+ * only when asked for. Nothing is done for an asteroid at each update;
+ * the work happens at predicted events, kept in a priority queue as in a
+ * kinetic data structure.
+ * <p>
+ * Two kinds of events are predicted. An asteroid crossing the border of
+ * a cell of a grid over space updates the grid, which finds the
+ * asteroids near an area. Two asteroids whose bounding circles start to
+ * touch are reported to a contact handler, which may change their
+ * velocities, as Space does to make them bounce. Contacts are predicted
+ * between asteroids in neighboring cells, each time one of them changes
+ * cell or velocity; predictions involving an asteroid that changed since
+ * are ignored. Cells are at least twice as large as asteroids, so that no
+ * contact is missed.
+ */
+public class KineticAsteroids {
+
+  /**
+   * An asteroid, with the unbounded cell coordinates of its center and
+   * its position, in unbounded coordinates, when it last changed velocity.
+   */
+  private static class Body {
+    final Asteroid asteroid;
+    double originX;
+    double originY;
+    double originTime;
+    long column;
+    long row;
+    int version = 0; // incremented at each change of cell or velocity
+
+    Body(Asteroid asteroid, double originTime) {
+      this.asteroid = asteroid;
+      this.originX = asteroid.getPosition().getX();
+      this.originY = asteroid.getPosition().getY();
+      this.originTime = originTime;
+    }
+
+    /**
+     * Starts again from the current position, before a change of velocity.
+     */
+    void restart(double time) {
+      originX = xAt(time);
+      originY = yAt(time);
+      originTime = time;
+    }
+
+    double xAt(double time) {
+      return originX + asteroid.getVelocity().getX() * (time - originTime);
+    }
+
+    double yAt(double time) {
+      return originY + asteroid.getVelocity().getY() * (time - originTime);
+    }
+  }
+
+  private static final int CROSSING_X = 0;
+  private static final int CROSSING_Y = 1;
+  private static final int CONTACT = 2;
+
+  private static class Event implements Comparable<Event> {
+    final double time;
+    final long order;
+    final int kind;
+    final Body first;
+    final int firstVersion;
+    final Body second; // null for crossings
+    final int secondVersion;
+
+    Event(double time, long order, int kind, Body first, Body second) {
+      this.time = time;
+      this.order = order;
+      this.kind = kind;
+      this.first = first;
+      this.firstVersion = first.version;
+      this.second = second;
+      this.secondVersion = (second == null) ? 0 : second.version;
+    }
+
+    boolean isValid() {
+      return first.version == firstVersion
+        && (second == null || second.version == secondVersion);
+    }
+
+    @Override
+    public int compareTo(Event other) {
+      int comparison = Double.compare(time, other.time);
+      return (comparison != 0) ? comparison : Long.compare(order, other.order);
+    }
+  }
+
+  private final double width;
+  private final double height;
+  private final int columns;
+  private final int rows;
+  private final double cellWidth;
+  private final double cellHeight;
+  @Hidden private final List<List<Body>> cells;
+  @Hidden private final PriorityQueue<Event> events = new PriorityQueue<>();
+  private long eventOrder = 0;
+
+  private double time = 0;
+  private double maxRadius = 0;
+  private long processedEventCount = 0;
+  private long staleEventCount = 0;
+  private long contactCount = 0;
+
+  private BiConsumer<Asteroid, Asteroid> contactHandler = (first, second) -> { };
+
+
+  /**
+   * @param width the width of space
+   * @param height the height of space
+   * @param cellSize the approximate size of the cells, adjusted so that
+   *                 cells cover space exactly
+   */
+  public KineticAsteroids(double width, double height, double cellSize) {
+    this.width = width;
+    this.height = height;
+    this.columns = Math.max(1, (int) Math.round(width / cellSize));
+    this.rows = Math.max(1, (int) Math.round(height / cellSize));
+    this.cellWidth = width / columns;
+    this.cellHeight = height / rows;
+    this.cells = new ArrayList<>(columns * rows);
+    for (int i = 0; i < columns * rows; i++) {
+      cells.add(new ArrayList<>());
+    }
+  }
+
+
+  /**
+   * @param contactHandler called with the two asteroids of each contact,
+   *                       when it happens; it may change their velocities
+   *                       with Asteroid.accelerate
+   */
+  public void setContactHandler(BiConsumer<Asteroid, Asteroid> contactHandler) {
+    this.contactHandler = contactHandler;
+  }
+
+  /**
+   * @return the current time of the simulation, in seconds.
+   */
+  public double getTime() {
+    return time;
+  }
+
+  public long getProcessedEventCount() {
+    return processedEventCount;
+  }
+
+  public long getContactCount() {
+    return contactCount;
+  }
+
+  public int getPendingEventCount() {
+    return events.size();
+  }
+
+
+  /**
+   * Starts simulating an asteroid: from now on it follows the clock of
+   * this object.
+   *
+   * @param asteroid an asteroid, at its position at the current time
+   */
+  public void add(Asteroid asteroid) {
+    if (2 * asteroid.getBoundingRadius() > Math.min(cellWidth, cellHeight)) {
+      throw new IllegalArgumentException("asteroid larger than half a cell");
+    }
+    maxRadius = Math.max(maxRadius, asteroid.getBoundingRadius());
+    Body body = new Body(asteroid, time);
+    asteroid.followClock(this::getTime);
+    body.column = (long) Math.floor(body.originX / cellWidth);
+    body.row = (long) Math.floor(body.originY / cellHeight);
+    cell(body).add(body);
+    scheduleCrossing(body);
+    predictContacts(body);
+  }
+
+
+  /**
+   * Advances the clock, handling the events happening until then in order.
+   *
+   * @param newTime the new time, in seconds
+   */
+  public void advance(double newTime) {
+    while (!events.isEmpty() && events.peek().time <= newTime) {
+      Event event = events.poll();
+      if (!event.isValid()) {
+        staleEventCount++;
+        continue;
+      }
+      time = event.time;
+      processedEventCount++;
+      handle(event);
+    }
+    time = newTime;
+  }
+
+
+  /**
+   * Finds the asteroids which may meet an area: those whose center lies in
+   * a cell near the area, extended by the largest bounding radius. Each
+   * asteroid is given once, even if the area is larger than space.
+   *
+   * @param minX the left of the area, possibly beyond the borders of space
+   * @param minY the top of the area, possibly beyond the borders of space
+   * @param maxX the right of the area
+   * @param maxY the bottom of the area
+   * @param result the list receiving the asteroids, cleared first
+   */
+  public void findAsteroids(double minX, double minY, double maxX, double maxY,
+                            List<Asteroid> result) {
+    result.clear();
+    int fromColumn = (int) Math.floor((minX - maxRadius) / cellWidth);
+    int toColumn = (int) Math.floor((maxX + maxRadius) / cellWidth);
+    if (toColumn - fromColumn >= columns) {
+      fromColumn = 0;
+      toColumn = columns - 1;
+    }
+    int fromRow = (int) Math.floor((minY - maxRadius) / cellHeight);
+    int toRow = (int) Math.floor((maxY + maxRadius) / cellHeight);
+    if (toRow - fromRow >= rows) {
+      fromRow = 0;
+      toRow = rows - 1;
+    }
+    for (int row = fromRow; row <= toRow; row++) {
+      for (int column = fromColumn; column <= toColumn; column++) {
+        for (Body body : cells.get(cellIndex(column, row))) {
+          result.add(body.asteroid);
+        }
+      }
+    }
+  }
+
+
+  private void handle(Event event) {
+    Body body = event.first;
+    switch (event.kind) {
+      case CROSSING_X:
+      case CROSSING_Y:
+        cell(body).remove(body);
+        if (event.kind == CROSSING_X) {
+          body.column += (body.asteroid.getVelocity().getX() > 0) ? 1 : -1;
+        } else {
+          body.row += (body.asteroid.getVelocity().getY() > 0) ? 1 : -1;
+        }
+        body.version++;
+        cell(body).add(body);
+        scheduleCrossing(body);
+        predictContacts(body);
+        break;
+      case CONTACT:
+        contactCount++;
+        Body other = event.second;
+        body.restart(time);
+        other.restart(time);
+        Vector velocity = body.asteroid.getVelocity();
+        Vector otherVelocity = other.asteroid.getVelocity();
+        contactHandler.accept(body.asteroid, other.asteroid);
+        if (body.asteroid.getVelocity() != velocity) {
+          changeVelocity(body);
+        }
+        if (other.asteroid.getVelocity() != otherVelocity) {
+          changeVelocity(other);
+        }
+        break;
+    }
+  }
+
+
+  /**
+   * Forgets the predictions of an asteroid whose velocity changed, and
+   * makes new ones.
+   */
+  private void changeVelocity(Body body) {
+    body.version++;
+    scheduleCrossing(body);
+    predictContacts(body);
+  }
+
+
+  /**
+   * Schedules the next time the center of an asteroid leaves its cell.
+   * Cell borders are computed in unbounded coordinates, so that each
+   * crossing strictly moves the asteroid to the next cell.
+   */
+  private void scheduleCrossing(Body body) {
+    Vector velocity = body.asteroid.getVelocity();
+    double crossingX = crossingTime(body.originX, velocity.getX(),
+      body.column, cellWidth, body.originTime);
+    double crossingY = crossingTime(body.originY, velocity.getY(),
+      body.row, cellHeight, body.originTime);
+    if (crossingX <= crossingY && crossingX < Double.POSITIVE_INFINITY) {
+      schedule(crossingX, CROSSING_X, body, null);
+    } else if (crossingY < Double.POSITIVE_INFINITY) {
+      schedule(crossingY, CROSSING_Y, body, null);
+    }
+  }
+
+  private static double crossingTime(double origin, double speed, long cell,
+                                     double cellSize, double originTime) {
+    if (speed == 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+    double border = (speed > 0) ? (cell + 1) * cellSize : cell * cellSize;
+    return originTime + (border - origin) / speed;
+  }
+
+
+  /**
+   * Predicts the contacts of an asteroid with the asteroids of its cell
+   * and of the neighboring cells.
+   */
+  private void predictContacts(Body body) {
+    int columnSpan = Math.min(3, columns);
+    int rowSpan = Math.min(3, rows);
+    for (int row = 0; row < rowSpan; row++) {
+      for (int column = 0; column < columnSpan; column++) {
+        int index = cellIndex(body.column - columnSpan / 2 + column,
+          body.row - rowSpan / 2 + row);
+        for (Body other : cells.get(index)) {
+          if (other != body) {
+            predictContact(body, other);
+          }
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Schedules the time at which the bounding circles of two asteroids
+   * start touching, if they approach each other and are not touching yet.
+   */
+  private void predictContact(Body first, Body second) {
+    double dx = Space.wrap(second.xAt(time) - first.xAt(time), width);
+    double dy = Space.wrap(second.yAt(time) - first.yAt(time), height);
+    Vector firstVelocity = first.asteroid.getVelocity();
+    Vector secondVelocity = second.asteroid.getVelocity();
+    double vx = secondVelocity.getX() - firstVelocity.getX();
+    double vy = secondVelocity.getY() - firstVelocity.getY();
+    double distance = first.asteroid.getBoundingRadius() + second.asteroid.getBoundingRadius();
+    double a = vx * vx + vy * vy;
+    double b = 2 * (dx * vx + dy * vy);
+    double c = dx * dx + dy * dy - distance * distance;
+    if (c <= 0 || b >= 0) {
+      return; // already touching, or moving apart
+    }
+    double discriminant = b * b - 4 * a * c;
+    if (discriminant < 0) {
+      return; // passing each other
+    }
+    double delay = (-b - Math.sqrt(discriminant)) / (2 * a);
+    schedule(time + delay, CONTACT, first, second);
+  }
+
+
+  private void schedule(double eventTime, int kind, Body first, Body second) {
+    events.add(new Event(eventTime, eventOrder++, kind, first, second));
+  }
+
+  private List<Body> cell(Body body) {
+    return cells.get(cellIndex(body.column, body.row));
+  }
+
+  private int cellIndex(long column, long row) {
+    return (int) Math.floorMod(row, (long) rows) * columns
+      + (int) Math.floorMod(column, (long) columns);
+  }
+}
@@ -0,0 +1,293 @@
+package game;
+
+import tools.SimulationMath;
+
+/**
+ * Finds whether two asteroids overlap, and how, with the separating axis
+ * theorem on the convex hulls of their shapes: two convex polygons are
+ * disjoint if and only if the normal of one of their edges separates
+ * their projections.
+ * <p>
+ * When they overlap, the edge of least penetration is the reference face;
+ * the edge of the other hull most facing it is clipped against the sides
+ * of the reference face, and its end points below the face are the
+ * contact points. This is the usual polygon manifold of rigid body
+ * engines.
+ * <p>
+ * The axis found is kept in the manifold of the pair and tested first
+ * the next time: asteroids near each other usually stay separated by the
+ * same axis for many frames. Space being toric, the second asteroid is
+ * taken at its copy nearest to the first. Vertices are written into
+ * buffers of this object, so that nothing is allocated; an object must
+ * therefore be used by one thread at a time.
+ */
+public class NarrowPhase {
+
+  private final double width;
+  private final double height;
+
+  /* the vertices of both hulls in space, grown when needed */
+  private double[] firstXs = new double[INITIAL_VERTEX_CAPACITY];
+  private double[] firstYs = new double[INITIAL_VERTEX_CAPACITY];
+  private double[] secondXs = new double[INITIAL_VERTEX_CAPACITY];
+  private double[] secondYs = new double[INITIAL_VERTEX_CAPACITY];
+  private int firstCount;
+  private int secondCount;
+
+  /* the edge of greatest separation found by the last call to maxSeparation */
+  private int bestEdge;
+
+  /* the incident edge clipped against the reference face */
+  private final double[] clipXs = new double[2];
+  private final double[] clipYs = new double[2];
+
+  private long earlyExitCount = 0;
+
+
+  /**
+   * @param width the width of space
+   * @param height the height of space
+   */
+  public NarrowPhase(double width, double height) {
+    this.width = width;
+    this.height = height;
+  }
+
+
+  /**
+   * @return the number of pairs found separated by the axis kept from the
+   * previous test, without testing the others.
+   */
+  public long getEarlyExitCount() {
+    return earlyExitCount;
+  }
+
+
+  /**
+   * Tests whether two asteroids overlap, and fills their manifold.
+   *
+   * @param first an asteroid
+   * @param second another asteroid
+   * @param manifold the manifold of the pair, keeping the last axis
+   * @return whether the asteroids overlap
+   */
+  public boolean collide(Asteroid first, Asteroid second, ContactManifold manifold) {
+    loadHulls(first, second);
+    if (manifold.getAxisEdge() >= 0 && isSeparatedByCachedAxis(manifold)) {
+      earlyExitCount++;
+      manifold.setSeparated();
+      return false;
+    }
+    double firstSeparation =
+      maxSeparation(firstXs, firstYs, firstCount, secondXs, secondYs, secondCount);
+    int firstEdge = bestEdge;
+    if (firstSeparation > 0) {
+      manifold.setAxis(false, firstEdge);
+      manifold.setSeparated();
+      return false;
+    }
+    double secondSeparation =
+      maxSeparation(secondXs, secondYs, secondCount, firstXs, firstYs, firstCount);
+    int secondEdge = bestEdge;
+    if (secondSeparation > 0) {
+      manifold.setAxis(true, secondEdge);
+      manifold.setSeparated();
+      return false;
+    }
+    // prefer the first hull as reference, unless clearly worse
+    if (secondSeparation > RELATIVE_TOLERANCE * firstSeparation + ABSOLUTE_TOLERANCE) {
+      manifold.setAxis(true, secondEdge);
+      buildManifold(secondXs, secondYs, secondCount, secondEdge,
+        firstXs, firstYs, firstCount, true, manifold);
+    } else {
+      manifold.setAxis(false, firstEdge);
+      buildManifold(firstXs, firstYs, firstCount, firstEdge,
+        secondXs, secondYs, secondCount, false, manifold);
+    }
+    return manifold.isTouching();
+  }
+
+
+  /**
+   * Writes the vertices of both hulls, the second one at its copy nearest
+   * to the first.
+   */
+  private void loadHulls(Asteroid first, Asteroid second) {
+    int firstSize = first.getLocalHull().nbVertices();
+    int secondSize = second.getLocalHull().nbVertices();
+    if (firstSize > firstXs.length) {
+      firstXs = new double[firstSize];
+      firstYs = new double[firstSize];
+    }
+    if (secondSize > secondXs.length) {
+      secondXs = new double[secondSize];
+      secondYs = new double[secondSize];
+    }
+    double x = first.getX();
+    double y = first.getY();
+    double dx = Space.wrap(second.getX() - x, width);
+    double dy = Space.wrap(second.getY() - y, height);
+    firstCount = first.getHullVertices(x, y, firstXs, firstYs);
+    secondCount = second.getHullVertices(x + dx, y + dy, secondXs, secondYs);
+  }
+
+
+  private boolean isSeparatedByCachedAxis(ContactManifold manifold) {
+    int edge = manifold.getAxisEdge();
+    if (manifold.isAxisOnSecond()) {
+      return edge < secondCount
+        && separation(secondXs, secondYs, secondCount, edge, firstXs, firstYs, firstCount) > 0;
+    }
+    return edge < firstCount
+      && separation(firstXs, firstYs, firstCount, edge, secondXs, secondYs, secondCount) > 0;
+  }
+
+
+  /**
+   * Finds the edge of a hull whose normal best separates another hull.
+   * The edge is left in bestEdge.
+   *
+   * @return the largest separation, negative when all the normals overlap
+   */
+  private double maxSeparation(double[] xs, double[] ys, int count,
+                               double[] otherXs, double[] otherYs, int otherCount) {
+    double maxSeparation = Double.NEGATIVE_INFINITY;
+    bestEdge = 0;
+    for (int edge = 0; edge < count; edge++) {
+      double separation = separation(xs, ys, count, edge, otherXs, otherYs, otherCount);
+      if (separation > maxSeparation) {
+        maxSeparation = separation;
+        bestEdge = edge;
+        if (separation > 0) {
+          break;
+        }
+      }
+    }
+    return maxSeparation;
+  }
+
+
+  /**
+   * @return the distance from an edge of a hull to the deepest vertex of
+   * another hull, along the outer normal of the edge; positive when the
+   * edge separates them
+   */
+  private static double separation(double[] xs, double[] ys, int count, int edge,
+                                   double[] otherXs, double[] otherYs, int otherCount) {
+    int next = (edge + 1 == count) ? 0 : edge + 1;
+    double edgeX = xs[next] - xs[edge];
+    double edgeY = ys[next] - ys[edge];
+    double length = SimulationMath.hypot(edgeX, edgeY);
+    double normalX = edgeY / length;
+    double normalY = -edgeX / length;
+    double min = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < otherCount; i++) {
+      double distance = normalX * (otherXs[i] - xs[edge]) + normalY * (otherYs[i] - ys[edge]);
+      min = Math.min(min, distance);
+    }
+    return min;
+  }
+
+
+  /**
+   * Clips the incident edge of a hull against the reference edge of the
+   * other one, and fills the manifold with the points below the reference
+   * face.
+   *
+   * @param isFlipped whether the reference hull is the second asteroid, so
+   *                  that the normal must be reversed
+   */
+  private void buildManifold(double[] xs, double[] ys, int count, int edge,
+                             double[] incidentXs, double[] incidentYs, int incidentCount,
+                             boolean isFlipped, ContactManifold manifold) {
+    int next = (edge + 1 == count) ? 0 : edge + 1;
+    double tangentX = xs[next] - xs[edge];
+    double tangentY = ys[next] - ys[edge];
+    double length = SimulationMath.hypot(tangentX, tangentY);
+    tangentX /= length;
+    tangentY /= length;
+    double normalX = tangentY;
+    double normalY = -tangentX;
+
+    // the incident edge: the one whose normal is most opposed to the reference normal
+    int incident = 0;
+    double minDot = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < incidentCount; i++) {
+      int j = (i + 1 == incidentCount) ? 0 : i + 1;
+      double dot = normalX * (incidentYs[j] - incidentYs[i])
+        - normalY * (incidentXs[j] - incidentXs[i]);
+      dot /= SimulationMath.hypot(incidentXs[j] - incidentXs[i], incidentYs[j] - incidentYs[i]);
+      if (dot < minDot) {
+        minDot = dot;
+        incident = i;
+      }
+    }
+    int incidentNext = (incident + 1 == incidentCount) ? 0 : incident + 1;
+    clipXs[0] = incidentXs[incident];
+    clipYs[0] = incidentYs[incident];
+    clipXs[1] = incidentXs[incidentNext];
+    clipYs[1] = incidentYs[incidentNext];
+
+    // clip against the side planes of the reference edge
+    double start = tangentX * xs[edge] + tangentY * ys[edge];
+    double end = tangentX * xs[next] + tangentY * ys[next];
+    if (!clip(-tangentX, -tangentY, -start) || !clip(tangentX, tangentY, end)) {
+      manifold.setSeparated();
+      return;
+    }
+
+    double face = normalX * xs[edge] + normalY * ys[edge];
+    double depth = 0;
+    int below = 0;
+    for (int i = 0; i < 2; i++) {
+      double separation = normalX * clipXs[i] + normalY * clipYs[i] - face;
+      if (separation <= 0) {
+        depth = Math.max(depth, -separation);
+        below++;
+      }
+    }
+    if (below == 0) {
+      manifold.setSeparated();
+      return;
+    }
+    double sign = isFlipped ? -1 : 1;
+    manifold.setContact(sign * normalX, sign * normalY, depth);
+    for (int i = 0; i < 2; i++) {
+      if (normalX * clipXs[i] + normalY * clipYs[i] <= face) {
+        manifold.addPoint(clipXs[i], clipYs[i]);
+      }
+    }
+  }
+
+
+  /**
+   * Clips the segment in clipXs, clipYs to the half plane where
+   * direction . point is at most offset.
+   *
+   * @return whether some of the segment is left
+   */
+  private boolean clip(double directionX, double directionY, double offset) {
+    double first = directionX * clipXs[0] + directionY * clipYs[0] - offset;
+    double second = directionX * clipXs[1] + directionY * clipYs[1] - offset;
+    if (first > 0 && second > 0) {
+      return false;
+    }
+    if (first > 0 || second > 0) {
+      double t = first / (first - second);
+      double x = clipXs[0] + t * (clipXs[1] - clipXs[0]);
+      double y = clipYs[0] + t * (clipYs[1] - clipYs[0]);
+      int outside = (first > 0) ? 0 : 1;
+      clipXs[outside] = x;
+      clipYs[outside] = y;
+    }
+    return true;
+  }
+
+
+  // number of vertices the buffers hold before growing
+  private static final int INITIAL_VERTEX_CAPACITY = 16;
+
+  // the second hull is only taken as reference if clearly better, for stable contacts
+  private static final double RELATIVE_TOLERANCE = 0.95;
+  private static final double ABSOLUTE_TOLERANCE = 0.01;
+}
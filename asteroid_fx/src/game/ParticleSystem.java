@@ -0,0 +1,223 @@
+package game;
+
+import inspector.Hidden;
+import tools.SimulationMath;
+
+import java.util.Random;
+
+/**
+ * A particle system holds many short-lived visual particles, like engine
+ * flames or debris. Particles are stored as a struct of arrays in a ring
+ * buffer of fixed capacity: the i-th particle is described by the i-th
+ * cell of each array. Nothing is allocated after construction. When the
+ * buffer is full, emitting a new particle drops the oldest one.
+ */
+public class ParticleSystem {
+
+  /** Color index of the hot core of engine flames. */
+  public static final byte COLOR_FLAME_CORE = 0;
+  /** Color index of the outer part of engine flames. */
+  public static final byte COLOR_FLAME = 1;
+  /** Color index of asteroid debris. */
+  public static final byte COLOR_DEBRIS = 2;
+  /** The number of color indices. */
+  public static final int COLOR_COUNT = 3;
+
+  public static final int DEFAULT_CAPACITY = 50_000;
+
+  private final Random gen;
+
+  private final int capacity;
+
+  /**
+   * The index of the oldest particle in the ring buffer.
+   */
+  private int first = 0;
+
+  /**
+   * The number of particles in the ring buffer, some of them may be dead.
+   */
+  private int count = 0;
+
+  @Hidden private final float[] xs;
+  @Hidden private final float[] ys;
+  @Hidden private final float[] vxs;
+  @Hidden private final float[] vys;
+  @Hidden private final float[] ages;
+  @Hidden private final float[] lifetimes;
+  @Hidden private final byte[] colors;
+
+
+  public ParticleSystem() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity the maximum number of particles alive at the same time.
+   */
+  public ParticleSystem(int capacity) {
+    this(capacity, new Random());
+  }
+
+  /**
+   * @param capacity the maximum number of particles alive at the same time.
+   * @param seed the seed of the random spread of the particles, for
+   *             particles emitted the same way at each run.
+   */
+  public ParticleSystem(int capacity, long seed) {
+    this(capacity, new Random(seed));
+  }
+
+  private ParticleSystem(int capacity, Random gen) {
+    this.capacity = capacity;
+    this.gen = gen;
+    xs = new float[capacity];
+    ys = new float[capacity];
+    vxs = new float[capacity];
+    vys = new float[capacity];
+    ages = new float[capacity];
+    lifetimes = new float[capacity];
+    colors = new byte[capacity];
+  }
+
+
+  /**
+   * @return the number of particles in the buffer (some may be dead).
+   */
+  public int size() {
+    return count;
+  }
+
+  /**
+   * @return the maximum number of particles.
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * @param rank the rank of a particle, from 0 (the oldest) to size() - 1.
+   * @return the index in the arrays of the particle with that rank.
+   */
+  public int index(int rank) {
+    int index = first + rank;
+    return (index >= capacity) ? index - capacity : index;
+  }
+
+  public float getX(int index) {
+    return xs[index];
+  }
+
+  public float getY(int index) {
+    return ys[index];
+  }
+
+  public byte getColor(int index) {
+    return colors[index];
+  }
+
+  public boolean isAlive(int index) {
+    return ages[index] < lifetimes[index];
+  }
+
+  /**
+   * @param index the index of a particle in the arrays.
+   * @return the fraction of its lifetime the particle has already lived.
+   */
+  public float getAgeRatio(int index) {
+    return ages[index] / lifetimes[index];
+  }
+
+
+  /**
+   * Adds a particle, dropping the oldest one if the buffer is full.
+   *
+   * @param x the horizontal position
+   * @param y the vertical position
+   * @param vx the horizontal velocity in pixels per second
+   * @param vy the vertical velocity in pixels per second
+   * @param lifetime how long the particle lives, in seconds
+   * @param color the color index of the particle
+   */
+  public void emit(double x, double y, double vx, double vy,
+                   double lifetime, byte color) {
+    int index;
+    if (count == capacity) {
+      index = first;
+      first = index(1);
+    } else {
+      index = index(count);
+      count++;
+    }
+    xs[index] = (float) x;
+    ys[index] = (float) y;
+    vxs[index] = (float) vx;
+    vys[index] = (float) vy;
+    ages[index] = 0;
+    lifetimes[index] = (float) lifetime;
+    colors[index] = color;
+  }
+
+
+  /**
+   * Emits particles in a cone, from a given point.
+   *
+   * @param x the horizontal position of the source
+   * @param y the vertical position of the source
+   * @param angle the direction of the cone in degree
+   * @param spread the half-aperture of the cone in degree
+   * @param speed the mean speed of the particles
+   * @param lifetime the mean lifetime of the particles
+   * @param number how many particles to emit
+   * @param color the color index of the particles
+   */
+  public void emitCone(double x, double y, double angle, double spread,
+                       double speed, double lifetime, int number, byte color) {
+    for (int i = 0; i < number; i++) {
+      double particleAngle = angle + (2 * gen.nextDouble() - 1) * spread;
+      double particleSpeed = speed * (0.5 + gen.nextDouble());
+      emit(
+        x, y,
+        SimulationMath.cos(particleAngle) * particleSpeed,
+        SimulationMath.sin(particleAngle) * particleSpeed,
+        lifetime * (0.5 + gen.nextDouble()),
+        color);
+    }
+  }
+
+
+  /**
+   * Emits debris in every direction, for instance when an asteroid breaks.
+   *
+   * @param x the horizontal position of the explosion
+   * @param y the vertical position of the explosion
+   * @param speed the mean speed of the debris
+   * @param number how many particles to emit
+   */
+  public void explode(double x, double y, double speed, int number) {
+    emitCone(x, y, 0, 180, speed, 1, number, COLOR_DEBRIS);
+  }
+
+
+  /**
+   * Moves and ages every particle, then forgets the oldest particles
+   * which are dead.
+   *
+   * @param dt the time delay to simulate.
+   */
+  public void update(double dt) {
+    float delay = (float) dt;
+    int index = first;
+    for (int rank = 0; rank < count; rank++) {
+      xs[index] += vxs[index] * delay;
+      ys[index] += vys[index] * delay;
+      ages[index] += delay;
+      index++;
+      if (index == capacity) index = 0;
+    }
+    while (count > 0 && !isAlive(first)) {
+      first = index(1);
+      count--;
+    }
+  }
+}
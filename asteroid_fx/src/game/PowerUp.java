@@ -0,0 +1,61 @@
+package game;
+
+import tools.Vector;
+
+/**
+ * Models a pickup floating in space. When the spaceship gets close enough
+ * to a power-up, it collects it and the corresponding effect is applied.
+ */
+public class PowerUp {
+
+  /**
+   * How close (in pixels) the center of the spaceship must be from the
+   * center of a power-up to collect it.
+   */
+  public static final double PICKUP_DISTANCE = 30;
+
+  /**
+   * The position of the center of the power-up.
+   */
+  private final Vector position;
+
+  /**
+   * The kind of the power-up, defining its effect.
+   */
+  private final PowerUpType type;
+
+
+  /**
+   * @param position the position of the center of the power-up
+   * @param type the kind of the power-up
+   */
+  public PowerUp(Vector position, PowerUpType type) {
+    this.position = position;
+    this.type = type;
+  }
+
+  /**
+   * @return the position of the center of the power-up.
+   */
+  public Vector getPosition() {
+    return position;
+  }
+
+  /**
+   * @return the kind of the power-up.
+   */
+  public PowerUpType getType() {
+    return type;
+  }
+
+  /**
+   * @param point an arbitrary point (usually the center of the spaceship)
+   * @return whether an object centered at the point can collect this power-up,
+   * from the nearest copy of the power-up across the borders of space.
+   */
+  public boolean isCollectableFrom(Vector point) {
+    double dx = Space.wrap(point.getX() - position.getX(), Space.SPACE_WIDTH);
+    double dy = Space.wrap(point.getY() - position.getY(), Space.SPACE_HEIGHT);
+    return dx * dx + dy * dy < PICKUP_DISTANCE * PICKUP_DISTANCE;
+  }
+}
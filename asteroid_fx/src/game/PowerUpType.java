@@ -0,0 +1,19 @@
+package game;
+
+/**
+ * The different kinds of pickups that may appear in space.
+ */
+public enum PowerUpType {
+  /** Adds 100 points to the score. */
+  ADD_100,
+  /** Adds 500 points to the score. */
+  ADD_500,
+  /** Multiplies the points earned by 5 for a limited time. */
+  MULTIPLIER_5,
+  /** Fills the fuel tank of the spaceship. */
+  FULL_FUEL,
+  /** Adds some fuel to the tank of the spaceship. */
+  PARTIAL_FUEL,
+  /** Upgrades the weapon of the spaceship for a limited time. */
+  UPGRADE
+}
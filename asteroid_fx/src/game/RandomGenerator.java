@@ -14,7 +14,7 @@ import java.util.Random;
  */
 public class RandomGenerator {
 
-  private static final Random gen = new Random();
+  private final Random gen;
 
   // Asteroid parameters
   private static final double STANDARD_ANGULAR_VELOCITY = 10;
@@ -27,6 +27,23 @@ public class RandomGenerator {
   private static final double MAX_CENTER_TO_VERTEX_DISTANCE = 20;
 
 
+  /**
+   * Creates a generator giving different values at each run.
+   */
+  public RandomGenerator() {
+    this.gen = new Random();
+  }
+
+  /**
+   * Creates a generator giving the same values at each run.
+   *
+   * @param seed the seed of the sequence of random values
+   */
+  public RandomGenerator(long seed) {
+    this.gen = new Random(seed);
+  }
+
+
   /**
    * Generates a random asteroid.
    *
@@ -83,6 +100,15 @@ public class RandomGenerator {
   }
 
 
+  /** Generates a random power-up at a random position.
+   * @return the generated power-up
+   */
+  public PowerUp powerUp() {
+    PowerUpType[] types = PowerUpType.values();
+    return new PowerUp(position(), types[gen.nextInt(types.length)]);
+  }
+
+
   /**
    * @return a random position in space
    */
@@ -0,0 +1,92 @@
+package game;
+
+import java.util.PriorityQueue;
+
+/**
+ * A scheduler runs actions at given instants of the game time. Pending
+ * actions are kept in a priority queue ordered by due time, so that
+ * advancing the clock only looks at the actions that are actually due,
+ * whatever the number of pending actions.
+ */
+public class Scheduler {
+
+  /**
+   * An action waiting to be run at a given time.
+   */
+  private static class Event implements Comparable<Event> {
+
+    private final double time;
+    private final long order;
+    private final Runnable action;
+
+    private Event(double time, long order, Runnable action) {
+      this.time = time;
+      this.order = order;
+      this.action = action;
+    }
+
+    @Override
+    public int compareTo(Event other) {
+      int byTime = Double.compare(time, other.time);
+      return (byTime != 0) ? byTime : Long.compare(order, other.order);
+    }
+  }
+
+
+  private final PriorityQueue<Event> events = new PriorityQueue<>();
+
+  /**
+   * The current game time, in seconds.
+   */
+  private double time = 0;
+
+  /**
+   * Counts scheduled actions, so that actions due at the same instant
+   * are run in the order they were scheduled.
+   */
+  private long scheduledCount = 0;
+
+
+  /**
+   * @return the current game time in seconds.
+   */
+  public double getTime() {
+    return time;
+  }
+
+  /**
+   * @return how many actions are waiting to be run.
+   */
+  public int pendingCount() {
+    return events.size();
+  }
+
+
+  /**
+   * Schedules an action to be run after some delay.
+   *
+   * @param delay the delay in seconds before running the action.
+   * @param action the action to run.
+   */
+  public void schedule(double delay, Runnable action) {
+    events.add(new Event(time + delay, scheduledCount++, action));
+  }
+
+
+  /**
+   * Advances the clock by a delay dt, and runs every action that becomes
+   * due, in chronological order. Actions scheduled while running due
+   * actions are run too if they fall within the delay.
+   *
+   * @param dt the time delay to simulate.
+   */
+  public void advance(double dt) {
+    double target = time + dt;
+    while (!events.isEmpty() && events.peek().time <= target) {
+      Event event = events.poll();
+      time = Math.max(time, event.time);
+      event.action.run();
+    }
+    time = target;
+  }
+}
@@ -1,10 +1,14 @@
 package game;
 
 
+import inspector.Hidden;
+import tools.SimulationMath;
 import tools.Vector;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 /**
  * A Space contains all the information determining the current state of
@@ -13,10 +17,19 @@ import java.util.List;
  */
 public class Space {
 
-  public static final double SPACE_WIDTH = 800;
-  public static final double SPACE_HEIGHT = 800;
+  /**
+   * The dimensions of space, 800 by 800 unless set by the system properties
+   * space.width and space.height, for worlds larger than the view.
+   */
+  public static final double SPACE_WIDTH = Integer.getInteger("space.width", 800);
+  public static final double SPACE_HEIGHT = Integer.getInteger("space.height", 800);
 
-  public static final int INITIAL_ASTEROID_COUNT = 3;
+  /**
+   * The number of asteroids at the start: 3 in a space of 800 by 800, and
+   * as many per unit of area in larger spaces.
+   */
+  public static final int INITIAL_ASTEROID_COUNT =
+    (int) Math.round(3 * SPACE_WIDTH * SPACE_HEIGHT / (800 * 800));
   public static final double INITIAL_ASTEROID_SIZE = 2;
 
   /**
@@ -26,55 +39,537 @@ public class Space {
    */
   private static final double STARTING_SECURITY_DISTANCE = 80;
 
+  /**
+   * Delay in seconds between the appearance of two power-ups.
+   */
+  private static final double POWERUP_SPAWN_DELAY = 8;
+
+  /**
+   * How long in seconds a power-up stays in space before vanishing.
+   */
+  private static final double POWERUP_LIFETIME = 12;
+
+  /**
+   * The maximum number of power-ups present in space at the same time.
+   */
+  private static final int MAX_POWERUP_COUNT = 4;
+
+  /**
+   * How long in seconds a timed power-up effect lasts.
+   */
+  private static final double POWERUP_EFFECT_DURATION = 10;
+
+  /**
+   * The number of exhaust particles emitted each second by the main engine.
+   */
+  private static final double EXHAUST_RATE = 400;
+
+  /**
+   * Distance in pixels from the center of the spaceship to its nozzle.
+   */
+  private static final double EXHAUST_OFFSET = 20;
+
+  /**
+   * The approximate size of the cells of the spatial index of asteroids.
+   */
+  private static final double GRID_CELL_SIZE = 128;
+
+  /**
+   * The approximate size of the chunks of space simulated or dormant.
+   */
+  private static final double CHUNK_SIZE = 1024;
+
+  /**
+   * Chunks closer to the spaceship than this distance are simulated,
+   * chunks farther than the sleep distance are dormant. The wake distance
+   * leaves a margin around the largest view of the game.
+   */
+  private static final double CHUNK_WAKE_DISTANCE = 1000;
+  private static final double CHUNK_SLEEP_DISTANCE = 1500;
+
+  /**
+   * The distances to the spaceship beyond which asteroids are updated
+   * every 2nd, 4th, 8th... tick, set by the system property
+   * space.updateRadii as a list separated by commas, like "600,900,1200".
+   * Empty by default, so all the asteroids are updated at each tick: with
+   * the far chunks dormant, only a few dozen asteroids are simulated, and
+   * deferring three quarters of them saves less than the noise of an
+   * update (see SpaceUpdateBenchmark).
+   */
+  private static final double[] UPDATE_RADII =
+    UpdateTiers.parseRadii(System.getProperty("space.updateRadii", ""));
+
+  /**
+   * Whether asteroids move analytically, between predicted events, instead
+   * of being updated at each frame. Set by the system property
+   * space.analytic.
+   */
+  private static final boolean IS_ANALYTIC = Boolean.getBoolean("space.analytic");
+
+  /**
+   * Whether asteroids and the spaceship attract each other. Set by the
+   * system property space.gravity; the opening angle of the approximation,
+   * in radians, by space.gravityOpeningAngle. All the asteroids are then
+   * simulated at each tick, as they no longer move in straight lines.
+   */
+  private static final boolean IS_GRAVITY_ON = Boolean.getBoolean("space.gravity");
+  private static final double GRAVITY_OPENING_ANGLE =
+    Double.parseDouble(System.getProperty("space.gravityOpeningAngle", "0.5"));
+
+  /**
+   * The acceleration in pixels per second squared given by a body of mass
+   * 1 at a distance of 1 pixel. Asteroids have their size as mass.
+   */
+  private static final double GRAVITY_CONSTANT = 2000;
+
+  /**
+   * A distance added to the distances between bodies, so that bodies
+   * passing through each other are not flung away.
+   */
+  private static final double GRAVITY_SOFTENING = 20;
+
+  private static final double SPACESHIP_MASS = 1;
+
+  /**
+   * Whether asteroids bounce off each other, true unless the system
+   * property space.collisions is false. Analytic asteroids bounce as their
+   * bounding circles, at the contacts predicted by KineticAsteroids; the
+   * others through the collision solver.
+   */
+  private static final boolean ARE_COLLISIONS_ON =
+    Boolean.parseBoolean(System.getProperty("space.collisions", "true"));
+
+  private static final double SCORE_MULTIPLIER = 5;
+  private static final double PARTIAL_FUEL = Spaceship.MAX_FUEL / 4;
+
   /**
    * An object able to create random items, like asteroids or positions.
    */
-  public static final RandomGenerator generator = new RandomGenerator();
+  public final RandomGenerator generator;
 
 
   private Spaceship spaceship;
   private List<Asteroid> asteroids;
+  private List<PowerUp> powerUps = new ArrayList<>();
   private double score = 0;
+  private boolean isGameOver = false;
+
+  /**
+   * The number of score multipliers currently active.
+   */
+  private int activeMultiplierCount = 0;
+
+  /**
+   * The asteroids near the spaceship, and the vertices of one of them,
+   * reused at each update to check whether the spaceship is hit.
+   */
+  @Hidden private final List<Asteroid> nearbyAsteroids = new ArrayList<>();
+  @Hidden private double[] vertexXs = new double[16];
+  @Hidden private double[] vertexYs = new double[16];
+
+  /**
+   * Runs delayed actions: power-up spawning, vanishing and effect expiry.
+   */
+  private final Scheduler scheduler = new Scheduler();
+
+  /**
+   * Visual particles: engine exhaust and debris.
+   */
+  private final ParticleSystem particles;
+
+  /**
+   * The fraction of exhaust particle not emitted yet, carried over to
+   * the next update.
+   */
+  private double pendingExhaust = 0;
+
+  /**
+   * The asteroids sorted by area, to find those near a position quickly.
+   */
+  private final AsteroidGrid asteroidGrid =
+    new AsteroidGrid(SPACE_WIDTH, SPACE_HEIGHT, GRID_CELL_SIZE);
+
+  /**
+   * The chunks of space, keeping the asteroids far from the spaceship
+   * dormant. Only the other asteroids are in the list of asteroids.
+   */
+  private final AsteroidChunks asteroidChunks = new AsteroidChunks(
+    SPACE_WIDTH, SPACE_HEIGHT, CHUNK_SIZE, CHUNK_WAKE_DISTANCE, CHUNK_SLEEP_DISTANCE);
+
+  /**
+   * Chooses which asteroids are updated at each tick.
+   */
+  private final UpdateTiers updateTiers =
+    new UpdateTiers(SPACE_WIDTH, SPACE_HEIGHT, IS_GRAVITY_ON ? new double[0] : UPDATE_RADII);
+
+  /**
+   * In gravity mode, the tree computing the attractions. Null otherwise.
+   */
+  private final GravityTree gravityTree = IS_GRAVITY_ON ?
+    new GravityTree(SPACE_WIDTH, SPACE_HEIGHT, GRAVITY_CONSTANT,
+      GRAVITY_SOFTENING, GRAVITY_OPENING_ANGLE) :
+    null;
+
+  /**
+   * Makes asteroids bounce off each other, when collisions are on.
+   */
+  private final CollisionSolver collisionSolver =
+    new CollisionSolver(SPACE_WIDTH, SPACE_HEIGHT);
+
+  /**
+   * In analytic mode, the engine moving all the asteroids and predicting
+   * their contacts. Null otherwise.
+   */
+  private final KineticAsteroids kineticAsteroids =
+    IS_ANALYTIC ? new KineticAsteroids(SPACE_WIDTH, SPACE_HEIGHT, GRID_CELL_SIZE) : null;
 
   public Spaceship getSpaceship() {
     return spaceship;
   }
 
+  /**
+   * @return the simulated asteroids, without those of dormant chunks. In
+   * analytic mode, all the asteroids.
+   */
   public List<Asteroid> getAsteroids() {
     return asteroids;
   }
 
+  public List<PowerUp> getPowerUps() {
+    return powerUps;
+  }
+
   public double getScore() {
     return score;
   }
 
+  public ParticleSystem getParticles() {
+    return particles;
+  }
+
+  /**
+   * Finds the asteroids which may meet an area, using the spatial index.
+   * Space being toric, the area may extend beyond its borders.
+   *
+   * @param minX the left of the area
+   * @param minY the top of the area
+   * @param maxX the right of the area
+   * @param maxY the bottom of the area
+   * @param result the list receiving the asteroids, cleared first
+   */
+  public void findAsteroids(double minX, double minY, double maxX, double maxY,
+                            List<Asteroid> result) {
+    if (IS_ANALYTIC) {
+      kineticAsteroids.findAsteroids(minX, minY, maxX, maxY, result);
+      return;
+    }
+    asteroidGrid.findAsteroids(minX, minY, maxX, maxY, result);
+  }
+
+  /**
+   * @return the object choosing which asteroids are updated at each tick.
+   */
+  public UpdateTiers getUpdateTiers() {
+    return updateTiers;
+  }
+
+  public CollisionSolver getCollisionSolver() {
+    return collisionSolver;
+  }
+
+  /**
+   * @return the tree computing the attractions in gravity mode, or null.
+   */
+  public GravityTree getGravityTree() {
+    return gravityTree;
+  }
+
+  /**
+   * @return the engine moving the asteroids in analytic mode, or null.
+   */
+  public KineticAsteroids getKineticAsteroids() {
+    return kineticAsteroids;
+  }
+
+  /**
+   * @return the factor applied to the points currently earned.
+   */
+  public double getScoreMultiplier() {
+    return (activeMultiplierCount > 0) ? SCORE_MULTIPLIER : 1;
+  }
+
   public Space() {
+    this(new Random().nextLong());
+  }
+
+  /**
+   * Creates a game whose random choices (asteroids, power-ups, particles)
+   * are the same at each run for the same seed, so that the same inputs
+   * give the same game, for tests and replays.
+   *
+   * @param seed the seed of the random choices of the game
+   */
+  public Space(long seed) {
+    if (IS_ANALYTIC && IS_GRAVITY_ON) {
+      throw new IllegalStateException("analytic asteroids must move in straight lines");
+    }
+    Random seeds = new Random(seed);
+    generator = new RandomGenerator(seeds.nextLong());
+    particles = new ParticleSystem(ParticleSystem.DEFAULT_CAPACITY, seeds.nextLong());
     spaceship = new Spaceship();
     asteroids = new ArrayList<>(INITIAL_ASTEROID_COUNT);
     for (int i = 0; i < INITIAL_ASTEROID_COUNT; i++) {
       asteroids.add(generateInitialAsteroid());
     }
+    if (IS_ANALYTIC) {
+      if (ARE_COLLISIONS_ON) {
+        kineticAsteroids.setContactHandler(Space::bounce);
+      }
+      for (Asteroid asteroid : asteroids) {
+        kineticAsteroids.add(asteroid);
+      }
+    } else {
+      updateAsteroidIndexes();
+    }
+    scheduler.schedule(POWERUP_SPAWN_DELAY, this::spawnPowerUp);
   }
 
 
   public void update(double dt) {
     updateScore(dt);
-    for (Asteroid asteroid : asteroids) {
-      asteroid.update(dt);
+    if (ARE_COLLISIONS_ON && !IS_ANALYTIC) {
+      // the grid was rebuilt after the asteroids last moved
+      collisionSolver.solve(asteroids, asteroidGrid);
+    }
+    if (IS_GRAVITY_ON) {
+      gravityTree.apply(asteroids, spaceship, SPACESHIP_MASS, dt);
+    }
+    if (!IS_ANALYTIC) {
+      updateTiers.update(asteroids, spaceship.getPosition(), dt);
     }
     spaceship.update(dt);
+    updateParticles(dt);
+    collectPowerUps();
+    scheduler.advance(dt);
+    if (IS_ANALYTIC) {
+      kineticAsteroids.advance(scheduler.getTime());
+    } else {
+      updateAsteroidIndexes();
+    }
+    checkSpaceshipCollision();
+  }
+
+
+  /**
+   * Puts the asteroids far from the spaceship to sleep or wakes them up,
+   * unless they attract each other, then indexes the simulated ones by
+   * area.
+   */
+  private void updateAsteroidIndexes() {
+    if (!IS_GRAVITY_ON) {
+      asteroidChunks.update(asteroids, spaceship.getPosition(), scheduler.getTime());
+    }
+    asteroidGrid.rebuild(asteroids);
+  }
+
+
+  /**
+   * Makes two analytic asteroids whose bounding circles touch bounce off
+   * each other, elastically, along the line between their centers.
+   */
+  private static void bounce(Asteroid first, Asteroid second) {
+    double dx = wrap(second.getX() - first.getX(), SPACE_WIDTH);
+    double dy = wrap(second.getY() - first.getY(), SPACE_HEIGHT);
+    double distance = SimulationMath.hypot(dx, dy);
+    if (distance == 0) {
+      return;
+    }
+    double normalX = dx / distance;
+    double normalY = dy / distance;
+    double normalSpeed =
+      (second.getVelocity().getX() - first.getVelocity().getX()) * normalX
+        + (second.getVelocity().getY() - first.getVelocity().getY()) * normalY;
+    if (normalSpeed >= 0) {
+      return; // moving apart
+    }
+    double impulse = -2 * normalSpeed / (1 / first.getMass() + 1 / second.getMass());
+    first.accelerate(new Vector(normalX, normalY).multiply(-impulse / first.getMass()));
+    second.accelerate(new Vector(normalX, normalY).multiply(impulse / second.getMass()));
   }
 
   private void updateScore(double dt) {
-    score = score + 10 * dt;
+    score = score + 10 * dt * getScoreMultiplier();
+  }
+
+
+  /**
+   * Emits the exhaust of the spaceship and moves all the particles.
+   *
+   * @param dt the time delay to simulate.
+   */
+  private void updateParticles(double dt) {
+    particles.update(dt);
+    if (!spaceship.isMainEngineBurning()) {
+      pendingExhaust = 0;
+      return;
+    }
+    pendingExhaust = pendingExhaust + EXHAUST_RATE * dt;
+    int number = (int) pendingExhaust;
+    pendingExhaust = pendingExhaust - number;
+    Vector direction = spaceship.getDirection();
+    Vector nozzle =
+      spaceship.getPosition().subtract(direction.multiply(EXHAUST_OFFSET));
+    double angle = SimulationMath.atan2(-direction.getY(), -direction.getX());
+    particles.emitCone(nozzle.getX(), nozzle.getY(), angle, 10,
+      120, 0.3, number, ParticleSystem.COLOR_FLAME_CORE);
+    particles.emitCone(nozzle.getX(), nozzle.getY(), angle, 25,
+      80, 0.5, number, ParticleSystem.COLOR_FLAME);
+  }
+
+
+  /**
+   * Adds a random power-up in space, schedules its vanishing, and schedules
+   * the next spawn.
+   */
+  private void spawnPowerUp() {
+    scheduler.schedule(POWERUP_SPAWN_DELAY, this::spawnPowerUp);
+    if (powerUps.size() >= MAX_POWERUP_COUNT) {
+      return;
+    }
+    PowerUp powerUp = generator.powerUp();
+    powerUps.add(powerUp);
+    scheduler.schedule(POWERUP_LIFETIME, () -> powerUps.remove(powerUp));
+  }
+
+
+  /**
+   * Applies and removes the power-ups close enough to the spaceship.
+   */
+  private void collectPowerUps() {
+    Iterator<PowerUp> iterator = powerUps.iterator();
+    while (iterator.hasNext()) {
+      PowerUp powerUp = iterator.next();
+      if (powerUp.isCollectableFrom(spaceship.getPosition())) {
+        iterator.remove();
+        apply(powerUp.getType());
+      }
+    }
+  }
+
+
+  /**
+   * Applies the effect of a collected power-up. Timed effects schedule
+   * their own expiry.
+   *
+   * @param type the kind of the collected power-up
+   */
+  private void apply(PowerUpType type) {
+    switch (type) {
+      case ADD_100:
+        score = score + 100;
+        break;
+      case ADD_500:
+        score = score + 500;
+        break;
+      case MULTIPLIER_5:
+        activeMultiplierCount++;
+        scheduler.schedule(POWERUP_EFFECT_DURATION, () -> activeMultiplierCount--);
+        break;
+      case FULL_FUEL:
+        spaceship.refuel(Spaceship.MAX_FUEL);
+        break;
+      case PARTIAL_FUEL:
+        spaceship.refuel(PARTIAL_FUEL);
+        break;
+      case UPGRADE:
+        spaceship.upgrade();
+        scheduler.schedule(POWERUP_EFFECT_DURATION, spaceship::downgrade);
+        break;
+    }
   }
 
 
   public boolean isGameOver() {
+    return isGameOver;
+  }
+
+
+  /**
+   * Ends the game if a contact point of the spaceship is inside an
+   * asteroid. Only the asteroids near the spaceship are found, with the
+   * index, and only those whose bounding circle meets the one of the
+   * spaceship are tested point by point.
+   */
+  private void checkSpaceshipCollision() {
+    Vector position = spaceship.getPosition();
+    double radius = Spaceship.getContactRadius();
+    findAsteroids(position.getX() - radius, position.getY() - radius,
+      position.getX() + radius, position.getY() + radius, nearbyAsteroids);
+    for (Asteroid asteroid : nearbyAsteroids) {
+      double dx = wrap(asteroid.getX() - position.getX(), SPACE_WIDTH);
+      double dy = wrap(asteroid.getY() - position.getY(), SPACE_HEIGHT);
+      double distance = radius + asteroid.getBoundingRadius();
+      if (dx * dx + dy * dy < distance * distance && hits(asteroid)) {
+        isGameOver = true;
+        return;
+      }
+    }
+  }
+
+
+  /**
+   * @return whether a contact point of the spaceship is inside the shape
+   * of an asteroid, taken at its copy nearest to the spaceship
+   */
+  private boolean hits(Asteroid asteroid) {
+    if (asteroid.nbVertices() > vertexXs.length) {
+      vertexXs = new double[asteroid.nbVertices()];
+      vertexYs = new double[asteroid.nbVertices()];
+    }
+    int nbVertices = asteroid.getVertices(vertexXs, vertexYs);
+    double shiftX = wrap(asteroid.getX() - spaceship.getPosition().getX(), SPACE_WIDTH)
+      - (asteroid.getX() - spaceship.getPosition().getX());
+    double shiftY = wrap(asteroid.getY() - spaceship.getPosition().getY(), SPACE_HEIGHT)
+      - (asteroid.getY() - spaceship.getPosition().getY());
+    for (int point = 0; point < spaceship.getContactCount(); point++) {
+      double x = spaceship.getContactX(point) - shiftX;
+      double y = spaceship.getContactY(point) - shiftY;
+      if (contains(vertexXs, vertexYs, nbVertices, x, y)) {
+        return true;
+      }
+    }
     return false;
   }
 
 
+  /**
+   * Tests whether a point is inside a polygon, by counting the edges
+   * crossed by a horizontal ray from the point.
+   */
+  private static boolean contains(double[] xs, double[] ys, int nbVertices,
+                                  double x, double y) {
+    boolean isInside = false;
+    for (int i = 0, j = nbVertices - 1; i < nbVertices; j = i++) {
+      if ((ys[i] > y) != (ys[j] > y)
+        && x < xs[j] + (y - ys[j]) * (xs[i] - xs[j]) / (ys[i] - ys[j])) {
+        isInside = !isInside;
+      }
+    }
+    return isInside;
+  }
+
+
+  /**
+   * @param difference the difference of two coordinates in space
+   * @param size the width or the height of space
+   * @return the difference to the nearest copy of the second coordinate,
+   * the one with the smallest absolute value
+   */
+  static double wrap(double difference, double size) {
+    return difference - size * Math.rint(difference / size);
+  }
+
+
   /**
    * Generates a random asteroid with standard parameters, whose distance
    * to the spaceship is large enough.
@@ -116,7 +611,7 @@ public class Space {
    * @param bound the maximum value allowed for this coordinate
    * @return the corrected coordinate
    */
-  private static double clamp(double value, double bound) {
+  static double clamp(double value, double bound) {
     return value - Math.floor( value / bound) * bound;
   }
 }
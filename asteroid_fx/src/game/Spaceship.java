@@ -1,11 +1,17 @@
 package game;
 
+import inspector.Hidden;
+import tools.SimulationMath;
 import tools.Vector;
 
 import java.util.List;
 
 /**
- * Models a spaceship controlled by a player.
+ * Models a spaceship controlled by a player. The spaceship has inertia:
+ * its engines accelerate it forward or backward and make it turn, and it
+ * slowly loses speed when they are off. Updates are split into short
+ * substeps, integrated with the semi-implicit Euler method, so that long
+ * delays give the same motion as many short ones.
  */
 public class Spaceship {
 
@@ -21,11 +27,99 @@ public class Spaceship {
    */
   private Vector direction = new Vector(1, 0);
 
+  /**
+   * The angle of the direction in degree, growing clockwise on screen.
+   */
+  private double directionAngle = 0;
+
+  /**
+   * The velocity of the spaceship, in pixels per second.
+   */
+  private Vector velocity = Vector.ZERO;
+
+  /**
+   * The speed at which the spaceship turns, in degree per second,
+   * clockwise on screen.
+   */
+  private double angularVelocity = 0;
+
   /**
    * Controls if the main engine, with forward acceleration, is powered on.
    */
   private boolean isMainEngineOn = false;
 
+  /**
+   * Controls if the reverse engine, with backward acceleration, is powered on.
+   */
+  private boolean isReverseEngineOn = false;
+
+  /**
+   * Control if the side engines, turning the spaceship clockwise or
+   * counterclockwise on screen, are powered on.
+   */
+  private boolean isClockwiseEngineOn = false;
+  private boolean isCounterclockwiseEngineOn = false;
+
+  /**
+   * The maximum amount of fuel the tank can contain.
+   */
+  public static final double MAX_FUEL = 100;
+
+  /**
+   * The amount of fuel burnt each second by the main engine.
+   */
+  private static final double FUEL_CONSUMPTION = 4;
+
+  /**
+   * The amount of fuel burnt each second by the reverse engine and by
+   * each side engine.
+   */
+  private static final double REVERSE_FUEL_CONSUMPTION = 2;
+  private static final double SIDE_FUEL_CONSUMPTION = 1;
+
+  /**
+   * The accelerations given by the main and reverse engines, in pixels per
+   * second squared, and by the side engines, in degree per second squared.
+   */
+  private static final double MAIN_THRUST = 150;
+  private static final double REVERSE_THRUST = 75;
+  private static final double ANGULAR_THRUST = 540;
+
+  /**
+   * The fraction of velocity and angular velocity lost each second,
+   * roughly, when engines are off.
+   */
+  private static final double LINEAR_DAMPING = 0.3;
+  private static final double ANGULAR_DAMPING = 2;
+
+  /**
+   * The longest delay simulated at once by an update, in seconds.
+   */
+  private static final double MAX_SUBSTEP = 1. / 120;
+
+  /**
+   * The most substeps of an update, so that a huge delay cannot hold the
+   * thread; beyond MAX_SUBSTEPS * MAX_SUBSTEP, the substeps get longer.
+   */
+  private static final int MAX_SUBSTEPS = 120;
+
+  /**
+   * The amount of fuel left in the tank.
+   */
+  private double fuel = MAX_FUEL;
+
+  /**
+   * The number of weapon upgrades currently active.
+   */
+  private int upgradeLevel = 0;
+
+  /**
+   * The contact points in space, at the current position and heading of
+   * the spaceship, computed at each update.
+   */
+  @Hidden private final double[] contactXs = new double[contactPoints.size()];
+  @Hidden private final double[] contactYs = new double[contactPoints.size()];
+
 
   /**
    * @return the position of the spaceship
@@ -42,6 +136,29 @@ public class Spaceship {
   }
 
 
+  /**
+   * @return the velocity of the spaceship, in pixels per second.
+   */
+  public Vector getVelocity() {
+    return velocity;
+  }
+
+  /**
+   * @return the forward direction of the spaceship, with norm 1.
+   */
+  public Vector getDirection() {
+    return direction;
+  }
+
+  /**
+   * @return the speed at which the spaceship turns, in degree per second,
+   * clockwise on screen.
+   */
+  public double getAngularVelocity() {
+    return angularVelocity;
+  }
+
+
   /**
    * @return whether the main engine is on (forward acceleration).
    */
@@ -50,31 +167,184 @@ public class Spaceship {
   }
 
 
+  /**
+   * @return whether the main engine is on and has fuel to burn.
+   */
+  public boolean isMainEngineBurning() {
+    return isMainEngineOn && fuel > 0;
+  }
+
+  /**
+   * @return whether the reverse engine is on and has fuel to burn.
+   */
+  public boolean isReverseEngineBurning() {
+    return isReverseEngineOn && fuel > 0;
+  }
+
+  /**
+   * @return whether the engine turning the spaceship clockwise on screen
+   * is on and has fuel to burn.
+   */
+  public boolean isClockwiseEngineBurning() {
+    return isClockwiseEngineOn && fuel > 0;
+  }
+
+  /**
+   * @return whether the engine turning the spaceship counterclockwise on
+   * screen is on and has fuel to burn.
+   */
+  public boolean isCounterclockwiseEngineBurning() {
+    return isCounterclockwiseEngineOn && fuel > 0;
+  }
+
+
+  /**
+   * @return the amount of fuel left in the tank.
+   */
+  public double getFuel() {
+    return fuel;
+  }
+
+
+  /**
+   * @return the number of weapon upgrades currently active.
+   */
+  public int getUpgradeLevel() {
+    return upgradeLevel;
+  }
+
+
   /**
    * Initially the spaceship will be positioned at the center of space.
    */
   public Spaceship() {
     this.position =
       new Vector(
-        Space.SPACE_HEIGHT / 2,
-        Space.SPACE_WIDTH / 2
+        Space.SPACE_WIDTH / 2,
+        Space.SPACE_HEIGHT / 2
       );
+    updateContactPoints();
   }
 
 
   /**
    * The spaceship is a moving object. Every now and then, its position
    * must be updated, as well as other parameters evolving with time. This
-   * method simulates the effects of a delay <em>dt</em> over the spaceship.
-   * For good accuracy this delay should be kept small.
+   * method simulates the effects of a delay <em>dt</em> over the spaceship,
+   * in substeps short enough for accuracy up to a second; longer delays
+   * are simulated in MAX_SUBSTEPS longer substeps, still stable as the
+   * damping is implicit.
    *
    * @param dt the time delay to simulate.
    */
   public void update(double dt) {
-    if (isMainEngineOn()) {
-      position = position.add(direction.multiply(100 * dt));
+    int substepCount = (int) Math.max(1, Math.min(MAX_SUBSTEPS, Math.ceil(dt / MAX_SUBSTEP)));
+    double substep = dt / substepCount;
+    for (int i = 0; i < substepCount; i++) {
+      step(substep);
     }
+    directionAngle = Math.IEEEremainder(directionAngle, 360);
     position = Space.toricRemap(position);
+    updateContactPoints();
+  }
+
+
+  /**
+   * Simulates a short delay with the semi-implicit Euler method: velocities
+   * are updated first from the thrust and the damping, then positions from
+   * the new velocities. Damping is implicit, so it is stable for any step.
+   *
+   * @param dt the time delay to simulate, short.
+   */
+  private void step(double dt) {
+    double angularAcceleration = 0;
+    if (isClockwiseEngineBurning()) {
+      angularAcceleration += ANGULAR_THRUST;
+      fuel = Math.max(0, fuel - SIDE_FUEL_CONSUMPTION * dt);
+    }
+    if (isCounterclockwiseEngineBurning()) {
+      angularAcceleration -= ANGULAR_THRUST;
+      fuel = Math.max(0, fuel - SIDE_FUEL_CONSUMPTION * dt);
+    }
+    angularVelocity = (angularVelocity + angularAcceleration * dt) / (1 + ANGULAR_DAMPING * dt);
+    directionAngle = directionAngle + angularVelocity * dt;
+    direction = new Vector(SimulationMath.cos(directionAngle), SimulationMath.sin(directionAngle));
+
+    double thrust = 0;
+    if (isMainEngineBurning()) {
+      thrust += MAIN_THRUST;
+      fuel = Math.max(0, fuel - FUEL_CONSUMPTION * dt);
+    }
+    if (isReverseEngineBurning()) {
+      thrust -= REVERSE_THRUST;
+      fuel = Math.max(0, fuel - REVERSE_FUEL_CONSUMPTION * dt);
+    }
+    velocity = velocity.add(direction.multiply(thrust * dt))
+      .multiply(1 / (1 + LINEAR_DAMPING * dt));
+    position = position.add(velocity.multiply(dt));
+  }
+
+
+  /**
+   * Places the contact points at the position and heading of the
+   * spaceship: the first coordinate of a contact point is along the
+   * direction of the spaceship, the second perpendicular to it, as in
+   * its rotated image.
+   */
+  private void updateContactPoints() {
+    double x = position.getX();
+    double y = position.getY();
+    double forwardX = direction.getX();
+    double forwardY = direction.getY();
+    for (int i = 0; i < contactXs.length; i++) {
+      Vector point = contactPoints.get(i);
+      contactXs[i] = x + point.getX() * forwardX - point.getY() * forwardY;
+      contactYs[i] = y + point.getX() * forwardY + point.getY() * forwardX;
+    }
+  }
+
+
+  /**
+   * @return the number of contact points of the spaceship.
+   */
+  public int getContactCount() {
+    return contactXs.length;
+  }
+
+  /**
+   * @param index the index of a contact point
+   * @return the horizontal coordinate of the contact point in space, at
+   * the last update, possibly beyond the borders of space.
+   */
+  public double getContactX(int index) {
+    return contactXs[index];
+  }
+
+  /**
+   * @param index the index of a contact point
+   * @return the vertical coordinate of the contact point in space, at the
+   * last update, possibly beyond the borders of space.
+   */
+  public double getContactY(int index) {
+    return contactYs[index];
+  }
+
+  /**
+   * @return the radius of a circle centered on the spaceship and containing
+   * its contact points.
+   */
+  public static double getContactRadius() {
+    return contactRadius;
+  }
+
+
+  /**
+   * Changes the velocity of the spaceship under an external force.
+   *
+   * @param deltaV the change of velocity, in pixels per second
+   */
+  public void accelerate(Vector deltaV) {
+    velocity = velocity.add(deltaV);
   }
 
 
@@ -92,6 +362,74 @@ public class Spaceship {
     isMainEngineOn = false;
   }
 
+  /**
+   * Switches the reverse engine (powering backward acceleration) on.
+   */
+  public void startReverseEngine() {
+    isReverseEngineOn = true;
+  }
+
+  /**
+   * Switches the reverse engine (powering backward acceleration) off.
+   */
+  public void stopReverseEngine() {
+    isReverseEngineOn = false;
+  }
+
+  /**
+   * Switches the side engine turning the spaceship clockwise on screen on.
+   */
+  public void startClockwiseEngine() {
+    isClockwiseEngineOn = true;
+  }
+
+  /**
+   * Switches the side engine turning the spaceship clockwise on screen off.
+   */
+  public void stopClockwiseEngine() {
+    isClockwiseEngineOn = false;
+  }
+
+  /**
+   * Switches the side engine turning the spaceship counterclockwise on
+   * screen on.
+   */
+  public void startCounterclockwiseEngine() {
+    isCounterclockwiseEngineOn = true;
+  }
+
+  /**
+   * Switches the side engine turning the spaceship counterclockwise on
+   * screen off.
+   */
+  public void stopCounterclockwiseEngine() {
+    isCounterclockwiseEngineOn = false;
+  }
+
+
+  /**
+   * Adds fuel to the tank, without exceeding its capacity.
+   *
+   * @param amount the amount of fuel to add.
+   */
+  public void refuel(double amount) {
+    fuel = Math.min(MAX_FUEL, fuel + amount);
+  }
+
+  /**
+   * Activates one more weapon upgrade.
+   */
+  public void upgrade() {
+    upgradeLevel++;
+  }
+
+  /**
+   * Deactivates one weapon upgrade, usually when its effect expires.
+   */
+  public void downgrade() {
+    upgradeLevel = Math.max(0, upgradeLevel - 1);
+  }
+
 
   /**
    * A list of points on the boundary of the spaceship, used
@@ -113,6 +451,9 @@ public class Spaceship {
       new Vector(14.5,-1.5)
     );
 
+  private static final double contactRadius =
+    contactPoints.stream().mapToDouble(Vector::norm).max().orElse(0);
+
   public static List<Vector> getContactPoints() {
     return contactPoints;
   }
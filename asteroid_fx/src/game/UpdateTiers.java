@@ -0,0 +1,164 @@
+package game;
+
+import tools.Vector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Updates asteroids less often the farther they are from the spaceship.
+ * Space is divided into bands around the spaceship by increasing radii:
+ * asteroids in the first band are updated at each tick, those in the
+ * next bands every 2nd, 4th, 8th... tick. Skipped ticks are deferred to
+ * the next update, so that asteroids still move exactly as if updated at
+ * each tick, and are seen where they would be meanwhile.
+ * <p>
+ * The band of an asteroid is only computed when it is updated, so that
+ * a deferred asteroid costs almost nothing. Each asteroid keeps the tick
+ * of its next update, its own phase, so that its cadence does not depend
+ * on its place in the list, which changes as asteroids are added or
+ * removed; updates of a band are spread over its ticks as asteroids enter
+ * it at different ticks. The numbers of asteroids updated and deferred at
+ * the last tick are kept, to observe what is saved.
+ */
+public class UpdateTiers {
+
+  private final double width;
+  private final double height;
+
+  /**
+   * The outer radius of each band but the last, which is unbounded.
+   */
+  private final double[] radii;
+
+  private long tick = 0;
+
+  /**
+   * The number of asteroids in each band at the last tick.
+   */
+  private final int[] bandCounts;
+  private int updatedCount = 0;
+  private int deferredCount = 0;
+
+  private long totalUpdatedCount = 0;
+  private long totalDeferredCount = 0;
+
+
+  /**
+   * @param width the width of space
+   * @param height the height of space
+   * @param radii the distances to the spaceship separating the bands, in
+   *              increasing order
+   */
+  public UpdateTiers(double width, double height, double... radii) {
+    for (int i = 0; i < radii.length; i++) {
+      if (!(radii[i] > 0) || (i > 0 && radii[i] <= radii[i - 1])) {
+        throw new IllegalArgumentException("radii must be positive and increasing: "
+          + Arrays.toString(radii));
+      }
+    }
+    if (radii.length >= Integer.SIZE - 2) {
+      throw new IllegalArgumentException("too many bands: " + (radii.length + 1));
+    }
+    this.width = width;
+    this.height = height;
+    this.radii = radii.clone();
+    this.bandCounts = new int[radii.length + 1];
+  }
+
+
+  /**
+   * @param radii radii separated by commas, like "600,900,1200", possibly
+   *              empty to update all the asteroids at each tick
+   * @return the radii as numbers
+   */
+  public static double[] parseRadii(String radii) {
+    if (radii.isBlank()) {
+      return new double[0];
+    }
+    return Arrays.stream(radii.split(","))
+      .mapToDouble(radius -> Double.parseDouble(radius.trim()))
+      .toArray();
+  }
+
+
+  /**
+   * Updates the asteroids whose band is due at this tick, and defers the
+   * update of the others.
+   *
+   * @param asteroids the asteroids to update
+   * @param spaceship the position of the spaceship
+   * @param dt the time delay of the tick, in seconds
+   */
+  public void update(List<Asteroid> asteroids, Vector spaceship, double dt) {
+    tick++;
+    Arrays.fill(bandCounts, 0);
+    updatedCount = 0;
+    deferredCount = 0;
+    int count = asteroids.size();
+    for (int i = 0; i < count; i++) {
+      Asteroid asteroid = asteroids.get(i);
+      int period = asteroid.getUpdatePeriod();
+      if (asteroid.getNextUpdateTick() <= tick) {
+        asteroid.update(dt);
+        period = 1 << band(asteroid.getPosition(), spaceship);
+        asteroid.setUpdatePeriod(period);
+        asteroid.setNextUpdateTick(tick + period);
+        updatedCount++;
+      } else {
+        asteroid.defer(dt);
+        deferredCount++;
+      }
+      bandCounts[Integer.numberOfTrailingZeros(period)]++;
+    }
+    totalUpdatedCount += updatedCount;
+    totalDeferredCount += deferredCount;
+  }
+
+
+  public double[] getRadii() {
+    return radii.clone();
+  }
+
+  /**
+   * @param band the index of a band, 0 for the closest to the spaceship
+   * @return the number of asteroids in the band at the last tick.
+   */
+  public int getBandCount(int band) {
+    return bandCounts[band];
+  }
+
+  public int getUpdatedCount() {
+    return updatedCount;
+  }
+
+  public int getDeferredCount() {
+    return deferredCount;
+  }
+
+  public long getTotalUpdatedCount() {
+    return totalUpdatedCount;
+  }
+
+  public long getTotalDeferredCount() {
+    return totalDeferredCount;
+  }
+
+
+  /**
+   * @return the index of the band containing a position, from its toric
+   * distance to the spaceship.
+   */
+  private int band(Vector position, Vector spaceship) {
+    double dx = Math.abs(position.getX() - spaceship.getX());
+    double dy = Math.abs(position.getY() - spaceship.getY());
+    dx = Math.min(dx, width - dx);
+    dy = Math.min(dy, height - dy);
+    double squaredDistance = dx * dx + dy * dy;
+    int band = 0;
+    while (band < radii.length && squaredDistance > radii[band] * radii[band]) {
+      band++;
+    }
+    return band;
+  }
+}
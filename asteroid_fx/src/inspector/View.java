@@ -8,19 +8,35 @@ import javafx.scene.input.KeyEvent;
 
 public class View {
 
-  private final Inspection inspection;
+  private final Inspection[] inspections;
 
 
-  public View(TreeView treeView, Inspection inspection) {
-    this.inspection = inspection;
+  /**
+   * Shows inspections in a tree view: a single one as the root, several
+   * ones side by side under a hidden root, the first one expanded.
+   */
+  public View(TreeView treeView, Inspection... inspections) {
+    this.inspections = inspections;
     treeView.addEventFilter(KeyEvent.ANY, Event::consume);
-    TreeItem<String> root = inspection.getItem();
+    TreeItem<String> root;
+    if (inspections.length == 1) {
+      root = inspections[0].getItem();
+    } else {
+      root = new TreeItem<>();
+      for (Inspection inspection : inspections) {
+        root.getChildren().add(inspection.getItem());
+      }
+      inspections[0].getItem().setExpanded(true);
+      treeView.setShowRoot(false);
+    }
     treeView.setRoot(root);
     root.setExpanded(true);
   }
 
   public void render() {
-    inspection.update();
+    for (Inspection inspection : inspections) {
+      inspection.update();
+    }
   }
 
 }
@@ -0,0 +1,84 @@
+package render;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An image stored as an array of ARGB pixels, row by row, which can be
+ * used without any graphical toolkit.
+ */
+public class Bitmap {
+
+  private final int width;
+  private final int height;
+  private final int[] pixels;
+
+  /**
+   * @param width the width in pixels
+   * @param height the height in pixels
+   * @param pixels the ARGB pixels, row by row
+   */
+  public Bitmap(int width, int height, int[] pixels) {
+    this.width = width;
+    this.height = height;
+    this.pixels = pixels;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * @param x a column, between 0 and width - 1
+   * @param y a row, between 0 and height - 1
+   * @return the ARGB value of the pixel
+   */
+  public int getArgb(int x, int y) {
+    return pixels[y * width + x];
+  }
+
+
+  /**
+   * Decodes an image from the resources.
+   *
+   * @param path the path of the image in the resources
+   * @return the decoded image
+   */
+  public static Bitmap load(String path) {
+    URL url = Bitmap.class.getResource(path);
+    if (url == null) {
+      throw new IllegalArgumentException("no resource " + path);
+    }
+    try {
+      BufferedImage image = ImageIO.read(url);
+      int width = image.getWidth();
+      int height = image.getHeight();
+      int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+      return new Bitmap(width, height, pixels);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @param paths paths of images in the resources
+   * @return the decoded images, by path
+   */
+  public static Map<String, Bitmap> loadAll(List<String> paths) {
+    Map<String, Bitmap> bitmaps = new HashMap<>();
+    for (String path : paths) {
+      bitmaps.put(path, load(path));
+    }
+    return bitmaps;
+  }
+}
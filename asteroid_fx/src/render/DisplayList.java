@@ -0,0 +1,472 @@
+package render;
+
+import tools.Polygon;
+import tools.Vector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A recording of drawing operations, stored compactly in growable arrays
+ * which are kept when the list is reset, so that recording frame after
+ * frame does not allocate once the arrays are large enough. A display
+ * list is itself a renderer: operations drawn on it are recorded, and can
+ * later be replayed onto another renderer.
+ * <p>
+ * While recording, the list counts draw calls, vertices, fill color
+ * changes and images drawn. Two lists can be compared operation by
+ * operation, and the coverage of the operations can be accumulated on a
+ * grid to find overdraw hotspots.
+ */
+public class DisplayList implements Renderer {
+
+  // operation codes, and the number of numeric arguments following them
+  private static final int CLEAR = 0;
+  private static final int SET_FILL = 1; // argb
+  private static final int FILL_RECT = 2; // x, y, width, height
+  private static final int FILL_POLYGON = 3; // n, x1, y1, ..., xn, yn
+  private static final int FILL_SHAPE = 4; // angle, x, y, radius + shape reference
+  private static final int DRAW_IMAGE = 5; // x, y, width, height + path reference
+  private static final int DRAW_ROTATED_IMAGE = 6; // angle, x, y, width, height + path reference
+  private static final int FILL_TEXT = 7; // x, y, size + text reference
+  private static final int PREPARE_ROTATED_IMAGES = 8; // width, height + paths reference
+  private static final int SET_TRANSFORM = 9; // scale, translateX, translateY
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  private final double width;
+  private final double height;
+
+  /* the operation codes, the numeric arguments and the object arguments */
+  private int[] operations = new int[INITIAL_CAPACITY];
+  private double[] arguments = new double[4 * INITIAL_CAPACITY];
+  private Object[] references = new Object[INITIAL_CAPACITY];
+  private int operationCount = 0;
+  private int argumentCount = 0;
+  private int referenceCount = 0;
+
+  private int fill = 0xff000000;
+
+  private int drawCallCount = 0;
+  private int vertexCount = 0;
+  private int stateChangeCount = 0;
+  private int imageCount = 0;
+
+
+  /**
+   * @param width the width of the recorded surface
+   * @param height the height of the recorded surface
+   */
+  public DisplayList(double width, double height) {
+    this.width = width;
+    this.height = height;
+  }
+
+
+  /**
+   * Forgets the recorded operations and statistics, keeping the buffers.
+   */
+  public void reset() {
+    Arrays.fill(references, 0, referenceCount, null);
+    operationCount = 0;
+    argumentCount = 0;
+    referenceCount = 0;
+    fill = 0xff000000;
+    drawCallCount = 0;
+    vertexCount = 0;
+    stateChangeCount = 0;
+    imageCount = 0;
+  }
+
+
+  /**
+   * @return the number of recorded operations.
+   */
+  public int size() {
+    return operationCount;
+  }
+
+  public int getDrawCallCount() {
+    return drawCallCount;
+  }
+
+  public int getVertexCount() {
+    return vertexCount;
+  }
+
+  /**
+   * @return how many times the fill color was set to a different color.
+   */
+  public int getStateChangeCount() {
+    return stateChangeCount;
+  }
+
+  public int getImageCount() {
+    return imageCount;
+  }
+
+
+  @Override
+  public double getWidth() {
+    return width;
+  }
+
+  @Override
+  public double getHeight() {
+    return height;
+  }
+
+  @Override
+  public void clear() {
+    record(CLEAR, null);
+  }
+
+  @Override
+  public void setTransform(double scale, double translateX, double translateY) {
+    record(SET_TRANSFORM, null);
+    argument(scale);
+    argument(translateX);
+    argument(translateY);
+  }
+
+  @Override
+  public void setFill(int argb) {
+    if (argb != fill) {
+      stateChangeCount++;
+      fill = argb;
+    }
+    record(SET_FILL, null);
+    argument(argb);
+  }
+
+  @Override
+  public void fillRect(double x, double y, double rectWidth, double rectHeight) {
+    draw(4);
+    record(FILL_RECT, null);
+    argument(x);
+    argument(y);
+    argument(rectWidth);
+    argument(rectHeight);
+  }
+
+  @Override
+  public void fillPolygon(double[] xs, double[] ys, int nbPoints) {
+    fillPolygon(xs, ys, 0, nbPoints);
+  }
+
+  @Override
+  public void fillPolygon(double[] xs, double[] ys, int offset, int nbPoints) {
+    draw(nbPoints);
+    record(FILL_POLYGON, null);
+    argument(nbPoints);
+    for (int i = offset; i < offset + nbPoints; i++) {
+      argument(xs[i]);
+      argument(ys[i]);
+    }
+  }
+
+  @Override
+  public void fillShape(Polygon shape, double angle, double x, double y) {
+    draw(shape.nbVertices());
+    record(FILL_SHAPE, shape);
+    argument(angle);
+    argument(x);
+    argument(y);
+    argument(shape.radius()); // for overdraw, not replayed
+  }
+
+  @Override
+  public void drawImage(String path, double x, double y,
+                        double imageWidth, double imageHeight) {
+    draw(4);
+    imageCount++;
+    record(DRAW_IMAGE, path);
+    argument(x);
+    argument(y);
+    argument(imageWidth);
+    argument(imageHeight);
+  }
+
+  @Override
+  public void drawRotatedImage(String path, double angle, double x, double y,
+                               double imageWidth, double imageHeight) {
+    draw(4);
+    imageCount++;
+    record(DRAW_ROTATED_IMAGE, path);
+    argument(angle);
+    argument(x);
+    argument(y);
+    argument(imageWidth);
+    argument(imageHeight);
+  }
+
+  @Override
+  public void fillText(String text, double x, double y, double size) {
+    draw(0);
+    record(FILL_TEXT, text);
+    argument(x);
+    argument(y);
+    argument(size);
+  }
+
+  @Override
+  public void prepareRotatedImages(List<String> paths, double imageWidth, double imageHeight) {
+    record(PREPARE_ROTATED_IMAGES, paths);
+    argument(imageWidth);
+    argument(imageHeight);
+  }
+
+
+  /**
+   * Draws the recorded operations, in order, onto another renderer.
+   *
+   * @param target the renderer on which to replay the operations
+   */
+  @SuppressWarnings("unchecked")
+  public void replay(Renderer target) {
+    int a = 0;
+    int r = 0;
+    double[] xs = new double[0];
+    double[] ys = new double[0];
+    for (int i = 0; i < operationCount; i++) {
+      switch (operations[i]) {
+        case CLEAR:
+          target.clear();
+          break;
+        case SET_FILL:
+          target.setFill((int) arguments[a++]);
+          break;
+        case SET_TRANSFORM:
+          target.setTransform(arguments[a++], arguments[a++], arguments[a++]);
+          break;
+        case FILL_RECT:
+          target.fillRect(arguments[a++], arguments[a++], arguments[a++], arguments[a++]);
+          break;
+        case FILL_POLYGON:
+          int nbPoints = (int) arguments[a++];
+          if (xs.length < nbPoints) {
+            xs = new double[nbPoints];
+            ys = new double[nbPoints];
+          }
+          for (int k = 0; k < nbPoints; k++) {
+            xs[k] = arguments[a++];
+            ys[k] = arguments[a++];
+          }
+          target.fillPolygon(xs, ys, nbPoints);
+          break;
+        case FILL_SHAPE:
+          target.fillShape((Polygon) references[r++],
+            arguments[a++], arguments[a++], arguments[a++]);
+          a++; // the radius
+          break;
+        case DRAW_IMAGE:
+          target.drawImage((String) references[r++],
+            arguments[a++], arguments[a++], arguments[a++], arguments[a++]);
+          break;
+        case DRAW_ROTATED_IMAGE:
+          target.drawRotatedImage((String) references[r++], arguments[a++],
+            arguments[a++], arguments[a++], arguments[a++], arguments[a++]);
+          break;
+        case FILL_TEXT:
+          target.fillText((String) references[r++],
+            arguments[a++], arguments[a++], arguments[a++]);
+          break;
+        case PREPARE_ROTATED_IMAGES:
+          target.prepareRotatedImages((List<String>) references[r++],
+            arguments[a++], arguments[a++]);
+          break;
+      }
+    }
+  }
+
+
+  /**
+   * Compares two recordings operation by operation: same operations with
+   * the same arguments, and the same shapes, images and texts. Shapes are
+   * the same when they have the same vertices, so that recordings of two
+   * runs of the same game can be compared.
+   *
+   * @param other another recording
+   * @return the index of the first operation that differs, the size of the
+   * shortest recording if one is a prefix of the other, or -1 if both
+   * recordings are identical
+   */
+  public int firstDifference(DisplayList other) {
+    int a = 0;
+    int r = 0;
+    int common = Math.min(operationCount, other.operationCount);
+    for (int i = 0; i < common; i++) {
+      if (operations[i] != other.operations[i]) {
+        return i;
+      }
+      int argumentLength = argumentLength(i, a);
+      for (int k = 0; k < argumentLength; k++) {
+        if (Double.compare(arguments[a + k], other.arguments[a + k]) != 0) {
+          return i;
+        }
+      }
+      a += argumentLength;
+      if (hasReference(operations[i])) {
+        Object reference = references[r];
+        Object otherReference = other.references[r];
+        boolean isSame = (reference instanceof Polygon) ?
+          isSameShape((Polygon) reference, otherReference) : reference.equals(otherReference);
+        if (!isSame) {
+          return i;
+        }
+        r++;
+      }
+    }
+    return (operationCount == other.operationCount) ? -1 : common;
+  }
+
+
+  /**
+   * Counts, for each cell of a grid over the surface, how many drawing
+   * operations cover it, using the bounding box of each operation in
+   * pixels. Cells with high counts are overdraw hotspots.
+   *
+   * @param cellSize the side of the cells of the grid, in pixels
+   * @return the counts, row by row
+   */
+  public int[] overdraw(int cellSize) {
+    int columns = (int) Math.ceil(width / cellSize);
+    int rows = (int) Math.ceil(height / cellSize);
+    int[] counts = new int[columns * rows];
+    double scale = 1;
+    double translateX = 0;
+    double translateY = 0;
+    int a = 0;
+    for (int i = 0; i < operationCount; i++) {
+      double minX = 0;
+      double minY = 0;
+      double maxX = -1;
+      double maxY = -1;
+      switch (operations[i]) {
+        case SET_TRANSFORM:
+          scale = arguments[a];
+          translateX = arguments[a + 1];
+          translateY = arguments[a + 2];
+          break;
+        case FILL_RECT:
+        case DRAW_IMAGE:
+          minX = arguments[a];
+          minY = arguments[a + 1];
+          maxX = minX + arguments[a + 2];
+          maxY = minY + arguments[a + 3];
+          break;
+        case DRAW_ROTATED_IMAGE:
+          double radius = Math.hypot(arguments[a + 3], arguments[a + 4]) / 2;
+          minX = arguments[a + 1] - radius;
+          minY = arguments[a + 2] - radius;
+          maxX = arguments[a + 1] + radius;
+          maxY = arguments[a + 2] + radius;
+          break;
+        case FILL_SHAPE:
+          minX = arguments[a + 1] - arguments[a + 3];
+          minY = arguments[a + 2] - arguments[a + 3];
+          maxX = arguments[a + 1] + arguments[a + 3];
+          maxY = arguments[a + 2] + arguments[a + 3];
+          break;
+        case FILL_POLYGON:
+          minX = minY = Double.POSITIVE_INFINITY;
+          maxX = maxY = Double.NEGATIVE_INFINITY;
+          for (int k = 0; k < (int) arguments[a]; k++) {
+            minX = Math.min(minX, arguments[a + 1 + 2 * k]);
+            maxX = Math.max(maxX, arguments[a + 1 + 2 * k]);
+            minY = Math.min(minY, arguments[a + 2 + 2 * k]);
+            maxY = Math.max(maxY, arguments[a + 2 + 2 * k]);
+          }
+          break;
+      }
+      a += argumentLength(i, a);
+      if (maxX < minX) {
+        continue; // not a drawing operation with known bounds
+      }
+      int fromColumn = Math.max(0, (int) Math.floor((scale * minX + translateX) / cellSize));
+      int toColumn = Math.min(columns - 1, (int) Math.floor((scale * maxX + translateX) / cellSize));
+      int fromRow = Math.max(0, (int) Math.floor((scale * minY + translateY) / cellSize));
+      int toRow = Math.min(rows - 1, (int) Math.floor((scale * maxY + translateY) / cellSize));
+      for (int row = fromRow; row <= toRow; row++) {
+        for (int column = fromColumn; column <= toColumn; column++) {
+          counts[row * columns + column]++;
+        }
+      }
+    }
+    return counts;
+  }
+
+
+  /**
+   * @param index the index of an operation
+   * @param argumentIndex the index of its first numeric argument
+   * @return the number of numeric arguments of the operation
+   */
+  private int argumentLength(int index, int argumentIndex) {
+    switch (operations[index]) {
+      case SET_FILL: return 1;
+      case SET_TRANSFORM: return 3;
+      case FILL_RECT: return 4;
+      case FILL_POLYGON: return 1 + 2 * (int) arguments[argumentIndex];
+      case FILL_SHAPE: return 4;
+      case DRAW_IMAGE: return 4;
+      case DRAW_ROTATED_IMAGE: return 5;
+      case FILL_TEXT: return 3;
+      case PREPARE_ROTATED_IMAGES: return 2;
+      default: return 0;
+    }
+  }
+
+  private static boolean isSameShape(Polygon shape, Object other) {
+    if (shape == other) {
+      return true;
+    }
+    if (!(other instanceof Polygon)
+      || ((Polygon) other).nbVertices() != shape.nbVertices()) {
+      return false;
+    }
+    for (int i = 0; i < shape.nbVertices(); i++) {
+      Vector vertex = shape.getVertex(i);
+      Vector otherVertex = ((Polygon) other).getVertex(i);
+      if (Double.compare(vertex.getX(), otherVertex.getX()) != 0
+        || Double.compare(vertex.getY(), otherVertex.getY()) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean hasReference(int operation) {
+    return operation == FILL_SHAPE
+      || operation == DRAW_IMAGE
+      || operation == DRAW_ROTATED_IMAGE
+      || operation == FILL_TEXT
+      || operation == PREPARE_ROTATED_IMAGES;
+  }
+
+
+  private void draw(int vertices) {
+    drawCallCount++;
+    vertexCount += vertices;
+  }
+
+  private void record(int operation, Object reference) {
+    if (operationCount == operations.length) {
+      operations = Arrays.copyOf(operations, 2 * operations.length);
+    }
+    operations[operationCount++] = operation;
+    if (reference != null) {
+      if (referenceCount == references.length) {
+        references = Arrays.copyOf(references, 2 * references.length);
+      }
+      references[referenceCount++] = reference;
+    }
+  }
+
+  private void argument(double value) {
+    if (argumentCount == arguments.length) {
+      arguments = Arrays.copyOf(arguments, 2 * arguments.length);
+    }
+    arguments[argumentCount++] = value;
+  }
+}
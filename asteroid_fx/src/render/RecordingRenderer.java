@@ -0,0 +1,127 @@
+package render;
+
+import tools.Polygon;
+
+import java.util.List;
+
+/**
+ * A renderer forwarding every operation to another renderer, while
+ * recording the operations of the current frame in a display list. A
+ * frame ends when the renderer is flushed: its recording becomes the last
+ * frame, and the buffers of the frame before are reused for the next one.
+ */
+public class RecordingRenderer implements Renderer {
+
+  private final Renderer target;
+  private DisplayList currentFrame;
+  private DisplayList lastFrame;
+
+
+  /**
+   * @param target the renderer actually drawing the operations
+   */
+  public RecordingRenderer(Renderer target) {
+    this.target = target;
+    currentFrame = new DisplayList(target.getWidth(), target.getHeight());
+    lastFrame = new DisplayList(target.getWidth(), target.getHeight());
+  }
+
+
+  /**
+   * @return the recording of the last complete frame. It is overwritten
+   * two frames later, so it must be copied by replaying it to be kept.
+   */
+  public DisplayList getLastFrame() {
+    return lastFrame;
+  }
+
+
+  @Override
+  public double getWidth() {
+    return target.getWidth();
+  }
+
+  @Override
+  public double getHeight() {
+    return target.getHeight();
+  }
+
+  @Override
+  public void clear() {
+    currentFrame.clear();
+    target.clear();
+  }
+
+  @Override
+  public void setTransform(double scale, double translateX, double translateY) {
+    currentFrame.setTransform(scale, translateX, translateY);
+    target.setTransform(scale, translateX, translateY);
+  }
+
+  @Override
+  public void setFill(int argb) {
+    currentFrame.setFill(argb);
+    target.setFill(argb);
+  }
+
+  @Override
+  public void fillRect(double x, double y, double width, double height) {
+    currentFrame.fillRect(x, y, width, height);
+    target.fillRect(x, y, width, height);
+  }
+
+  @Override
+  public void fillPolygon(double[] xs, double[] ys, int nbPoints) {
+    currentFrame.fillPolygon(xs, ys, nbPoints);
+    target.fillPolygon(xs, ys, nbPoints);
+  }
+
+  @Override
+  public void fillPolygon(double[] xs, double[] ys, int offset, int nbPoints) {
+    currentFrame.fillPolygon(xs, ys, offset, nbPoints);
+    target.fillPolygon(xs, ys, offset, nbPoints);
+  }
+
+  @Override
+  public void fillShape(Polygon shape, double angle, double x, double y) {
+    currentFrame.fillShape(shape, angle, x, y);
+    target.fillShape(shape, angle, x, y);
+  }
+
+  @Override
+  public void drawImage(String path, double x, double y, double width, double height) {
+    currentFrame.drawImage(path, x, y, width, height);
+    target.drawImage(path, x, y, width, height);
+  }
+
+  @Override
+  public void drawRotatedImage(String path, double angle,
+                               double x, double y, double width, double height) {
+    currentFrame.drawRotatedImage(path, angle, x, y, width, height);
+    target.drawRotatedImage(path, angle, x, y, width, height);
+  }
+
+  @Override
+  public void fillText(String text, double x, double y, double size) {
+    currentFrame.fillText(text, x, y, size);
+    target.fillText(text, x, y, size);
+  }
+
+  @Override
+  public void prepareRotatedImages(List<String> paths, double width, double height) {
+    currentFrame.prepareRotatedImages(paths, width, height);
+    target.prepareRotatedImages(paths, width, height);
+  }
+
+  /**
+   * Ends the frame, on the target and in the recording.
+   */
+  @Override
+  public void flush() {
+    target.flush();
+    DisplayList finished = currentFrame;
+    currentFrame = lastFrame;
+    lastFrame = finished;
+    currentFrame.reset();
+  }
+}
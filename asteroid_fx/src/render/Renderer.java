@@ -0,0 +1,161 @@
+package render;
+
+import tools.Polygon;
+import tools.Vector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The drawing operations used to display the game, independently of the
+ * surface on which they are drawn. Colors are 32 bits ARGB values, and
+ * images are designated by their path in the resources. Coordinates and
+ * dimensions are in units of the drawn scene, converted to pixels by the
+ * current transform.
+ */
+public interface Renderer {
+
+  /**
+   * @return the width of the drawing surface, in pixels.
+   */
+  double getWidth();
+
+  /**
+   * @return the height of the drawing surface, in pixels.
+   */
+  double getHeight();
+
+  /**
+   * Makes the whole surface transparent.
+   */
+  void clear();
+
+  /**
+   * Sets how the coordinates given to the following drawing operations are
+   * converted to pixels: a coordinate c is drawn at scale * c + translate.
+   *
+   * @param scale the number of pixels per unit of coordinates and dimensions
+   * @param translateX the horizontal position in pixels of coordinate 0
+   * @param translateY the vertical position in pixels of coordinate 0
+   */
+  void setTransform(double scale, double translateX, double translateY);
+
+  /**
+   * @param argb the color used by the following fill operations
+   */
+  void setFill(int argb);
+
+  /**
+   * Fills a rectangle with the current fill color.
+   *
+   * @param x the horizontal position of the top left corner
+   * @param y the vertical position of the top left corner
+   * @param width the width of the rectangle
+   * @param height the height of the rectangle
+   */
+  void fillRect(double x, double y, double width, double height);
+
+  /**
+   * Fills a polygon with the current fill color. The arrays may be
+   * reused by the caller as soon as this method returns.
+   *
+   * @param xs the horizontal coordinates of the vertices
+   * @param ys the vertical coordinates of the vertices
+   * @param nbPoints the number of vertices
+   */
+  void fillPolygon(double[] xs, double[] ys, int nbPoints);
+
+  /**
+   * Fills a polygon whose vertices are a slice of larger arrays, such as
+   * the packed vertices of several polygons, with the current fill color.
+   * Renderers able to read the slice in place override this method; by
+   * default the slice is copied out.
+   *
+   * @param xs the horizontal coordinates of the vertices
+   * @param ys the vertical coordinates of the vertices
+   * @param offset the index of the first vertex in the arrays
+   * @param nbPoints the number of vertices
+   */
+  default void fillPolygon(double[] xs, double[] ys, int offset, int nbPoints) {
+    if (offset == 0) {
+      fillPolygon(xs, ys, nbPoints);
+      return;
+    }
+    fillPolygon(Arrays.copyOfRange(xs, offset, offset + nbPoints),
+      Arrays.copyOfRange(ys, offset, offset + nbPoints), nbPoints);
+  }
+
+  /**
+   * Fills a shape rotated then translated, with the current fill color.
+   * Renderers may keep rasterized versions of the shapes they are given,
+   * so the same shape object should be passed for the same object drawn.
+   *
+   * @param shape a shape with center (0,0)
+   * @param angle the rotation of the shape in degree, as in Polygon.rotate
+   * @param x the horizontal position of the center of the shape
+   * @param y the vertical position of the center of the shape
+   */
+  default void fillShape(Polygon shape, double angle, double x, double y) {
+    Polygon placed = shape.rotate(angle).translate(new Vector(x, y));
+    int nbPoints = placed.nbVertices();
+    double[] xs = new double[nbPoints];
+    double[] ys = new double[nbPoints];
+    for (int i = 0; i < nbPoints; i++) {
+      xs[i] = placed.getVertex(i).getX();
+      ys[i] = placed.getVertex(i).getY();
+    }
+    fillPolygon(xs, ys, nbPoints);
+  }
+
+  /**
+   * Draws an image scaled to given dimensions.
+   *
+   * @param path the path of the image in the resources
+   * @param x the horizontal position of the top left corner
+   * @param y the vertical position of the top left corner
+   * @param width the width of the drawn image
+   * @param height the height of the drawn image
+   */
+  void drawImage(String path, double x, double y, double width, double height);
+
+  /**
+   * Draws an image scaled to given dimensions and rotated around its center.
+   *
+   * @param path the path of the image in the resources
+   * @param angle the clockwise rotation in degree
+   * @param x the horizontal position of the center of the image
+   * @param y the vertical position of the center of the image
+   * @param width the width of the drawn image
+   * @param height the height of the drawn image
+   */
+  void drawRotatedImage(String path, double angle,
+                        double x, double y, double width, double height);
+
+  /**
+   * Draws a text with the current fill color, in a bold font.
+   *
+   * @param text the text to draw
+   * @param x the horizontal position of the start of the text
+   * @param y the vertical position of the baseline of the text
+   * @param size the size of the font
+   */
+  void fillText(String text, double x, double y, double size);
+
+  /**
+   * Announces images that will be drawn rotated, always at the same
+   * dimensions, so that the renderer can prepare them.
+   *
+   * @param paths the paths of the images
+   * @param width the width at which the images are drawn
+   * @param height the height at which the images are drawn
+   */
+  default void prepareRotatedImages(List<String> paths, double width, double height) {
+  }
+
+  /**
+   * Ends a frame: renderers which defer the drawing operations complete
+   * them before returning.
+   */
+  default void flush() {
+  }
+}
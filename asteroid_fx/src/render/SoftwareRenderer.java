@@ -0,0 +1,558 @@
+package render;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * A renderer drawing into an array of ARGB pixels, without any graphical
+ * toolkit, for instance to render frames in tests or on a server.
+ * <p>
+ * Drawing operations are recorded, packed into arrays as in DisplayList
+ * so that recording allocates nothing once the arrays have grown, and
+ * rasterized when the frame is flushed. The frame is split into square
+ * tiles rasterized in parallel, each tile applying every operation that
+ * meets it in order, with scratch buffers kept by each thread. A pixel is
+ * covered by a shape when its center is, images are sampled at the
+ * nearest pixel, and only strict arithmetic is used, so the output is
+ * the same on every machine whatever the number of cores.
+ */
+public class SoftwareRenderer implements Renderer {
+
+  /**
+   * The side of the square tiles rasterized in parallel, in pixels.
+   */
+  public static final int TILE_SIZE = 64;
+
+  // the recorded operations, and their arguments after the color
+  private static final int CLEAR = 0;
+  private static final int FILL_RECT = 1;
+  private static final int FILL_POLYGON = 2; // n, x1, ..., xn, y1, ..., yn
+  private static final int DRAW_IMAGE = 3; // left, top, width, height + image
+  private static final int DRAW_ROTATED_IMAGE = 4; // x, y, cos, sin, width, height + image
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  /**
+   * The scratch buffers of a thread rasterizing polygons, grown as needed.
+   */
+  private static class Scratch {
+    double[] crossings = new double[0];
+    int[] windings = new int[0];
+  }
+
+  private static final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+
+  private final int width;
+  private final int height;
+  private final int[] pixels;
+  private final Map<String, Bitmap> images;
+
+  /* the recorded operations, packed as in DisplayList: for each operation,
+     its kind, its color, the bounding box of the pixels it may cover (the
+     maximums exclusive), and the start of its arguments; images are kept
+     apart, in the order of their operations */
+  private int[] operations = new int[INITIAL_CAPACITY];
+  private int[] colors = new int[INITIAL_CAPACITY];
+  private int[] bounds = new int[4 * INITIAL_CAPACITY];
+  private int[] argumentStarts = new int[INITIAL_CAPACITY];
+  private double[] arguments = new double[4 * INITIAL_CAPACITY];
+  private Bitmap[] references = new Bitmap[INITIAL_CAPACITY];
+  private int operationCount = 0;
+  private int argumentCount = 0;
+
+  private int fill = 0xff000000;
+  private double scale = 1;
+  private double translateX = 0;
+  private double translateY = 0;
+
+
+  /**
+   * @param width the width of the frame in pixels
+   * @param height the height of the frame in pixels
+   * @param images the images which can be drawn, by path
+   */
+  public SoftwareRenderer(int width, int height, Map<String, Bitmap> images) {
+    this.width = width;
+    this.height = height;
+    this.pixels = new int[width * height];
+    this.images = images;
+  }
+
+
+  @Override
+  public double getWidth() {
+    return width;
+  }
+
+  @Override
+  public double getHeight() {
+    return height;
+  }
+
+  /**
+   * @return the ARGB pixels of the frame as of the last flush, row by row.
+   */
+  public int[] getPixels() {
+    return pixels;
+  }
+
+
+  @Override
+  public void clear() {
+    Arrays.fill(references, 0, operationCount, null);
+    operationCount = 0;
+    argumentCount = 0;
+    record(CLEAR, 0, null, 0, 0, width, height);
+  }
+
+  @Override
+  public void setTransform(double scale, double translateX, double translateY) {
+    this.scale = scale;
+    this.translateX = translateX;
+    this.translateY = translateY;
+  }
+
+  @Override
+  public void setFill(int argb) {
+    fill = argb;
+  }
+
+
+  @Override
+  public void fillRect(double x, double y, double rectWidth, double rectHeight) {
+    record(FILL_RECT, fill, null, firstCenter(pixelX(x)), firstCenter(pixelY(y)),
+      firstCenter(pixelX(x + rectWidth)), firstCenter(pixelY(y + rectHeight)));
+  }
+
+
+  @Override
+  public void fillPolygon(double[] xs, double[] ys, int nbPoints) {
+    fillPolygon(xs, ys, 0, nbPoints);
+  }
+
+
+  @Override
+  public void fillPolygon(double[] xs, double[] ys, int offset, int nbPoints) {
+    if (nbPoints < 3) {
+      return;
+    }
+    int end = offset + nbPoints;
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = offset; i < end; i++) {
+      minX = Math.min(minX, pixelX(xs[i]));
+      minY = Math.min(minY, pixelY(ys[i]));
+      maxX = Math.max(maxX, pixelX(xs[i]));
+      maxY = Math.max(maxY, pixelY(ys[i]));
+    }
+    if (!record(FILL_POLYGON, fill, null, firstCenter(minX), firstCenter(minY),
+      firstCenter(maxX), firstCenter(maxY))) {
+      return;
+    }
+    argument(nbPoints);
+    for (int i = offset; i < end; i++) {
+      argument(pixelX(xs[i]));
+    }
+    for (int i = offset; i < end; i++) {
+      argument(pixelY(ys[i]));
+    }
+  }
+
+
+  /**
+   * Fills the part of a recorded polygon within a rectangle of pixels.
+   *
+   * @param start the index of the number of vertices in the arguments,
+   *              followed by the horizontal then the vertical coordinates
+   */
+  private void rasterizePolygon(int color, int start, int x0, int y0, int x1, int y1) {
+    int nbPoints = (int) arguments[start];
+    Scratch buffers = scratch.get();
+    if (buffers.crossings.length < nbPoints) {
+      buffers.crossings = new double[nbPoints];
+      buffers.windings = new int[nbPoints];
+    }
+    double[] crossings = buffers.crossings;
+    int[] windings = buffers.windings;
+    for (int py = y0; py < y1; py++) {
+      int count = crossings(arguments, start + 1, nbPoints, py + 0.5, crossings, windings);
+      int winding = 0;
+      for (int i = 0; i < count - 1; i++) {
+        winding += windings[i];
+        if (winding != 0) {
+          int from = Math.max(x0, firstCenter(crossings[i]));
+          int to = Math.min(x1, firstCenter(crossings[i + 1]));
+          for (int px = from; px < to; px++) {
+            blend(px, py, color);
+          }
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Computes where a horizontal line crosses the edges of a polygon, with
+   * the direction of each crossing, sorted from left to right.
+   *
+   * @param coordinates the array holding the horizontal coordinates of
+   *                    the vertices, followed by their vertical ones
+   * @param start the index of the first horizontal coordinate
+   * @param nbPoints the number of vertices
+   * @return the number of crossings
+   */
+  private static int crossings(double[] coordinates, int start, int nbPoints, double y,
+                               double[] crossings, int[] windings) {
+    int count = 0;
+    int ys = start + nbPoints;
+    for (int i = 0, j = nbPoints - 1; i < nbPoints; j = i++) {
+      double yi = coordinates[ys + i];
+      double yj = coordinates[ys + j];
+      boolean isUpward = yj <= y && y < yi;
+      boolean isDownward = yi <= y && y < yj;
+      if (!isUpward && !isDownward) {
+        continue;
+      }
+      double xi = coordinates[start + i];
+      double xj = coordinates[start + j];
+      double x = xj + (y - yj) * (xi - xj) / (yi - yj);
+      int winding = isUpward ? 1 : -1;
+      int k = count++;
+      while (k > 0 && crossings[k - 1] > x) {
+        crossings[k] = crossings[k - 1];
+        windings[k] = windings[k - 1];
+        k--;
+      }
+      crossings[k] = x;
+      windings[k] = winding;
+    }
+    return count;
+  }
+
+
+  @Override
+  public void drawImage(String path, double x, double y,
+                        double imageWidth, double imageHeight) {
+    Bitmap image = image(path);
+    double left = pixelX(x);
+    double top = pixelY(y);
+    double drawnWidth = scale * imageWidth;
+    double drawnHeight = scale * imageHeight;
+    if (record(DRAW_IMAGE, 0, image, firstCenter(left), firstCenter(top),
+      firstCenter(left + drawnWidth), firstCenter(top + drawnHeight))) {
+      argument(left);
+      argument(top);
+      argument(drawnWidth);
+      argument(drawnHeight);
+    }
+  }
+
+  private void rasterizeImage(Bitmap image, int start, int x0, int y0, int x1, int y1) {
+    double left = arguments[start];
+    double top = arguments[start + 1];
+    double drawnWidth = arguments[start + 2];
+    double drawnHeight = arguments[start + 3];
+    for (int py = y0; py < y1; py++) {
+      int v = sample((py + 0.5 - top) / drawnHeight, image.getHeight());
+      for (int px = x0; px < x1; px++) {
+        int u = sample((px + 0.5 - left) / drawnWidth, image.getWidth());
+        blend(px, py, image.getArgb(u, v));
+      }
+    }
+  }
+
+
+  @Override
+  public void drawRotatedImage(String path, double angle, double x, double y,
+                               double imageWidth, double imageHeight) {
+    Bitmap image = image(path);
+    double rad = StrictMath.toRadians(angle);
+    double centerX = pixelX(x);
+    double centerY = pixelY(y);
+    double drawnWidth = scale * imageWidth;
+    double drawnHeight = scale * imageHeight;
+    double radius = Math.hypot(drawnWidth, drawnHeight) / 2;
+    if (record(DRAW_ROTATED_IMAGE, 0, image,
+      firstCenter(centerX - radius), firstCenter(centerY - radius),
+      firstCenter(centerX + radius), firstCenter(centerY + radius))) {
+      argument(centerX);
+      argument(centerY);
+      argument(StrictMath.cos(rad));
+      argument(StrictMath.sin(rad));
+      argument(drawnWidth);
+      argument(drawnHeight);
+    }
+  }
+
+  private void rasterizeRotatedImage(Bitmap image, int start, int x0, int y0, int x1, int y1) {
+    double centerX = arguments[start];
+    double centerY = arguments[start + 1];
+    double cosine = arguments[start + 2];
+    double sine = arguments[start + 3];
+    double drawnWidth = arguments[start + 4];
+    double drawnHeight = arguments[start + 5];
+    for (int py = y0; py < y1; py++) {
+      double dy = py + 0.5 - centerY;
+      for (int px = x0; px < x1; px++) {
+        double dx = px + 0.5 - centerX;
+        double u = (cosine * dx + sine * dy) / drawnWidth + 0.5;
+        double v = (-sine * dx + cosine * dy) / drawnHeight + 0.5;
+        if (u >= 0 && u < 1 && v >= 0 && v < 1) {
+          blend(px, py, image.getArgb(
+            sample(u, image.getWidth()), sample(v, image.getHeight())));
+        }
+      }
+    }
+  }
+
+  /**
+   * @param path the path of an image
+   * @return the image, checked when the operation is recorded rather than
+   * when the tiles are rasterized in parallel
+   */
+  private Bitmap image(String path) {
+    Bitmap image = images.get(path);
+    if (image == null) {
+      throw new IllegalArgumentException("unknown image " + path);
+    }
+    return image;
+  }
+
+
+  /**
+   * Glyphs of the digits, 5 pixels wide and 7 pixels high, one row per
+   * 5 bits from the top, the leftmost pixel being the highest bit.
+   */
+  private static final int[][] DIGIT_GLYPHS = {
+    {0b01110, 0b10001, 0b10011, 0b10101, 0b11001, 0b10001, 0b01110},
+    {0b00100, 0b01100, 0b00100, 0b00100, 0b00100, 0b00100, 0b01110},
+    {0b01110, 0b10001, 0b00001, 0b00010, 0b00100, 0b01000, 0b11111},
+    {0b11111, 0b00010, 0b00100, 0b00010, 0b00001, 0b10001, 0b01110},
+    {0b00010, 0b00110, 0b01010, 0b10010, 0b11111, 0b00010, 0b00010},
+    {0b11111, 0b10000, 0b11110, 0b00001, 0b00001, 0b10001, 0b01110},
+    {0b00110, 0b01000, 0b10000, 0b11110, 0b10001, 0b10001, 0b01110},
+    {0b11111, 0b00001, 0b00010, 0b00100, 0b01000, 0b01000, 0b01000},
+    {0b01110, 0b10001, 0b10001, 0b01110, 0b10001, 0b10001, 0b01110},
+    {0b01110, 0b10001, 0b10001, 0b01111, 0b00001, 0b00010, 0b01100},
+  };
+
+  /**
+   * Draws the text with a built-in block font, so that the result does
+   * not depend on the fonts installed. Only digits are drawn, other
+   * characters are left blank. The blocks are scaled by fillRect.
+   */
+  @Override
+  public void fillText(String text, double x, double y, double size) {
+    double cell = size / 10;
+    double top = y - 7 * cell;
+    for (int c = 0; c < text.length(); c++) {
+      char character = text.charAt(c);
+      double left = x + c * 6 * cell;
+      if (character < '0' || character > '9') {
+        continue;
+      }
+      int[] glyph = DIGIT_GLYPHS[character - '0'];
+      for (int row = 0; row < glyph.length; row++) {
+        for (int column = 0; column < 5; column++) {
+          if ((glyph[row] & (0b10000 >> column)) != 0) {
+            fillRect(left + column * cell, top + row * cell, cell, cell);
+          }
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Rasterizes the recorded operations, tile by tile in parallel.
+   */
+  @Override
+  public void flush() {
+    int columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+    int rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+    IntStream.range(0, columns * rows).parallel().forEach(tile -> {
+      int x0 = (tile % columns) * TILE_SIZE;
+      int y0 = (tile / columns) * TILE_SIZE;
+      int x1 = Math.min(width, x0 + TILE_SIZE);
+      int y1 = Math.min(height, y0 + TILE_SIZE);
+      for (int operation = 0; operation < operationCount; operation++) {
+        int box = 4 * operation;
+        if (bounds[box] < x1 && bounds[box + 2] > x0
+          && bounds[box + 1] < y1 && bounds[box + 3] > y0) {
+          rasterize(operation,
+            Math.max(x0, bounds[box]), Math.max(y0, bounds[box + 1]),
+            Math.min(x1, bounds[box + 2]), Math.min(y1, bounds[box + 3]));
+        }
+      }
+    });
+    Arrays.fill(references, 0, operationCount, null);
+    operationCount = 0;
+    argumentCount = 0;
+  }
+
+
+  /**
+   * Draws the part of a recorded operation within a rectangle of pixels.
+   */
+  private void rasterize(int operation, int x0, int y0, int x1, int y1) {
+    int color = colors[operation];
+    int start = argumentStarts[operation];
+    switch (operations[operation]) {
+      case CLEAR:
+        for (int y = y0; y < y1; y++) {
+          Arrays.fill(pixels, y * width + x0, y * width + x1, 0);
+        }
+        break;
+      case FILL_RECT:
+        for (int py = y0; py < y1; py++) {
+          for (int px = x0; px < x1; px++) {
+            blend(px, py, color);
+          }
+        }
+        break;
+      case FILL_POLYGON:
+        rasterizePolygon(color, start, x0, y0, x1, y1);
+        break;
+      case DRAW_IMAGE:
+        rasterizeImage(references[operation], start, x0, y0, x1, y1);
+        break;
+      case DRAW_ROTATED_IMAGE:
+        rasterizeRotatedImage(references[operation], start, x0, y0, x1, y1);
+        break;
+      default:
+        throw new IllegalStateException("unknown operation " + operations[operation]);
+    }
+  }
+
+
+  /**
+   * Composes layers drawn by software renderers of the same dimensions,
+   * from the bottom one to the top one.
+   *
+   * @param layers the layers, already flushed, from the bottom
+   * @return the ARGB pixels of the composed frame
+   */
+  public static int[] compose(SoftwareRenderer... layers) {
+    int[] frame = layers[0].getPixels().clone();
+    for (int layer = 1; layer < layers.length; layer++) {
+      int[] layerPixels = layers[layer].getPixels();
+      for (int i = 0; i < frame.length; i++) {
+        frame[i] = over(layerPixels[i], frame[i]);
+      }
+    }
+    return frame;
+  }
+
+
+  /**
+   * Records an operation, unless the pixels it may cover are all outside
+   * the frame; its arguments are to be added next.
+   *
+   * @return whether the operation was recorded
+   */
+  private boolean record(int operation, int color, Bitmap reference,
+                         int minX, int minY, int maxX, int maxY) {
+    minX = Math.max(0, minX);
+    minY = Math.max(0, minY);
+    maxX = Math.min(width, maxX);
+    maxY = Math.min(height, maxY);
+    if (minX >= maxX || minY >= maxY) {
+      return false;
+    }
+    if (operationCount == operations.length) {
+      int capacity = 2 * operations.length;
+      operations = Arrays.copyOf(operations, capacity);
+      colors = Arrays.copyOf(colors, capacity);
+      bounds = Arrays.copyOf(bounds, 4 * capacity);
+      argumentStarts = Arrays.copyOf(argumentStarts, capacity);
+      references = Arrays.copyOf(references, capacity);
+    }
+    operations[operationCount] = operation;
+    colors[operationCount] = color;
+    references[operationCount] = reference;
+    argumentStarts[operationCount] = argumentCount;
+    int box = 4 * operationCount;
+    bounds[box] = minX;
+    bounds[box + 1] = minY;
+    bounds[box + 2] = maxX;
+    bounds[box + 3] = maxY;
+    operationCount++;
+    return true;
+  }
+
+  private void argument(double value) {
+    if (argumentCount == arguments.length) {
+      arguments = Arrays.copyOf(arguments, 2 * arguments.length);
+    }
+    arguments[argumentCount++] = value;
+  }
+
+  private void blend(int x, int y, int argb) {
+    int index = y * width + x;
+    pixels[index] = over(argb, pixels[index]);
+  }
+
+
+  /**
+   * @param x a horizontal coordinate, transformed by the current transform
+   * @return the horizontal position in pixels
+   */
+  private double pixelX(double x) {
+    return scale * x + translateX;
+  }
+
+  /**
+   * @param y a vertical coordinate, transformed by the current transform
+   * @return the vertical position in pixels
+   */
+  private double pixelY(double y) {
+    return scale * y + translateY;
+  }
+
+
+  /**
+   * @param coordinate a coordinate
+   * @return the first pixel whose center is at or after the coordinate
+   */
+  private static int firstCenter(double coordinate) {
+    return (int) Math.ceil(coordinate - 0.5);
+  }
+
+  /**
+   * @param ratio a position in an image, between 0 and 1
+   * @param size the size of the image in pixels
+   * @return the pixel at that position
+   */
+  private static int sample(double ratio, int size) {
+    return Math.min(size - 1, Math.max(0, (int) Math.floor(ratio * size)));
+  }
+
+
+  /**
+   * Composes a color over another one, with non premultiplied alpha.
+   *
+   * @param source the ARGB color on top
+   * @param destination the ARGB color below
+   * @return the ARGB composed color
+   */
+  private static int over(int source, int destination) {
+    int sourceAlpha = source >>> 24;
+    if (sourceAlpha == 255) return source;
+    if (sourceAlpha == 0) return destination;
+    int destinationAlpha = (destination >>> 24) * (255 - sourceAlpha) / 255;
+    int alpha = sourceAlpha + destinationAlpha;
+    int result = alpha << 24;
+    for (int shift = 0; shift < 24; shift += 8) {
+      int sourceChannel = (source >>> shift) & 0xff;
+      int destinationChannel = (destination >>> shift) & 0xff;
+      int channel =
+        (sourceChannel * sourceAlpha + destinationChannel * destinationAlpha) / alpha;
+      result |= channel << shift;
+    }
+    return result;
+  }
+}
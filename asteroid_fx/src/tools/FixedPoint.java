@@ -0,0 +1,202 @@
+package tools;
+
+/**
+ * Fixed-point numbers in the 32.32 format: a value v is stored in a long
+ * as v * 2^32, rounded, for values between -2^31 and 2^31 with a
+ * precision of 2^-32. Operations only use integer arithmetic, and the trigonometric
+ * functions read tables built once with StrictMath, so their results are
+ * bit-for-bit the same on every JVM, with or without intrinsics.
+ * <p>
+ * When the property space.fixedPoint is set, the simulation takes its
+ * rotations and trigonometry from this class instead of Math, see
+ * SimulationMath. Basic double arithmetic and Math.sqrt are already
+ * exactly rounded in Java, so they are kept.
+ */
+public final class FixedPoint {
+
+  /**
+   * Whether the simulation uses the deterministic math of this class.
+   */
+  public static final boolean IS_ENABLED = Boolean.getBoolean("space.fixedPoint");
+
+  /**
+   * The number 1.
+   */
+  public static final long ONE = 1L << 32;
+
+
+  private FixedPoint() {
+  }
+
+
+  /**
+   * @param value a number between -2^31 and 2^31
+   * @return the nearest fixed-point number
+   */
+  public static long fromDouble(double value) {
+    return Math.round(value * ONE);
+  }
+
+  /**
+   * @param value a fixed-point number
+   * @return the nearest double
+   */
+  public static double toDouble(long value) {
+    return value * (1.0 / ONE);
+  }
+
+  /**
+   * @param a a fixed-point number
+   * @param b a fixed-point number
+   * @return the product a * b, rounded down
+   */
+  public static long multiply(long a, long b) {
+    return (Math.multiplyHigh(a, b) << FRACTION_BITS) | ((a * b) >>> FRACTION_BITS);
+  }
+
+  /**
+   * @param a a fixed-point number
+   * @param b a fixed-point number, not zero
+   * @return the quotient a / b, rounded toward zero, valid when it is
+   * below 1 in absolute value
+   */
+  private static long divideBelowOne(long a, long b) {
+    // long division bit by bit, as a * 2^32 does not fit in a long
+    long quotient = 0;
+    long remainder = a;
+    for (int i = 0; i < FRACTION_BITS; i++) {
+      remainder <<= 1;
+      quotient <<= 1;
+      if (Long.compareUnsigned(remainder, b) >= 0) {
+        remainder -= b;
+        quotient |= 1;
+      }
+    }
+    return quotient;
+  }
+
+
+  /**
+   * @param degrees a fixed-point angle in degrees
+   * @return the fixed-point sine of the angle
+   */
+  public static long sin(long degrees) {
+    return sinOfTurn(toTurn(degrees));
+  }
+
+  /**
+   * @param degrees a fixed-point angle in degrees
+   * @return the fixed-point cosine of the angle
+   */
+  public static long cos(long degrees) {
+    return sinOfTurn(toTurn(degrees) + QUARTER_TURN);
+  }
+
+  /**
+   * @param y a fixed-point ordinate
+   * @param x a fixed-point abscissa
+   * @return the fixed-point angle in degrees from the horizontal to (x, y),
+   * between -180 and 180, positive when y is positive, like Math.atan2
+   */
+  public static long atan2(long y, long x) {
+    if (x == 0 && y == 0) {
+      return 0;
+    }
+    long absX = Math.abs(x);
+    long absY = Math.abs(y);
+    // the angle in the first octant, then moved to the right one
+    long angle = (absY <= absX) ?
+      atanBelowOne(absY, absX) :
+      NINETY_DEGREES - atanBelowOne(absX, absY);
+    if (x < 0) {
+      angle = 2 * NINETY_DEGREES - angle;
+    }
+    return (y < 0) ? -angle : angle;
+  }
+
+
+  /**
+   * @param degrees a fixed-point angle in degrees
+   * @return the angle as a fraction of turn, in the low 32 bits
+   */
+  private static long toTurn(long degrees) {
+    return Math.floorMod(degrees, 360 * ONE) / 360;
+  }
+
+  /**
+   * @param turn an angle as a fraction of turn, in the low 32 bits
+   * @return the fixed-point sine of the angle, interpolated in the table
+   * of the first quarter turn
+   */
+  private static long sinOfTurn(long turn) {
+    int quadrant = (int) (turn >>> QUADRANT_BITS) & 3;
+    long offset = turn & (QUARTER_TURN - 1);
+    if ((quadrant & 1) != 0) {
+      offset = QUARTER_TURN - offset;
+    }
+    int index = (int) (offset >>> SINE_STEP_BITS);
+    long fraction = offset & ((1L << SINE_STEP_BITS) - 1);
+    long value = SINES[index] + (((SINES[index + 1] - SINES[index]) * fraction) >> SINE_STEP_BITS);
+    return (quadrant >= 2) ? -value : value;
+  }
+
+  /**
+   * @param y a non-negative fixed-point number
+   * @param x a fixed-point number, larger than y
+   * @return the fixed-point arctangent of y / x in degrees, interpolated in
+   * the table of arctangents between 0 and 1
+   */
+  private static long atanBelowOne(long y, long x) {
+    long ratio = (y == x) ? ONE : divideBelowOne(y, x);
+    int index = (int) (ratio >>> ARCTANGENT_STEP_BITS);
+    long fraction = ratio & ((1L << ARCTANGENT_STEP_BITS) - 1);
+    return ARCTANGENTS[index]
+      + (((ARCTANGENTS[index + 1] - ARCTANGENTS[index]) * fraction) >> ARCTANGENT_STEP_BITS);
+  }
+
+
+  /**
+   * @return the fixed-point sines of the first quarter turn, at equal
+   * steps, with one more entry past the end for interpolation.
+   */
+  private static long[] sineTable() {
+    long[] table = new long[TABLE_SIZE + 2];
+    for (int i = 0; i <= TABLE_SIZE; i++) {
+      table[i] = fromDouble(StrictMath.sin(StrictMath.PI / 2 * i / TABLE_SIZE));
+    }
+    table[TABLE_SIZE + 1] = table[TABLE_SIZE];
+    return table;
+  }
+
+  /**
+   * @return the fixed-point arctangents in degrees of numbers between 0
+   * and 1, at equal steps, with one more entry past the end for
+   * interpolation.
+   */
+  private static long[] arctangentTable() {
+    long[] table = new long[TABLE_SIZE + 2];
+    for (int i = 0; i <= TABLE_SIZE; i++) {
+      table[i] = fromDouble(StrictMath.toDegrees(StrictMath.atan((double) i / TABLE_SIZE)));
+    }
+    table[TABLE_SIZE + 1] = table[TABLE_SIZE];
+    return table;
+  }
+
+
+  // the number of bits after the point
+  private static final int FRACTION_BITS = 32;
+
+  // angles as fractions of turn: 2^32 per turn, 2^30 per quarter turn
+  private static final int QUADRANT_BITS = 30;
+  private static final long QUARTER_TURN = 1L << QUADRANT_BITS;
+  private static final long NINETY_DEGREES = 90 * ONE;
+
+  // the tables have 2^12 steps, interpolated linearly: the error is about
+  // 2e-8 for sines and 3e-7 degree for arctangents
+  private static final int TABLE_BITS = 12;
+  private static final int TABLE_SIZE = 1 << TABLE_BITS;
+  private static final int SINE_STEP_BITS = QUADRANT_BITS - TABLE_BITS;
+  private static final int ARCTANGENT_STEP_BITS = FRACTION_BITS - TABLE_BITS;
+  private static final long[] SINES = sineTable();
+  private static final long[] ARCTANGENTS = arctangentTable();
+}
@@ -1,6 +1,7 @@
 package tools;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
 
@@ -25,6 +26,25 @@ public class Polygon {
     return vertices.size();
   }
 
+  /**
+   * @param index the index of a vertex, between 0 and nbVertices() - 1
+   * @return the vertex with that index
+   */
+  public Vector getVertex(int index) {
+    return vertices.get(index);
+  }
+
+  /**
+   * @return the largest distance from (0,0) to a vertex of this polygon.
+   */
+  public double radius() {
+    double radius2 = 0;
+    for (Vector vertex : vertices) {
+      radius2 = Math.max(radius2, vertex.norm2());
+    }
+    return Math.sqrt(radius2);
+  }
+
   /** Checks whether an arbitrary point is inside or outside the polygon.
    * @param point an arbitrary point
    * @return true if the point is inside the polygon
@@ -73,6 +93,44 @@ public class Polygon {
   }
 
 
+  /**
+   * Computes the convex hull of the polygon, with Andrew's monotone chain
+   * algorithm. Vertices inside the hull or on its edges are dropped.
+   *
+   * @return the smallest convex polygon containing this one, with its
+   * vertices in counterclockwise order (positive signed area).
+   */
+  public Polygon convexHull() {
+    List<Vector> sorted = new ArrayList<>(vertices);
+    sorted.sort((first, second) -> (first.getX() != second.getX()) ?
+      Double.compare(first.getX(), second.getX()) :
+      Double.compare(first.getY(), second.getY()));
+    List<Vector> hull = new ArrayList<>(2 * sorted.size());
+    for (int pass = 0; pass < 2; pass++) {
+      int chainStart = hull.size();
+      for (Vector vertex : sorted) {
+        while (hull.size() >= chainStart + 2
+          && cross(hull.get(hull.size() - 2), hull.get(hull.size() - 1), vertex) <= 0) {
+          hull.remove(hull.size() - 1);
+        }
+        hull.add(vertex);
+      }
+      hull.remove(hull.size() - 1); // first vertex of the other chain
+      Collections.reverse(sorted);
+    }
+    return new Polygon(hull);
+  }
+
+  /**
+   * @return the cross product of (b - a) and (c - a), positive when a, b, c
+   * turn counterclockwise
+   */
+  private static double cross(Vector a, Vector b, Vector c) {
+    return (b.getX() - a.getX()) * (c.getY() - a.getY())
+      - (b.getY() - a.getY()) * (c.getX() - a.getX());
+  }
+
+
   /**
    * @return the list of vertices defining the polygon
    */
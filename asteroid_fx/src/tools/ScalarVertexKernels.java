@@ -0,0 +1,37 @@
+package tools;
+
+/**
+ * The batch kernels computed one value at a time, used when the module
+ * jdk.incubator.vector is not available.
+ */
+class ScalarVertexKernels implements VertexKernels {
+
+  @Override
+  public void transform(double[] localXs, double[] localYs, int from, int to,
+                        double[] cosines, double[] sines, double[] centerXs, double[] centerYs,
+                        double[] xs, double[] ys) {
+    for (int i = from; i < to; i++) {
+      xs[i] = cosines[i] * localXs[i] + sines[i] * localYs[i] + centerXs[i];
+      ys[i] = -sines[i] * localXs[i] + cosines[i] * localYs[i] + centerYs[i];
+    }
+  }
+
+
+  @Override
+  public int findOverlaps(double x, double y, double radius,
+                          double[] xs, double[] ys, double[] radii, int from, int to,
+                          double width, double height, int[] overlaps) {
+    int count = 0;
+    for (int i = from; i < to; i++) {
+      double dx = Math.abs(xs[i] - x);
+      double dy = Math.abs(ys[i] - y);
+      dx = Math.min(dx, width - dx);
+      dy = Math.min(dy, height - dy);
+      double distance = radius + radii[i];
+      if (dx * dx + dy * dy < distance * distance) {
+        overlaps[count++] = i;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,65 @@
+package tools;
+
+/**
+ * The math functions on which the simulation depends. By default they are
+ * those of Math, which are fast but may give slightly different results
+ * from one JVM to another, or once compiled to intrinsics. When the
+ * property space.fixedPoint is set, they are computed in fixed-point with
+ * FixedPoint, so that the simulation gives bit-for-bit the same results
+ * everywhere, for replays and lockstep.
+ */
+public final class SimulationMath {
+
+  private SimulationMath() {
+  }
+
+
+  /**
+   * @param degrees an angle in degrees
+   * @return the sine of the angle
+   */
+  public static double sin(double degrees) {
+    if (FixedPoint.IS_ENABLED) {
+      return FixedPoint.toDouble(FixedPoint.sin(FixedPoint.fromDouble(degrees)));
+    }
+    return Math.sin(Math.toRadians(degrees));
+  }
+
+  /**
+   * @param degrees an angle in degrees
+   * @return the cosine of the angle
+   */
+  public static double cos(double degrees) {
+    if (FixedPoint.IS_ENABLED) {
+      return FixedPoint.toDouble(FixedPoint.cos(FixedPoint.fromDouble(degrees)));
+    }
+    return Math.cos(Math.toRadians(degrees));
+  }
+
+  /**
+   * @param y an ordinate
+   * @param x an abscissa
+   * @return the angle in degrees from the horizontal to (x, y), between
+   * -180 and 180, positive when y is positive
+   */
+  public static double atan2(double y, double x) {
+    if (FixedPoint.IS_ENABLED) {
+      return FixedPoint.toDouble(FixedPoint.atan2(FixedPoint.fromDouble(y), FixedPoint.fromDouble(x)));
+    }
+    return Math.toDegrees(Math.atan2(y, x));
+  }
+
+  /**
+   * @param x an abscissa
+   * @param y an ordinate
+   * @return the norm of (x, y); unlike Math.hypot, it may overflow for
+   * huge values in fixed-point mode
+   */
+  public static double hypot(double x, double y) {
+    if (FixedPoint.IS_ENABLED) {
+      // Math.sqrt is exactly rounded, Math.hypot is not
+      return Math.sqrt(x * x + y * y);
+    }
+    return Math.hypot(x, y);
+  }
+}
@@ -88,6 +88,9 @@ public class Vector {
    * @return the rotated vector
    */
   public Vector rotate(double degrees) {
+    if (FixedPoint.IS_ENABLED) {
+      return rotateInFixedPoint(degrees);
+    }
     double rad = Math.toRadians(degrees);
     double sine = Math.sin(rad);
     double cosine = Math.cos(rad);
@@ -98,6 +101,25 @@ public class Vector {
   }
 
 
+  /**
+   * Rotates this in fixed-point, which gives the same result on every JVM.
+   *
+   * @param degrees degrees of counterclockwise rotation
+   * @return the rotated vector
+   */
+  private Vector rotateInFixedPoint(double degrees) {
+    long angle = FixedPoint.fromDouble(degrees);
+    long sine = FixedPoint.sin(angle);
+    long cosine = FixedPoint.cos(angle);
+    long x = FixedPoint.fromDouble(this.getX());
+    long y = FixedPoint.fromDouble(this.getY());
+    return new Vector(
+      FixedPoint.toDouble(FixedPoint.multiply(cosine, x) + FixedPoint.multiply(sine, y)),
+      FixedPoint.toDouble(FixedPoint.multiply(-sine, x) + FixedPoint.multiply(cosine, y))
+    );
+  }
+
+
   /** Translating a point (considering this as a point)
    * @param displacement a vector of displacement
    * @return The point (as a vector) this + displacement
@@ -133,6 +155,10 @@ public class Vector {
     Vector vec1 = this.normalize();
     Vector vec2 = vec.normalize();
     double cos = vec1.dotProduct(vec2);
+    if (FixedPoint.IS_ENABLED) {
+      double sin = vec1.getX() * vec2.getY() - vec1.getY() * vec2.getX();
+      return SimulationMath.atan2(sin, cos);
+    }
     double theta = Math.toDegrees(Math.acos(Math.min(1,Math.max(-1,cos))));
     return
       (new Vector(-vec1.getY(), vec1.getX()).dotProduct(vec2) > 0) ? theta : -theta;
@@ -0,0 +1,91 @@
+package tools;
+
+/**
+ * Batch kernels for the hottest geometric work: placing the vertices of
+ * many polygons, and testing many bounding circles against one. Data is
+ * packed in arrays of coordinates rather than in Vector objects.
+ * <p>
+ * The fastest available implementation is given by INSTANCE: one using
+ * SIMD instructions through the module jdk.incubator.vector, when it is
+ * loaded (run with --add-modules jdk.incubator.vector), and a scalar one
+ * otherwise, or when the property space.simd is false. Both compute the
+ * same operations in the same order, so their results are bit-for-bit
+ * the same.
+ * <p>
+ * The SIMD kernels are compiled separately, from the source set src-simd
+ * (see SimdVertexKernels); without them, the scalar kernels are used.
+ */
+public interface VertexKernels {
+
+  /**
+   * The fastest kernels available.
+   */
+  VertexKernels INSTANCE = load();
+
+
+  /**
+   * Rotates then translates a range of vertices, each by the rotation and
+   * translation given at its own index, so that the vertices of many
+   * polygons are placed in one pass, without a short loop per polygon; a
+   * vertex (x, y) is placed at (cos * x + sin * y + centerX,
+   * -sin * x + cos * y + centerY), as Vector.rotate does.
+   *
+   * @param localXs the horizontal coordinates of the vertices, around (0,0)
+   * @param localYs the vertical coordinates of the vertices, around (0,0)
+   * @param from the first vertex to transform
+   * @param to the vertex following the last one to transform
+   * @param cosines the cosine of the rotation of each vertex
+   * @param sines the sine of the rotation of each vertex
+   * @param centerXs the horizontal translation of each vertex
+   * @param centerYs the vertical translation of each vertex
+   * @param xs the array receiving the transformed horizontal coordinates
+   * @param ys the array receiving the transformed vertical coordinates
+   */
+  void transform(double[] localXs, double[] localYs, int from, int to,
+                 double[] cosines, double[] sines, double[] centerXs, double[] centerYs,
+                 double[] xs, double[] ys);
+
+  /**
+   * Finds the circles meeting a given circle, in a space wrapping around
+   * as a torus: the distance between centers is measured to the nearest
+   * copy.
+   *
+   * @param x the horizontal coordinate of the center of the given circle
+   * @param y the vertical coordinate of the center of the given circle
+   * @param radius the radius of the given circle
+   * @param xs the horizontal coordinates of the centers of the circles,
+   *           between 0 and width
+   * @param ys the vertical coordinates of the centers of the circles,
+   *           between 0 and height
+   * @param radii the radii of the circles
+   * @param from the first circle to test
+   * @param to the circle following the last one to test
+   * @param width the width of space
+   * @param height the height of space
+   * @param overlaps the array receiving the indices of the circles meeting
+   *                 the given one, in increasing order
+   * @return the number of circles meeting the given one
+   */
+  int findOverlaps(double x, double y, double radius,
+                   double[] xs, double[] ys, double[] radii, int from, int to,
+                   double width, double height, int[] overlaps);
+
+
+  /**
+   * @return the SIMD kernels if the module jdk.incubator.vector is loaded
+   * and they are not disabled, the scalar kernels otherwise
+   */
+  private static VertexKernels load() {
+    boolean isSimdAllowed = Boolean.parseBoolean(System.getProperty("space.simd", "true"));
+    if (isSimdAllowed && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+      try {
+        // loaded by name, so that this interface links without the module
+        return (VertexKernels)
+          Class.forName("tools.SimdVertexKernels").getDeclaredConstructor().newInstance();
+      } catch (ReflectiveOperationException | LinkageError e) {
+        // the scalar kernels below do the same work
+      }
+    }
+    return new ScalarVertexKernels();
+  }
+}
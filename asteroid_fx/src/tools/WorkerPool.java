@@ -0,0 +1,78 @@
+package tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The worker threads shared by the parallel parts of the game: the
+ * collisions and the gravity of the simulation, and the preparation of
+ * the frames. There is one worker per processor; the threads are daemons,
+ * so they do not keep the application alive.
+ * <p>
+ * Tasks must not wait for other tasks of the pool, or the pool could run
+ * out of threads.
+ */
+public final class WorkerPool {
+
+  /**
+   * The number of worker threads.
+   */
+  public static final int WORKER_COUNT = Runtime.getRuntime().availableProcessors();
+
+
+  private WorkerPool() {
+  }
+
+
+  /**
+   * Runs tasks on the workers and waits for all of them. A single task is
+   * run on the calling thread, as handing it over would cost more than
+   * running it.
+   *
+   * @param tasks the tasks to run
+   * @return the results of the tasks, in order
+   */
+  public static <T> List<T> runAll(List<? extends Callable<T>> tasks) {
+    List<T> results = new ArrayList<>(tasks.size());
+    if (tasks.size() == 1) {
+      try {
+        results.add(tasks.get(0).call());
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+      return results;
+    }
+    try {
+      for (Future<T> future : workers.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+    return results;
+  }
+
+  /**
+   * Starts a task on a worker, without waiting for it.
+   *
+   * @param task the task to run
+   */
+  public static void execute(Runnable task) {
+    workers.execute(task);
+  }
+
+
+  private static final ExecutorService workers =
+    Executors.newFixedThreadPool(WORKER_COUNT, runnable -> {
+      Thread thread = new Thread(runnable, "worker");
+      thread.setDaemon(true);
+      return thread;
+    });
+}
@@ -1,6 +1,8 @@
 package viewModel;
 
 import game.Asteroid;
+import game.ParticleSystem;
+import game.PowerUp;
 import game.Space;
 import game.Spaceship;
 import views.View;
@@ -52,6 +54,50 @@ public class ViewModel {
     gameState.getSpaceship().stopMainEngine();
   }
 
+  /**
+   * Command to start the reverse engine of the player's spaceship
+   */
+  public void startSpaceshipReverseEngine() {
+    gameState.getSpaceship().startReverseEngine();
+  }
+
+  /**
+   * Command to stop the reverse engine of the player's spaceship
+   */
+  public void stopSpaceshipReverseEngine() {
+    gameState.getSpaceship().stopReverseEngine();
+  }
+
+  /**
+   * Command to start the engine turning the player's spaceship clockwise
+   */
+  public void startSpaceshipClockwiseEngine() {
+    gameState.getSpaceship().startClockwiseEngine();
+  }
+
+  /**
+   * Command to stop the engine turning the player's spaceship clockwise
+   */
+  public void stopSpaceshipClockwiseEngine() {
+    gameState.getSpaceship().stopClockwiseEngine();
+  }
+
+  /**
+   * Command to start the engine turning the player's spaceship
+   * counterclockwise
+   */
+  public void startSpaceshipCounterclockwiseEngine() {
+    gameState.getSpaceship().startCounterclockwiseEngine();
+  }
+
+  /**
+   * Command to stop the engine turning the player's spaceship
+   * counterclockwise
+   */
+  public void stopSpaceshipCounterclockwiseEngine() {
+    gameState.getSpaceship().stopCounterclockwiseEngine();
+  }
+
 
   /**
    * @return whether the game is over
@@ -69,6 +115,37 @@ public class ViewModel {
   }
 
 
+  /**
+   * Finds the asteroids which may be visible in an area of space.
+   *
+   * @param minX the left of the area, possibly beyond the borders of space
+   * @param minY the top of the area, possibly beyond the borders of space
+   * @param maxX the right of the area
+   * @param maxY the bottom of the area
+   * @param result the list receiving the asteroids, cleared first
+   */
+  public void findAsteroids(double minX, double minY, double maxX, double maxY,
+                            List<Asteroid> result) {
+    gameState.findAsteroids(minX, minY, maxX, maxY, result);
+  }
+
+
+  /**
+   * @return the list of power-ups to display
+   */
+  public List<PowerUp> getPowerUps() {
+    return gameState.getPowerUps();
+  }
+
+
+  /**
+   * @return the particles to display
+   */
+  public ParticleSystem getParticles() {
+    return gameState.getParticles();
+  }
+
+
   /**
    * @return the state of the spaceship
    */
@@ -77,6 +154,22 @@ public class ViewModel {
   }
 
 
+  /**
+   * @return the width of space, in world units
+   */
+  public double getSpaceWidth() {
+    return Space.SPACE_WIDTH;
+  }
+
+
+  /**
+   * @return the height of space, in world units
+   */
+  public double getSpaceHeight() {
+    return Space.SPACE_HEIGHT;
+  }
+
+
   /**
    * @return the current score
    */
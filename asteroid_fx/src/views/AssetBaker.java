@@ -0,0 +1,147 @@
+package views;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Build step producing the asset bundle read by AssetBundle. Every image
+ * of Assets is scaled to the size at which the renderer draws it, plus a
+ * double-size level for high density displays when the source is large
+ * enough, and halved levels down to MIN_LEVEL_SIZE pixels.
+ * <p>
+ * The sources are the PNG masters: the JDK cannot rasterize the SVG
+ * files, and their PNG exports are at least as large as the drawn sizes.
+ * <p>
+ * Usage: {@code java views.AssetBaker [output file]}, the default output
+ * being src/resources/assets.bin.
+ */
+public class AssetBaker {
+
+  private static final String DEFAULT_OUTPUT = "src/resources/assets.bin";
+
+  /**
+   * Levels smaller than this, in both dimensions, are not baked.
+   */
+  private static final int MIN_LEVEL_SIZE = 8;
+
+  // the sizes at which CanvasView draws the images
+  private static final int SHIP_WIDTH = 57;
+  private static final int SHIP_HEIGHT = 46;
+  private static final int POWERUP_SIZE = 30;
+
+  private static final List<String> shipImgs = List.of(
+    Assets.spaceshipImg,
+    Assets.engineBurningImg,
+    Assets.reverseBurningImg,
+    Assets.clockwiseBurningImg,
+    Assets.counterclockwiseBurningImg);
+
+
+  public static void main(String[] args) throws IOException {
+    String output = (args.length > 0) ? args[0] : DEFAULT_OUTPUT;
+    List<List<BufferedImage>> images = new ArrayList<>();
+    for (String path : Assets.IMAGE_PATHS) {
+      images.add(bake(path));
+    }
+    try (DataOutputStream out = new DataOutputStream(
+           new BufferedOutputStream(new FileOutputStream(output)))) {
+      writeHeader(out, images);
+      for (List<BufferedImage> levels : images) {
+        for (BufferedImage level : levels) {
+          writePixels(out, level);
+        }
+      }
+    }
+    System.out.println("baked " + images.size() + " images into " + output);
+  }
+
+
+  /**
+   * @param path the path of an image
+   * @return the mip levels of the image, from the largest
+   */
+  private static List<BufferedImage> bake(String path) throws IOException {
+    BufferedImage source = ImageIO.read(AssetBaker.class.getResource(path));
+    boolean isShip = shipImgs.contains(path);
+    int width = isShip ? SHIP_WIDTH : POWERUP_SIZE;
+    int height = isShip ? SHIP_HEIGHT : POWERUP_SIZE;
+    if (source.getWidth() >= 2 * width && source.getHeight() >= 2 * height) {
+      width = 2 * width;
+      height = 2 * height;
+    }
+    List<BufferedImage> levels = new ArrayList<>();
+    BufferedImage level = scale(source, width, height);
+    while (width >= MIN_LEVEL_SIZE || height >= MIN_LEVEL_SIZE) {
+      levels.add(level);
+      width = Math.max(1, width / 2);
+      height = Math.max(1, height / 2);
+      level = scale(level, width, height);
+    }
+    return levels;
+  }
+
+
+  /**
+   * Scales an image by successive halvings, then a last bilinear step,
+   * which avoids the aliasing of a single large reduction.
+   */
+  private static BufferedImage scale(BufferedImage image, int width, int height) {
+    BufferedImage current = image;
+    while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height) {
+      current = resize(current, current.getWidth() / 2, current.getHeight() / 2);
+    }
+    return resize(current, width, height);
+  }
+
+  private static BufferedImage resize(BufferedImage image, int width, int height) {
+    BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D graphics = result.createGraphics();
+    graphics.setRenderingHint(
+      RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    graphics.drawImage(image, 0, 0, width, height, null);
+    graphics.dispose();
+    return result;
+  }
+
+
+  private static void writeHeader(DataOutputStream out,
+                                  List<List<BufferedImage>> images)
+    throws IOException {
+    out.writeInt(AssetBundle.MAGIC);
+    out.writeInt(AssetBundle.VERSION);
+    out.writeInt(images.size());
+    int offset = 0;
+    for (int i = 0; i < images.size(); i++) {
+      byte[] path = Assets.IMAGE_PATHS.get(i).getBytes(StandardCharsets.UTF_8);
+      out.writeShort(path.length);
+      out.write(path);
+      out.writeInt(images.get(i).size());
+      for (BufferedImage level : images.get(i)) {
+        out.writeInt(level.getWidth());
+        out.writeInt(level.getHeight());
+        out.writeInt(offset);
+        offset += level.getWidth() * level.getHeight();
+      }
+    }
+  }
+
+  private static void writePixels(DataOutputStream out, BufferedImage level)
+    throws IOException {
+    int[] row = new int[level.getWidth()];
+    for (int y = 0; y < level.getHeight(); y++) {
+      level.getRGB(0, y, level.getWidth(), 1, row, 0, level.getWidth());
+      for (int argb : row) {
+        out.writeInt(argb);
+      }
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package views;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A packed file of pre-scaled images, produced by AssetBaker. Each image
+ * is stored at several mip levels, from the largest to the smallest, as
+ * raw ARGB pixels, so that they can be used without decoding or scaling.
+ * <p>
+ * Layout, in big-endian order: the magic number and the version, the
+ * number of images, then for each image its path, its number of levels
+ * and for each level its width, height and offset in pixels from the
+ * start of the pixel data; then the pixel data.
+ */
+public class AssetBundle {
+
+  public static final int MAGIC = 0x41535442; // "ASTB"
+  public static final int VERSION = 1;
+
+  /**
+   * Where the bundle is looked for, on the classpath.
+   */
+  public static final String BUNDLE_PATH = "/resources/assets.bin";
+
+  /**
+   * One pre-scaled version of an image.
+   */
+  public static class Level {
+
+    public final int width;
+    public final int height;
+    private final int offset;
+
+    Level(int width, int height, int offset) {
+      this.width = width;
+      this.height = height;
+      this.offset = offset;
+    }
+  }
+
+
+  private final Map<String, Level[]> levels;
+  private final IntBuffer pixels;
+
+
+  private AssetBundle(ByteBuffer buffer) {
+    if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+      throw new IllegalStateException("not an asset bundle of version " + VERSION);
+    }
+    int imageCount = buffer.getInt();
+    levels = new HashMap<>(imageCount);
+    for (int i = 0; i < imageCount; i++) {
+      byte[] path = new byte[buffer.getShort() & 0xffff];
+      buffer.get(path);
+      Level[] imageLevels = new Level[buffer.getInt()];
+      for (int level = 0; level < imageLevels.length; level++) {
+        imageLevels[level] =
+          new Level(buffer.getInt(), buffer.getInt(), buffer.getInt());
+      }
+      levels.put(new String(path, StandardCharsets.UTF_8), imageLevels);
+    }
+    pixels = buffer.slice().asIntBuffer();
+  }
+
+
+  /**
+   * Opens the bundle if it has been baked. A bundle in a directory is
+   * memory-mapped, a bundle inside an archive is read in memory.
+   *
+   * @return the bundle, or null if there is no bundle on the classpath
+   * @throws IOException if the bundle exists but cannot be read
+   */
+  public static AssetBundle open() throws IOException {
+    URL url = AssetBundle.class.getResource(BUNDLE_PATH);
+    if (url == null) {
+      return null;
+    }
+    if ("file".equals(url.getProtocol())) {
+      try (FileChannel channel =
+             FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+        return new AssetBundle(
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      } catch (URISyntaxException e) {
+        throw new IOException(e);
+      }
+    }
+    try (InputStream input = url.openStream()) {
+      return new AssetBundle(ByteBuffer.wrap(input.readAllBytes()));
+    }
+  }
+
+
+  /**
+   * @param path the path of an image
+   * @return whether the bundle contains the image
+   */
+  public boolean contains(String path) {
+    return levels.containsKey(path);
+  }
+
+  /**
+   * @param path the path of an image in the bundle
+   * @return the pre-scaled versions of the image, from the largest
+   */
+  public Level[] getLevels(String path) {
+    return levels.get(path);
+  }
+
+  /**
+   * @param level a level of an image in the bundle
+   * @return the ARGB pixels of the level, row by row
+   */
+  public IntBuffer getPixels(Level level) {
+    IntBuffer levelPixels = pixels.duplicate();
+    levelPixels.position(level.offset);
+    levelPixels.limit(level.offset + level.width * level.height);
+    return levelPixels.slice();
+  }
+}
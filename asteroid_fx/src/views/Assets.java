@@ -0,0 +1,298 @@
+package views;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The images of the game, loaded in the background at startup and packed
+ * into a single texture. Once the assets are ready, drawing an image is a
+ * copy of a region of that texture, and no file is ever read while
+ * rendering a frame.
+ */
+public class Assets {
+
+  /* You can add more images here */
+  public static final String spaceshipImg = "/resources/spaceship.png";
+  public static final String engineBurningImg = "/resources/engine_burning.png";
+  public static final String reverseBurningImg = "/resources/reverse_burning.png";
+  public static final String clockwiseBurningImg = "/resources/clockwise_burning.png";
+  public static final String counterclockwiseBurningImg = "/resources/counterclockwise_burning.png";
+  public static final String bonusAdd100Img = "/resources/bonusAdd100.png";
+  public static final String bonusAdd500Img = "/resources/bonusAdd500.png";
+  public static final String bonusMultiplier5Img = "/resources/bonusMultiplier5.png";
+  public static final String bonusFullFuelImg = "/resources/bonusFullFuel.png";
+  public static final String bonusPartialFuelImg = "/resources/bonusPartialFuel.png";
+  public static final String bonusUpgradeImg = "/resources/bonusUpgrade.png";
+  public static final String doubleGunImg = "/resources/doubleGun.png";
+  public static final String firingAroundImg = "/resources/firingAround.png";
+  public static final String multigunImg = "/resources/multigun.png";
+
+  /**
+   * Every image in the resources, loaded by preload().
+   */
+  public static final List<String> IMAGE_PATHS = List.of(
+    spaceshipImg, engineBurningImg, reverseBurningImg,
+    clockwiseBurningImg, counterclockwiseBurningImg,
+    bonusAdd100Img, bonusAdd500Img, bonusMultiplier5Img,
+    bonusFullFuelImg, bonusPartialFuelImg, bonusUpgradeImg,
+    doubleGunImg, firingAroundImg, multigunImg);
+
+  /**
+   * The width of the packed texture, in pixels.
+   */
+  private static final int ATLAS_WIDTH = 1024;
+
+  /**
+   * The number of threads decoding images.
+   */
+  private static final int LOADER_THREAD_COUNT = 2;
+
+  private static CompletableFuture<Assets> loading;
+
+
+  private final WritableImage atlas;
+
+  /* the regions of the atlas holding each image, from the largest level */
+  private final Map<String, Rectangle2D[]> regions;
+
+
+  private Assets(WritableImage atlas, Map<String, Rectangle2D[]> regions) {
+    this.atlas = atlas;
+    this.regions = regions;
+  }
+
+
+  /**
+   * Starts loading every image of the game on background threads, the
+   * first time it is called. Later calls return the same future. Images
+   * are taken from the baked asset bundle if there is one, and decoded
+   * from their PNG files otherwise.
+   *
+   * @return a future completed with the assets once they are all loaded
+   * and packed.
+   */
+  public static synchronized CompletableFuture<Assets> preload() {
+    if (loading != null) {
+      return loading;
+    }
+    ExecutorService executor =
+      Executors.newFixedThreadPool(LOADER_THREAD_COUNT, runnable -> {
+        Thread thread = new Thread(runnable, "asset-loader");
+        thread.setDaemon(true);
+        return thread;
+      });
+    loading =
+      CompletableFuture
+        .supplyAsync(Assets::openBundle, executor)
+        .thenCompose(bundle ->
+          (bundle != null) ?
+            CompletableFuture.supplyAsync(() -> pack(bundle), executor) :
+            decodeAndPack(executor))
+        .whenComplete((assets, error) -> executor.shutdown());
+    return loading;
+  }
+
+
+  /**
+   * @return the baked bundle if it contains every image, null otherwise
+   */
+  private static AssetBundle openBundle() {
+    try {
+      AssetBundle bundle = AssetBundle.open();
+      if (bundle == null) return null;
+      for (String path : IMAGE_PATHS) {
+        if (!bundle.contains(path)) return null;
+      }
+      return bundle;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+
+  /**
+   * Decodes the PNG files in parallel, then packs them.
+   */
+  private static CompletableFuture<Assets> decodeAndPack(ExecutorService executor) {
+    List<CompletableFuture<Image>> decodings = new ArrayList<>();
+    for (String path : IMAGE_PATHS) {
+      decodings.add(CompletableFuture.supplyAsync(() -> decode(path), executor));
+    }
+    return CompletableFuture
+      .allOf(decodings.toArray(new CompletableFuture<?>[0]))
+      .thenApplyAsync(ignored -> pack(decodings), executor);
+  }
+
+
+  /**
+   * @param path path to the file containing the image
+   * @return the decoded image
+   */
+  private static Image decode(String path) {
+    Image image = new Image(Assets.class.getResource(path).toString());
+    if (image.isError()) {
+      throw new IllegalStateException("cannot load " + path, image.getException());
+    }
+    return image;
+  }
+
+
+  /**
+   * Copies the decoded images into a single texture.
+   *
+   * @param decodings the decoded images, in the order of IMAGE_PATHS
+   * @return the packed assets
+   */
+  private static Assets pack(List<CompletableFuture<Image>> decodings) {
+    Map<String, Rectangle2D[]> regions = new HashMap<>();
+    for (int i = 0; i < IMAGE_PATHS.size(); i++) {
+      Image image = decodings.get(i).join();
+      regions.put(IMAGE_PATHS.get(i), new Rectangle2D[] {
+        new Rectangle2D(0, 0, image.getWidth(), image.getHeight())
+      });
+    }
+    WritableImage atlas = new WritableImage(ATLAS_WIDTH, place(regions));
+    for (int i = 0; i < IMAGE_PATHS.size(); i++) {
+      Image image = decodings.get(i).join();
+      Rectangle2D region = regions.get(IMAGE_PATHS.get(i))[0];
+      atlas.getPixelWriter().setPixels(
+        (int) region.getMinX(), (int) region.getMinY(),
+        (int) region.getWidth(), (int) region.getHeight(),
+        image.getPixelReader(), 0, 0);
+    }
+    return new Assets(atlas, regions);
+  }
+
+
+  /**
+   * Copies every level of every image of the bundle into a single texture.
+   *
+   * @param bundle the baked asset bundle
+   * @return the packed assets
+   */
+  private static Assets pack(AssetBundle bundle) {
+    Map<String, Rectangle2D[]> regions = new HashMap<>();
+    for (String path : IMAGE_PATHS) {
+      AssetBundle.Level[] levels = bundle.getLevels(path);
+      Rectangle2D[] levelRegions = new Rectangle2D[levels.length];
+      for (int level = 0; level < levels.length; level++) {
+        levelRegions[level] =
+          new Rectangle2D(0, 0, levels[level].width, levels[level].height);
+      }
+      regions.put(path, levelRegions);
+    }
+    WritableImage atlas = new WritableImage(ATLAS_WIDTH, place(regions));
+    for (String path : IMAGE_PATHS) {
+      AssetBundle.Level[] levels = bundle.getLevels(path);
+      Rectangle2D[] levelRegions = regions.get(path);
+      for (int level = 0; level < levels.length; level++) {
+        atlas.getPixelWriter().setPixels(
+          (int) levelRegions[level].getMinX(), (int) levelRegions[level].getMinY(),
+          levels[level].width, levels[level].height,
+          PixelFormat.getIntArgbInstance(),
+          bundle.getPixels(levels[level]),
+          levels[level].width);
+      }
+    }
+    return new Assets(atlas, regions);
+  }
+
+
+  /**
+   * Places the regions on shelves filled left to right, in the order of
+   * IMAGE_PATHS. The regions are replaced by their placed version.
+   *
+   * @param regions the regions to place, with their dimensions
+   * @return the height of the texture needed to hold the regions
+   */
+  private static int place(Map<String, Rectangle2D[]> regions) {
+    int x = 0;
+    int shelfY = 0;
+    int shelfHeight = 0;
+    for (String path : IMAGE_PATHS) {
+      Rectangle2D[] levelRegions = regions.get(path);
+      for (int level = 0; level < levelRegions.length; level++) {
+        int width = (int) levelRegions[level].getWidth();
+        int height = (int) levelRegions[level].getHeight();
+        if (x + width > ATLAS_WIDTH) {
+          x = 0;
+          shelfY += shelfHeight;
+          shelfHeight = 0;
+        }
+        levelRegions[level] = new Rectangle2D(x, shelfY, width, height);
+        x += width;
+        shelfHeight = Math.max(shelfHeight, height);
+      }
+    }
+    return shelfY + shelfHeight;
+  }
+
+
+  /**
+   * Draws an image of the game, scaled to given dimensions.
+   *
+   * @param context the context on which to draw
+   * @param path the path of the image, one of IMAGE_PATHS
+   * @param x the horizontal position of the top left corner
+   * @param y the vertical position of the top left corner
+   * @param width the width of the drawn image
+   * @param height the height of the drawn image
+   */
+  public void draw(GraphicsContext context, String path,
+                   double x, double y, double width, double height) {
+    Rectangle2D region = getRegion(path, width, height);
+    context.drawImage(
+      atlas,
+      region.getMinX(), region.getMinY(), region.getWidth(), region.getHeight(),
+      x, y, width, height);
+  }
+
+
+  /**
+   * @return the texture into which all the images are packed.
+   */
+  public Image getTexture() {
+    return atlas;
+  }
+
+  /**
+   * @param path the path of an image, one of IMAGE_PATHS
+   * @param width the width at which the image is drawn
+   * @param height the height at which the image is drawn
+   * @return the region of the texture to draw the image from
+   */
+  public Rectangle2D getRegion(String path, double width, double height) {
+    return level(regions.get(path), width, height);
+  }
+
+
+  /**
+   * @param levels the regions of the levels of an image, from the largest
+   * @param width the width at which the image is drawn
+   * @param height the height at which the image is drawn
+   * @return the smallest level at least as large as the drawn image, or the
+   * largest level if none is
+   */
+  private static Rectangle2D level(Rectangle2D[] levels, double width, double height) {
+    int level = 0;
+    while (level + 1 < levels.length
+      && levels[level + 1].getWidth() >= width
+      && levels[level + 1].getHeight() >= height) {
+      level++;
+    }
+    return levels[level];
+  }
+}
@@ -0,0 +1,202 @@
+package views;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import tools.Polygon;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of asteroid shapes rasterized into images, at a fixed number of
+ * rotation buckets. Drawing an asteroid is then a copy of an image instead
+ * of a polygon fill. The tiles are keyed by shape, rotation bucket, color
+ * and scale, and the least recently used tiles are evicted when the memory
+ * used by the tiles exceeds a bound. Tiles are rasterized at the scale of
+ * the drawing context, one pixel of the tile per pixel of the canvas, so
+ * that they stay sharp on canvases larger than the window. Tiles are
+ * rasterized on the JavaFX application thread.
+ */
+public class AsteroidSpriteCache {
+
+  /**
+   * The identity of a tile: a shape, a rotation bucket, a color and a
+   * scale.
+   */
+  private static class Key {
+
+    private final Polygon shape;
+    private final int bucket;
+    private final Color color;
+    private final double scale;
+
+    private Key(Polygon shape, int bucket, Color color, double scale) {
+      this.shape = shape;
+      this.bucket = bucket;
+      this.color = color;
+      this.scale = scale;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) return false;
+      Key key = (Key) other;
+      return shape == key.shape && bucket == key.bucket && color.equals(key.color)
+        && Double.compare(scale, key.scale) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = 31 * (31 * System.identityHashCode(shape) + bucket) + color.hashCode();
+      return 31 * hash + Double.hashCode(scale);
+    }
+  }
+
+
+  private static final int BYTES_PER_PIXEL = 4;
+
+  private final int bucketCount;
+  private final double bucketAngle;
+  private final long memoryCap;
+
+  /* tiles in access order, the least recently used first */
+  private final Map<Key, WritableImage> tiles =
+    new LinkedHashMap<>(16, 0.75f, true);
+
+  private long memoryUsed = 0;
+  private long hitCount = 0;
+  private long missCount = 0;
+  private long evictionCount = 0;
+
+  private final SnapshotParameters snapshotParameters = new SnapshotParameters();
+
+
+  /**
+   * @param bucketCount the number of rotation angles rasterized per shape
+   * @param memoryCap the maximum number of bytes used by the tiles
+   */
+  public AsteroidSpriteCache(int bucketCount, long memoryCap) {
+    this.bucketCount = bucketCount;
+    this.bucketAngle = 360. / bucketCount;
+    this.memoryCap = memoryCap;
+    snapshotParameters.setFill(Color.TRANSPARENT);
+  }
+
+
+  /**
+   * Draws a shape rotated by the bucket angle closest to a given angle,
+   * rasterizing it first if it is not in the cache.
+   *
+   * @param context the context on which to draw
+   * @param shape a shape with center (0,0)
+   * @param angle the rotation of the shape in degree
+   * @param x the horizontal position of the center of the shape
+   * @param y the vertical position of the center of the shape
+   * @param color the color filling the shape
+   * @param scale the number of canvas pixels per unit of the context,
+   *              at which the tile is rasterized
+   */
+  public void draw(GraphicsContext context, Polygon shape, double angle,
+                   double x, double y, Color color, double scale) {
+    WritableImage tile = getTile(shape, bucket(angle), color, scale);
+    double width = tile.getWidth() / scale;
+    double height = tile.getHeight() / scale;
+    context.drawImage(
+      tile,
+      x - width / 2,
+      y - height / 2,
+      width, height);
+  }
+
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * @return the number of bytes used by the cached tiles.
+   */
+  public long getMemoryUsed() {
+    return memoryUsed;
+  }
+
+
+  /**
+   * @param angle any angle in degree
+   * @return the index of the rotation bucket closest to that angle
+   */
+  private int bucket(double angle) {
+    int bucket = (int) Math.round(angle / bucketAngle) % bucketCount;
+    return (bucket < 0) ? bucket + bucketCount : bucket;
+  }
+
+
+  private WritableImage getTile(Polygon shape, int bucket, Color color, double scale) {
+    Key key = new Key(shape, bucket, color, scale);
+    WritableImage tile = tiles.get(key);
+    if (tile != null) {
+      hitCount++;
+      return tile;
+    }
+    missCount++;
+    tile = rasterize(shape.rotate(bucket * bucketAngle), color, scale);
+    tiles.put(key, tile);
+    memoryUsed += sizeOf(tile);
+    evictLeastRecentlyUsed();
+    return tile;
+  }
+
+
+  /**
+   * Removes the least recently used tiles until the memory cap is met.
+   * The tile just added is the most recently used, so it is kept.
+   */
+  private void evictLeastRecentlyUsed() {
+    Iterator<WritableImage> iterator = tiles.values().iterator();
+    while (memoryUsed > memoryCap && tiles.size() > 1) {
+      memoryUsed -= sizeOf(iterator.next());
+      iterator.remove();
+      evictionCount++;
+    }
+  }
+
+
+  /**
+   * @param shape a shape with center (0,0), already rotated
+   * @param color the color filling the shape
+   * @param scale the number of pixels of the image per unit of the shape
+   * @return an image of the shape, with the center of the shape at its center
+   */
+  private WritableImage rasterize(Polygon shape, Color color, double scale) {
+    int halfSize = (int) Math.ceil(shape.radius() * scale) + 1;
+    Canvas canvas = new Canvas(2 * halfSize, 2 * halfSize);
+    GraphicsContext context = canvas.getGraphicsContext2D();
+    int nbVertices = shape.nbVertices();
+    double[] xs = new double[nbVertices];
+    double[] ys = new double[nbVertices];
+    for (int i = 0; i < nbVertices; i++) {
+      xs[i] = shape.getVertex(i).getX() * scale + halfSize;
+      ys[i] = shape.getVertex(i).getY() * scale + halfSize;
+    }
+    context.setFill(color);
+    context.fillPolygon(xs, ys, nbVertices);
+    return canvas.snapshot(snapshotParameters, null);
+  }
+
+
+  private static long sizeOf(WritableImage tile) {
+    return (long) tile.getWidth() * (long) tile.getHeight() * BYTES_PER_PIXEL;
+  }
+}
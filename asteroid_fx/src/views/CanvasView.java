@@ -1,186 +1,610 @@
 package views;
 
 import game.Asteroid;
+import game.ParticleSystem;
+import game.PowerUp;
+import game.PowerUpType;
 import game.Spaceship;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.image.Image;
-import javafx.scene.paint.Color;
-import javafx.scene.text.Font;
-import javafx.scene.text.FontWeight;
-import tools.Polygon;
+import render.Renderer;
 import tools.Vector;
 import viewModel.ViewModel;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 
 /**
  * An object of this class is responsible for drawing the current state
  * of the game over a JavaFX canvas, and handling GUI events.
+ * <p>
+ * The drawing is split over three stacked layers: the background, the
+ * world (asteroids, spaceship,...) and the HUD (score). Only the world is
+ * redrawn every frame, the other layers are redrawn when their content
+ * changes. Each layer is drawn through a renderer, usually backed by a
+ * JavaFX canvas.
+ * <p>
+ * Objects are drawn in world units, the coordinates of the game. Each
+ * layer scales them so that the view fits its surface, whatever its size
+ * in pixels, so the canvases may be smaller or larger than the window.
+ * The view shows the whole of space when space is small enough, otherwise
+ * it follows the spaceship like a camera, and only the asteroids near it
+ * are found, through the spatial index of space.
+ * <p>
+ * Space is a torus: an object crossing a border also appears on the
+ * opposite side. An object is drawn at each of its positions shifted by
+ * multiples of the size of space which meet the view: once in the common
+ * case, and again for objects whose bounding circle crosses a border.
  */
 public class CanvasView {
 
-  private final Canvas canvas;
-  private final ViewModel viewModel;
-  private GraphicsContext context;
+  private final Renderer background;
+  private final Renderer world;
+  private final Renderer hud;
+  protected final ViewModel viewModel;
+
+  /* dimensions of the background currently drawn, -1 if not drawn yet */
+  private double backgroundWidth = -1;
+  private double backgroundHeight = -1;
+
+  /* whether asteroids are drawn as shapes the renderer may cache */
+  private boolean isAsteroidSpriteModeOn = false;
+
+  /* the rounded score currently displayed, its text, and the dimensions
+     of the HUD when it was drawn */
+  private long displayedScore = -1;
+  private String scoreText = "";
+  private double hudWidth = -1;
+  private double hudHeight = -1;
+
+  /* the asteroids of the frame, prepared for drawing by worker threads */
+  private final PreparedAsteroids preparedAsteroids =
+    new PreparedAsteroids(SPRITE_ANGLE_COUNT);
+
+  /* buffers receiving the vertices of the asteroid drawn, possibly shifted */
+  private double[] ghostXs = new double[INITIAL_VERTEX_CAPACITY];
+  private double[] ghostYs = new double[INITIAL_VERTEX_CAPACITY];
+
+  /* the area of space shown on the world layer, in world units: its top
+     left corner, possibly beyond the borders of space, and its dimensions */
+  private double viewX = 0;
+  private double viewY = 0;
+  private double viewWidth = 0;
+  private double viewHeight = 0;
+
+  /* the corners of the visible particles of the frame, by color index,
+     and their number */
+  private final double[][] particleXs =
+    new double[ParticleSystem.COLOR_COUNT][INITIAL_PARTICLE_CAPACITY];
+  private final double[][] particleYs =
+    new double[ParticleSystem.COLOR_COUNT][INITIAL_PARTICLE_CAPACITY];
+  private final int[] particleCounts = new int[ParticleSystem.COLOR_COUNT];
+
+  /* the asteroids which may meet the view, found through the spatial index */
+  private final List<Asteroid> nearbyAsteroids = new ArrayList<>();
 
   /**
-   * @param canvas the canvas on which to draw the game
+   * @param background the bottom layer, on which to draw the background
+   * @param world the layer on which to draw the game
+   * @param hud the top layer, on which to draw the score
    * @param viewModel the viewModel to display and interact with
    */
-  public CanvasView(Canvas canvas, ViewModel viewModel) {
-    this.canvas = canvas;
+  public CanvasView(Renderer background, Renderer world, Renderer hud,
+                    ViewModel viewModel) {
+    this.background = background;
+    this.world = world;
+    this.hud = hud;
     this.viewModel = viewModel;
-    context = canvas.getGraphicsContext2D();
+    world.prepareRotatedImages(shipImgs, PIXEL_SHIP_WIDTH, PIXEL_SHIP_HEIGHT);
   }
 
    /**
    * Refresh the canvas, using the current state of the game.
    */
    public void render() {
+    if (backgroundWidth != background.getWidth()
+      || backgroundHeight != background.getHeight()) {
+      renderBackground();
+    }
     clear();
-    renderBackground();
-    render(viewModel.getAsteroids());
-    render(viewModel.getSpaceship());
+    placeView();
+    renderWorld();
+    world.flush();
     renderScore(viewModel.getScore());
   }
 
 
   /**
-   * Render all the visible asteroids.
+   * Draws the objects of the game on the world layer.
+   */
+  protected void renderWorld() {
+    render(findNearbyAsteroids());
+    renderPowerUps(viewModel.getPowerUps());
+    render(viewModel.getParticles());
+    render(viewModel.getSpaceship());
+  }
+
+
+  /**
+   * Chooses the area of space shown: all of space if it fits the view,
+   * otherwise an area centered on the spaceship. Then sets the transform
+   * of the world layer accordingly.
+   */
+  private void placeView() {
+    double scale = scale(world);
+    viewWidth = world.getWidth() / scale;
+    viewHeight = world.getHeight() / scale;
+    Vector target = viewModel.getSpaceship().getPosition();
+    double spaceWidth = viewModel.getSpaceWidth();
+    double spaceHeight = viewModel.getSpaceHeight();
+    double centerX = (spaceWidth <= viewWidth) ? spaceWidth / 2 : target.getX();
+    double centerY = (spaceHeight <= viewHeight) ? spaceHeight / 2 : target.getY();
+    viewX = centerX - viewWidth / 2;
+    viewY = centerY - viewHeight / 2;
+    world.setTransform(scale, -scale * viewX, -scale * viewY);
+  }
+
+
+  /**
+   * @return the asteroids which may meet the view, found through the
+   * spatial index. The list is reused by the next call.
+   */
+  protected List<Asteroid> findNearbyAsteroids() {
+    viewModel.findAsteroids(viewX, viewY, viewX + viewWidth, viewY + viewHeight,
+      nearbyAsteroids);
+    return nearbyAsteroids;
+  }
+
+
+  /**
+   * Render all the visible asteroids. The asteroids are prepared by worker
+   * threads, chunk by chunk, and each chunk is drawn once ready. The fill
+   * color is set once for the whole batch, and asteroids entirely outside
+   * the view are skipped. In sprite mode, asteroids are drawn as shapes,
+   * which the renderer may draw from a cache of rasterized images.
    *
-   * @param asteroids the list of visible asteroids
+   * @param asteroids the list of asteroids near the view
    */
   private void render(List<Asteroid> asteroids) {
-    for (Asteroid asteroid : asteroids) {
-      render(asteroid);
+    preparedAsteroids.prepare(asteroids, !isAsteroidSpriteModeOn, viewX, viewY,
+      viewWidth, viewHeight, viewModel.getSpaceWidth(), viewModel.getSpaceHeight());
+    world.setFill(ASTEROID_COLOR);
+    try {
+      for (int chunk = 0; chunk < preparedAsteroids.chunkCount(); chunk++) {
+        preparedAsteroids.await(chunk);
+        int end = preparedAsteroids.chunkEnd(chunk);
+        for (int i = preparedAsteroids.chunkStart(chunk); i < end; i++) {
+          render(i);
+        }
+      }
+    } finally {
+      preparedAsteroids.awaitAll();
+    }
+  }
+
+
+  /**
+   * Draws a prepared asteroid with the current fill color, at each of its
+   * positions meeting the view, found by the workers.
+   *
+   * @param index the index of the asteroid among the prepared asteroids
+   */
+  private void render(int index) {
+    int lastColumn = preparedAsteroids.getLastColumn(index);
+    int lastRow = preparedAsteroids.getLastRow(index);
+    for (int column = preparedAsteroids.getFirstColumn(index); column <= lastColumn; column++) {
+      for (int row = preparedAsteroids.getFirstRow(index); row <= lastRow; row++) {
+        render(index, column * viewModel.getSpaceWidth(), row * viewModel.getSpaceHeight());
+      }
+    }
+  }
+
+
+  /**
+   * Draws a copy of a prepared asteroid, shifted. The copy in place is
+   * drawn straight from the packed prepared vertices; the vertices of the
+   * other copies are copied out, shifted on the way.
+   *
+   * @param index the index of the asteroid among the prepared asteroids
+   * @param shiftX the horizontal shift of the copy
+   * @param shiftY the vertical shift of the copy
+   */
+  private void render(int index, double shiftX, double shiftY) {
+    if (isAsteroidSpriteModeOn) {
+      Asteroid asteroid = preparedAsteroids.getAsteroid(index);
+      world.fillShape(asteroid.getLocalShape(), preparedAsteroids.getSpriteAngle(index),
+        asteroid.getX() + shiftX, asteroid.getY() + shiftY);
+      return;
+    }
+    double[] xs = preparedAsteroids.getXs();
+    double[] ys = preparedAsteroids.getYs();
+    int start = preparedAsteroids.getStart(index);
+    int nbPoints = preparedAsteroids.getNbPoints(index);
+    if (shiftX == 0 && shiftY == 0) {
+      world.fillPolygon(xs, ys, start, nbPoints);
+      return;
+    }
+    if (nbPoints > ghostXs.length) {
+      ghostXs = new double[nbPoints];
+      ghostYs = new double[nbPoints];
+    }
+    for (int i = 0; i < nbPoints; i++) {
+      ghostXs[i] = xs[start + i] + shiftX;
+      ghostYs[i] = ys[start + i] + shiftY;
+    }
+    world.fillPolygon(ghostXs, ghostYs, nbPoints);
+  }
+
+
+  /*
+   * The copies of an object are its positions shifted by multiples of the
+   * size of space: the copy in column c and row r is shifted by c times
+   * the width and r times the height of space. The following methods give
+   * the range of copies whose bounding circle meets the view; it is empty
+   * when the object is not visible.
+   */
+
+  /**
+   * @param x the horizontal position of the center of an object
+   * @param radius the radius of a circle containing the object
+   * @return the first column of copies of the object meeting the view
+   */
+  protected int firstCopyColumn(double x, double radius) {
+    return firstCopy(x, radius, viewX, viewModel.getSpaceWidth());
+  }
+
+  /**
+   * @param x the horizontal position of the center of an object
+   * @param radius the radius of a circle containing the object
+   * @return the last column of copies of the object meeting the view
+   */
+  protected int lastCopyColumn(double x, double radius) {
+    return lastCopy(x, radius, viewX, viewWidth, viewModel.getSpaceWidth());
+  }
+
+  /**
+   * @param y the vertical position of the center of an object
+   * @param radius the radius of a circle containing the object
+   * @return the first row of copies of the object meeting the view
+   */
+  protected int firstCopyRow(double y, double radius) {
+    return firstCopy(y, radius, viewY, viewModel.getSpaceHeight());
+  }
+
+  /**
+   * @param y the vertical position of the center of an object
+   * @param radius the radius of a circle containing the object
+   * @return the last row of copies of the object meeting the view
+   */
+  protected int lastCopyRow(double y, double radius) {
+    return lastCopy(y, radius, viewY, viewHeight, viewModel.getSpaceHeight());
+  }
+
+  /**
+   * The first copy meeting the view along one axis, for the columns with
+   * horizontal coordinates, for the rows with vertical ones.
+   *
+   * @param position the coordinate of the center of an object
+   * @param radius the radius of a circle containing the object
+   * @param viewStart the coordinate of the start of the view
+   * @param spaceSize the size of space along the axis
+   * @return the first copy of the object meeting the view
+   */
+  static int firstCopy(double position, double radius, double viewStart, double spaceSize) {
+    return (int) Math.ceil((viewStart - radius - position) / spaceSize);
+  }
+
+  /**
+   * The last copy meeting the view along one axis, as firstCopy.
+   *
+   * @param position the coordinate of the center of an object
+   * @param radius the radius of a circle containing the object
+   * @param viewStart the coordinate of the start of the view
+   * @param viewSize the size of the view along the axis
+   * @param spaceSize the size of space along the axis
+   * @return the last copy of the object meeting the view
+   */
+  static int lastCopy(double position, double radius, double viewStart, double viewSize,
+                      double spaceSize) {
+    return (int) Math.floor((viewStart + viewSize + radius - position) / spaceSize);
+  }
+
+
+  /**
+   * @return the left of the view, in world units.
+   */
+  protected double getViewX() {
+    return viewX;
+  }
+
+  /**
+   * @return the top of the view, in world units.
+   */
+  protected double getViewY() {
+    return viewY;
+  }
+
+  /**
+   * @return the width of the view, in world units.
+   */
+  protected double getViewWidth() {
+    return viewWidth;
+  }
+
+
+  /**
+   * Chooses how asteroids are drawn: as filled polygons, or as shapes that
+   * the renderer may rasterize once and keep in a cache.
+   *
+   * @param isOn whether asteroids are drawn as cached shapes
+   */
+  public void setAsteroidSpriteMode(boolean isOn) {
+    isAsteroidSpriteModeOn = isOn;
+  }
+
+
+  /**
+   * @param layer a layer of the view
+   * @return the number of pixels per world unit for which the view fits
+   * the layer, keeping its proportions. The view is as large as space, up
+   * to VIEW_WIDTH by VIEW_HEIGHT.
+   */
+  protected double scale(Renderer layer) {
+    return Math.min(
+      layer.getWidth() / Math.min(viewModel.getSpaceWidth(), VIEW_WIDTH),
+      layer.getHeight() / Math.min(viewModel.getSpaceHeight(), VIEW_HEIGHT));
+  }
+
+
+  /**
+   * Render all the power-ups floating in space.
+   *
+   * @param powerUps the list of power-ups
+   */
+  private void renderPowerUps(List<PowerUp> powerUps) {
+    for (PowerUp powerUp : powerUps) {
+      render(powerUp);
     }
   }
 
 
   /**
-   * the font used to render the score.
+   * the colors of the particles, by color index.
    */
-  private static final Font font =
-    Font.font("DejaVu Sans", FontWeight.BOLD,48);
+  private static final int[] particleColors = {
+    0xffffff00, // yellow
+    0xffffa500, // orange
+    0xff808080  // gray
+  };
 
   /**
+   * Render all the live particles meeting the view. A single pass over the
+   * particles culls them against the view and sorts the visible ones by
+   * color index into reused buffers; each color is then drawn in one
+   * batch, so that the fill color is set only once per batch. As particles
+   * are not remapped into space, each is drawn at its copy closest to the
+   * center of the view.
+   *
+   * @param particles the particle system to display
+   */
+  protected void render(ParticleSystem particles) {
+    int size = particles.size();
+    double spaceWidth = viewModel.getSpaceWidth();
+    double spaceHeight = viewModel.getSpaceHeight();
+    double centerX = viewX + viewWidth / 2;
+    double centerY = viewY + viewHeight / 2;
+    double halfSize = PIXEL_PARTICLE_SIZE / 2;
+    Arrays.fill(particleCounts, 0);
+    for (int rank = 0; rank < size; rank++) {
+      int index = particles.index(rank);
+      if (!particles.isAlive(index)) {
+        continue;
+      }
+      double x = particles.getX(index);
+      double y = particles.getY(index);
+      x -= spaceWidth * Math.round((x - centerX) / spaceWidth);
+      y -= spaceHeight * Math.round((y - centerY) / spaceHeight);
+      if (x + halfSize < viewX || x - halfSize > viewX + viewWidth
+        || y + halfSize < viewY || y - halfSize > viewY + viewHeight) {
+        continue;
+      }
+      byte color = particles.getColor(index);
+      int count = particleCounts[color];
+      if (count == particleXs[color].length) {
+        particleXs[color] = Arrays.copyOf(particleXs[color], 2 * count);
+        particleYs[color] = Arrays.copyOf(particleYs[color], 2 * count);
+      }
+      particleXs[color][count] = x - halfSize;
+      particleYs[color][count] = y - halfSize;
+      particleCounts[color] = count + 1;
+    }
+    for (int color = 0; color < ParticleSystem.COLOR_COUNT; color++) {
+      int count = particleCounts[color];
+      if (count == 0) {
+        continue;
+      }
+      world.setFill(particleColors[color]);
+      double[] xs = particleXs[color];
+      double[] ys = particleYs[color];
+      for (int i = 0; i < count; i++) {
+        world.fillRect(xs[i], ys[i], PIXEL_PARTICLE_SIZE, PIXEL_PARTICLE_SIZE);
+      }
+    }
+  }
+
+
+  /**
+   * the size of the font used to render the score.
+   */
+  private static final double FONT_SIZE = 48;
+
+  /**
+   * Redraws the HUD layer, only if the rounded score or the dimensions of
+   * the layer have changed since the last time it was drawn.
+   *
    * @param score the score to render
    */
   private void renderScore(double score) {
-    context.setFill(Color.GREEN);
-    context.setFont(font);
-    String text = String.format("%d", Math.round(score));
-    context.fillText(text, 50,50);
+    long roundedScore = Math.round(score);
+    if (roundedScore == displayedScore
+      && hudWidth == hud.getWidth() && hudHeight == hud.getHeight()) {
+      return;
+    }
+    displayedScore = roundedScore;
+    hudWidth = hud.getWidth();
+    hudHeight = hud.getHeight();
+    scoreText = Long.toString(roundedScore);
+    hud.clear();
+    hud.setTransform(scale(hud), 0, 0);
+    hud.setFill(SCORE_COLOR);
+    hud.fillText(scoreText, 50,50, FONT_SIZE);
+    hud.flush();
   }
 
 
   /**
-   * Remove the current drawing from the canvas.
+   * Remove the current drawing from the world layer.
    */
   public void clear() {
-    context.clearRect(0,0,canvas.getWidth(),canvas.getHeight());
+    world.clear();
   }
 
   /**
-   * Set the background image of the game.
+   * Set the background image of the game, on the background layer. It
+   * covers the whole layer, so it is drawn in pixels.
    */
   public void renderBackground() {
-    context.setFill(Color.BLACK);
-    context.fillRect(0,0, Main.CANVAS_WIDTH, Main.CANVAS_HEIGHT);
+    backgroundWidth = background.getWidth();
+    backgroundHeight = background.getHeight();
+    background.setTransform(1, 0, 0);
+    background.setFill(BACKGROUND_COLOR);
+    background.fillRect(0,0, backgroundWidth, backgroundHeight);
+    background.flush();
   }
 
 
   /**
-   * @param asteroid an asteroid to display
+   * @param powerUp a power-up to display
    */
-  public void render(Asteroid asteroid) {
-    context.setFill(Color.BROWN);
-    render(asteroid.getShape());
+  public void render(PowerUp powerUp) {
+    Vector position = powerUp.getPosition();
+    double radius = Math.hypot(PIXEL_POWERUP_WIDTH, PIXEL_POWERUP_HEIGHT) / 2;
+    int lastColumn = lastCopyColumn(position.getX(), radius);
+    int lastRow = lastCopyRow(position.getY(), radius);
+    for (int column = firstCopyColumn(position.getX(), radius); column <= lastColumn; column++) {
+      for (int row = firstCopyRow(position.getY(), radius); row <= lastRow; row++) {
+        world.drawImage(
+          powerUpImage(powerUp.getType()),
+          position.getX() + column * viewModel.getSpaceWidth() - PIXEL_POWERUP_WIDTH / 2,
+          position.getY() + row * viewModel.getSpaceHeight() - PIXEL_POWERUP_HEIGHT / 2,
+          PIXEL_POWERUP_WIDTH,
+          PIXEL_POWERUP_HEIGHT);
+      }
+    }
   }
 
 
   /**
-   * @param shape a polygon to display
+   * @param type a kind of power-up
+   * @return the path to the image representing this kind of power-up
    */
-  private void render(Polygon shape) {
-    int nbPoints = shape.getVertices().size();
-    double[] xs = new double[nbPoints];
-    double[] ys = new double[nbPoints];
-    int i = 0;
-    for (Vector vertex : shape.getVertices()) {
-      xs[i] = vertex.getX();
-      ys[i] = vertex.getY();
-      i++;
+  protected static String powerUpImage(PowerUpType type) {
+    switch (type) {
+      case ADD_100: return Assets.bonusAdd100Img;
+      case ADD_500: return Assets.bonusAdd500Img;
+      case MULTIPLIER_5: return Assets.bonusMultiplier5Img;
+      case FULL_FUEL: return Assets.bonusFullFuelImg;
+      case PARTIAL_FUEL: return Assets.bonusPartialFuelImg;
+      default: return Assets.bonusUpgradeImg;
     }
-    context.fillPolygon(xs, ys, nbPoints);
   }
 
+
   /**
+   * Draws the spaceship and the overlays of the engines burning. These
+   * images are announced to the renderer, which may pre-rotate them.
+   *
    * @param spaceship a spaceship to display
    */
   public void render(Spaceship spaceship) {
-    context.save();
     Vector position = spaceship.getPosition();
-    context.translate(position.getX(), position.getY());
-    context.rotate(spaceship.getDirectionAngle());
-    renderSpaceShipImage(context, getImage(spaceshipImg));
+    double angle = spaceship.getDirectionAngle();
+    renderSpaceShipImage(Assets.spaceshipImg, position, angle);
     // if you want to add images to display over the ship, add them here
     // by calling again renderSpaceShipImage
-    context.restore();
+    if (spaceship.isMainEngineBurning()) {
+      renderSpaceShipImage(Assets.engineBurningImg, position, angle);
+    }
+    if (spaceship.isReverseEngineBurning()) {
+      renderSpaceShipImage(Assets.reverseBurningImg, position, angle);
+    }
+    if (spaceship.isClockwiseEngineBurning()) {
+      renderSpaceShipImage(Assets.clockwiseBurningImg, position, angle);
+    }
+    if (spaceship.isCounterclockwiseEngineBurning()) {
+      renderSpaceShipImage(Assets.counterclockwiseBurningImg, position, angle);
+    }
   }
 
 
-  /** renders an image of the spaceship. The context must be put in position
-   * before calling this method, by rotation and translation, in such a
-   * way that the spaceship would be in position (0,0) facing right.
-   * @param context the drawing context rotated and translated
-   * @param img the image to draw
+  /** renders an image of the spaceship, centered on the spaceship, at
+   * each of its positions meeting the view.
+   * @param path the image to draw, one of shipImgs
+   * @param position the position of the spaceship
+   * @param angle the angle of the spaceship in degree
    */
-  private void renderSpaceShipImage(GraphicsContext context, Image img) {
-    context.drawImage(
-      img,
-      - (double) PIXEL_SHIP_WIDTH / 2,
-      - (double) PIXEL_SHIP_HEIGHT / 2,
-      PIXEL_SHIP_WIDTH,
-      PIXEL_SHIP_HEIGHT);
+  private void renderSpaceShipImage(String path, Vector position, double angle) {
+    double radius = Math.hypot(PIXEL_SHIP_WIDTH, PIXEL_SHIP_HEIGHT) / 2;
+    int lastColumn = lastCopyColumn(position.getX(), radius);
+    int lastRow = lastCopyRow(position.getY(), radius);
+    for (int column = firstCopyColumn(position.getX(), radius); column <= lastColumn; column++) {
+      for (int row = firstCopyRow(position.getY(), radius); row <= lastRow; row++) {
+        world.drawRotatedImage(
+          path, angle,
+          position.getX() + column * viewModel.getSpaceWidth(),
+          position.getY() + row * viewModel.getSpaceHeight(),
+          PIXEL_SHIP_WIDTH, PIXEL_SHIP_HEIGHT);
+      }
+    }
   }
 
 
-  /**
-   * Load an image from cache or from file.\
-   *
-   * @param path path to the file containing the image.
-   * @return The image pointed to by the path.
-   */
-  private Image getImage(String path) {
-    if (images.containsKey(path)) return images.get(path);
-    Image image = new Image(getClass().getResource(path).toString());
-    images.put(path, image);
-    return image;
-  }
+  // initial size of the buffers of shifted vertices, and of visible
+  // particles of each color
+  private static final int INITIAL_VERTEX_CAPACITY = 16;
+  private static final int INITIAL_PARTICLE_CAPACITY = 1024;
+
+  // largest area of space shown at once, in world units
+  private static final double VIEW_WIDTH = 800;
+  private static final double VIEW_HEIGHT = 800;
 
-  /* image cache */
-  private static Map<String,Image> images = new HashMap<>();
+  // number of rotation angles at which asteroid sprites are drawn,
+  // matching the rotation buckets of the shape cache of FxRenderer
+  private static final int SPRITE_ANGLE_COUNT = 36;
 
+  /* the images drawn rotated with the ship */
+  private static final List<String> shipImgs = List.of(
+    Assets.spaceshipImg,
+    Assets.engineBurningImg,
+    Assets.reverseBurningImg,
+    Assets.clockwiseBurningImg,
+    Assets.counterclockwiseBurningImg);
 
-  /* You can add more images here */
-  private static final String spaceshipImg ="/resources/spaceship.png";
-  private static final String engineBurningImg ="/resources/engine_burning.png";
-  private static final String reverseBurningImg = "/resources/reverse_burning.png";
-  private static final String clockwiseBurningImg =  "/resources/clockwise_burning.png";
-  private static final String counterclockwiseBurningImg = "/resources/counterclockwise_burning.png";
+  // colors, as ARGB values
+  private static final int BACKGROUND_COLOR = 0xff000000; // black
+  protected static final int ASTEROID_COLOR = 0xffa52a2a; // brown
+  private static final int SCORE_COLOR = 0xff008000; // green
 
   // dimensions of the ship image
-  private static final int PIXEL_SHIP_WIDTH = 57;
-  private static final int PIXEL_SHIP_HEIGHT = 46;
+  protected static final int PIXEL_SHIP_WIDTH = 57;
+  protected static final int PIXEL_SHIP_HEIGHT = 46;
+
+  // dimension of a particle
+  private static final double PIXEL_PARTICLE_SIZE = 2;
 
   // dimensions of powerup images
-  private static final double PIXEL_POWERUP_WIDTH = 30;
-  private static final double PIXEL_POWERUP_HEIGHT = 30;
+  protected static final double PIXEL_POWERUP_WIDTH = 30;
+  protected static final double PIXEL_POWERUP_HEIGHT = 30;
 
 
 
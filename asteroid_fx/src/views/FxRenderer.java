@@ -0,0 +1,173 @@
+package views;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import render.Renderer;
+import tools.Polygon;
+
+import java.util.List;
+
+/**
+ * A renderer drawing on a JavaFX canvas. Images come from the packed
+ * texture of the assets, images drawn rotated are pre-rendered in a sprite
+ * atlas, and shapes are drawn from a cache of rasterized tiles. The atlas
+ * and the tiles are rasterized at the scale of the current transform, and
+ * the atlas is rebuilt when that scale changes.
+ */
+public class FxRenderer implements Renderer {
+
+  private final Canvas canvas;
+  private final GraphicsContext context;
+  private final Assets assets;
+  private final int angleCount;
+
+  /* the images announced by prepareRotatedImages, their dimensions, and
+     their pre-rendering at the current scale, null until first drawn */
+  private List<String> rotatedImagePaths = List.of();
+  private double rotatedImageWidth;
+  private double rotatedImageHeight;
+  private SpriteAtlas rotatedImages;
+
+  /* the scale of the current transform, in canvas pixels per unit */
+  private double scale = 1;
+
+  /* the shapes given to fillShape, rasterized at rotation buckets */
+  private final AsteroidSpriteCache shapeTiles =
+    new AsteroidSpriteCache(SHAPE_ROTATION_BUCKETS, SHAPE_TILE_MEMORY_CAP);
+
+  /* the current fill color, and its ARGB value */
+  private Color fill = Color.BLACK;
+  private int fillArgb = 0xff000000;
+
+  /* the font of the last text drawn, and its size */
+  private Font font;
+  private double fontSize = -1;
+
+
+  /**
+   * @param canvas the canvas on which to draw
+   * @param assets the images of the game, already loaded
+   * @param angleCount the number of angles at which rotated images are
+   *                   pre-rendered
+   */
+  public FxRenderer(Canvas canvas, Assets assets, int angleCount) {
+    this.canvas = canvas;
+    this.context = canvas.getGraphicsContext2D();
+    this.assets = assets;
+    this.angleCount = angleCount;
+  }
+
+
+  /**
+   * @return the cache of rasterized shapes, with its hit and miss counters
+   */
+  public AsteroidSpriteCache getShapeTiles() {
+    return shapeTiles;
+  }
+
+
+  @Override
+  public double getWidth() {
+    return canvas.getWidth();
+  }
+
+  @Override
+  public double getHeight() {
+    return canvas.getHeight();
+  }
+
+  @Override
+  public void clear() {
+    context.save();
+    context.setTransform(1, 0, 0, 1, 0, 0);
+    context.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    context.restore();
+  }
+
+  @Override
+  public void setTransform(double scale, double translateX, double translateY) {
+    this.scale = scale;
+    context.setTransform(scale, 0, 0, scale, translateX, translateY);
+  }
+
+  @Override
+  public void setFill(int argb) {
+    if (argb == fillArgb) {
+      return;
+    }
+    fillArgb = argb;
+    fill = Color.rgb(
+      (argb >> 16) & 0xff, (argb >> 8) & 0xff, argb & 0xff,
+      (argb >>> 24) / 255.);
+    context.setFill(fill);
+  }
+
+  @Override
+  public void fillRect(double x, double y, double width, double height) {
+    context.fillRect(x, y, width, height);
+  }
+
+  @Override
+  public void fillPolygon(double[] xs, double[] ys, int nbPoints) {
+    context.fillPolygon(xs, ys, nbPoints);
+  }
+
+  @Override
+  public void fillShape(Polygon shape, double angle, double x, double y) {
+    shapeTiles.draw(context, shape, angle, x, y, fill, scale);
+  }
+
+  @Override
+  public void drawImage(String path, double x, double y, double width, double height) {
+    assets.draw(context, path, x, y, width, height);
+  }
+
+  /**
+   * Images announced by prepareRotatedImages are copied from the sprite
+   * atlas, at the dimensions they were announced with. The atlas is
+   * rendered at the first draw, and again whenever the scale changed.
+   */
+  @Override
+  public void drawRotatedImage(String path, double angle,
+                               double x, double y, double width, double height) {
+    if (rotatedImagePaths.contains(path)) {
+      if (rotatedImages == null || rotatedImages.getScale() != scale) {
+        rotatedImages = new SpriteAtlas(assets, rotatedImagePaths,
+          rotatedImageWidth, rotatedImageHeight, angleCount, scale);
+      }
+      rotatedImages.draw(context, path, angle, x, y);
+      return;
+    }
+    context.save();
+    context.translate(x, y);
+    context.rotate(angle);
+    assets.draw(context, path, -width / 2, -height / 2, width, height);
+    context.restore();
+  }
+
+  @Override
+  public void fillText(String text, double x, double y, double size) {
+    if (size != fontSize) {
+      fontSize = size;
+      font = Font.font("DejaVu Sans", FontWeight.BOLD, size);
+    }
+    context.setFont(font);
+    context.fillText(text, x, y);
+  }
+
+  @Override
+  public void prepareRotatedImages(List<String> paths, double width, double height) {
+    rotatedImagePaths = paths;
+    rotatedImageWidth = width;
+    rotatedImageHeight = height;
+    rotatedImages = null;
+  }
+
+
+  // rotation buckets and memory cap (in bytes) of the shape tile cache
+  private static final int SHAPE_ROTATION_BUCKETS = 36;
+  private static final long SHAPE_TILE_MEMORY_CAP = 32L * 1024 * 1024;
+}
@@ -19,15 +19,33 @@ import java.net.URL;
 public class Main extends Application {
 
 
-  public final static int CANVAS_WIDTH = (int) Space.SPACE_WIDTH;
-  public final static int CANVAS_HEIGHT = (int) Space.SPACE_HEIGHT;
+  // size of the game area in the window, space is scaled to fit it
+  public final static int CANVAS_WIDTH = 800;
+  public final static int CANVAS_HEIGHT = 800;
   public final static int WINDOW_WIDTH = 1200;
 
+  // launch with --renderer=scenegraph to draw objects as scene graph nodes
+  private static final String RENDERER_PARAMETER = "renderer";
+  private static final String SCENE_GRAPH_RENDERER = "scenegraph";
+
+  // launch with --renderScale=0.5 to draw at half the resolution
+  private static final String RENDER_SCALE_PARAMETER = "renderScale";
+
+  // launch with --shipAngles=36 to pre-render the ship at 36 angles
+  private static final String SHIP_ANGLES_PARAMETER = "shipAngles";
+
+  // launch with --record to record the draw calls of each frame
+  private static final String RECORD_FLAG = "--record";
+
+  // launch with --asteroidSprites to draw asteroids from cached tiles
+  private static final String ASTEROID_SPRITES_FLAG = "--asteroidSprites";
+
   private AnimationTimer timer;
   private View view;
 
   @Override
   public void start(Stage primaryStage) throws Exception {
+    Assets.preload(); // decode images while the window is built
     FXMLLoader fxmlLoader = new FXMLLoader();
     URL fxmlLocation = getClass().getResource("window.fxml");
     fxmlLoader.setLocation(fxmlLocation);
@@ -37,6 +55,18 @@ public class Main extends Application {
     Scene scene = new Scene(root, WINDOW_WIDTH, CANVAS_HEIGHT);
     primaryStage.setScene(scene);
     view = fxmlLoader.getController();
+    view.setSceneGraphMode(
+      SCENE_GRAPH_RENDERER.equals(getParameters().getNamed().get(RENDERER_PARAMETER)));
+    String renderScale = getParameters().getNamed().get(RENDER_SCALE_PARAMETER);
+    if (renderScale != null) {
+      view.setRenderScale(Double.parseDouble(renderScale));
+    }
+    String shipAngles = getParameters().getNamed().get(SHIP_ANGLES_PARAMETER);
+    if (shipAngles != null) {
+      view.setShipAngleCount(Integer.parseInt(shipAngles));
+    }
+    view.setRecordingMode(getParameters().getUnnamed().contains(RECORD_FLAG));
+    view.setAsteroidSpriteMode(getParameters().getUnnamed().contains(ASTEROID_SPRITES_FLAG));
     ViewModel viewModel = new ViewModel(new Space(),view);
     view.initialize(viewModel);
     view.setEventHandler(scene);
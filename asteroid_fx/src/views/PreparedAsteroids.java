@@ -0,0 +1,420 @@
+package views;
+
+import game.Asteroid;
+import tools.SimulationMath;
+import tools.VertexKernels;
+import tools.WorkerPool;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The asteroids of a frame, prepared for drawing by worker threads: for
+ * each asteroid, the coordinates of its vertices, the rotation bucket of
+ * its sprite, and the range of its copies meeting the view, empty when
+ * it is not visible. The vertices of all the asteroids are packed in the
+ * same arrays, and each chunk is placed at once by the batch kernels.
+ * <p>
+ * The asteroids are split in chunks, prepared in parallel. The FX thread
+ * draws each chunk as soon as it is ready, while the next ones are still
+ * being prepared. Rather than waiting for a chunk held by a worker, it
+ * prepares the next chunk no thread has claimed yet; it only blocks when
+ * every chunk is claimed. The time it spends preparing and waiting is
+ * measured. Workers read the asteroids while the frame is drawn; this is
+ * safe because the model is only updated on the FX thread, after every
+ * chunk has been awaited.
+ */
+class PreparedAsteroids {
+
+  /**
+   * The chunks of a frame: the next one no thread has claimed, and a latch
+   * per chunk, released once it is prepared. A worker still running after
+   * its frame only finds chunks already claimed.
+   */
+  private static class Frame {
+
+    private final int chunkCount;
+    private final boolean withVertices;
+    private final double[] view;
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private final CountDownLatch[] prepared;
+    private volatile Throwable failure = null;
+
+    private Frame(int chunkCount, boolean withVertices, double[] view) {
+      this.chunkCount = chunkCount;
+      this.withVertices = withVertices;
+      this.view = view;
+      prepared = new CountDownLatch[chunkCount];
+      for (int chunk = 0; chunk < chunkCount; chunk++) {
+        prepared[chunk] = new CountDownLatch(1);
+      }
+    }
+  }
+
+
+  private final int bucketCount;
+  private final int workerCount;
+
+  /* the asteroids of the frame, and what was prepared for each of them */
+  private Asteroid[] asteroids = new Asteroid[0];
+  private int[] buckets = new int[0];
+  private int size = 0;
+
+  /* the copies of each asteroid meeting the view, as in CanvasView */
+  private int[] firstColumns = new int[0];
+  private int[] lastColumns = new int[0];
+  private int[] firstRows = new int[0];
+  private int[] lastRows = new int[0];
+
+  /* the vertices of asteroid i are at indices starts[i] to starts[i + 1] - 1 */
+  private int[] starts = new int[1];
+  private double[] localXs = new double[0];
+  private double[] localYs = new double[0];
+  private double[] xs = new double[0];
+  private double[] ys = new double[0];
+
+  /* the rotation and translation of the asteroid of each vertex, repeated
+     along its vertices so that a chunk is placed in one pass */
+  private double[] cosines = new double[0];
+  private double[] sines = new double[0];
+  private double[] centerXs = new double[0];
+  private double[] centerYs = new double[0];
+
+  /* the chunks of the current frame */
+  private Frame frame = new Frame(0, false, new double[VIEW_LENGTH]);
+
+  /* the time the calling thread spent preparing chunks and waiting for
+     chunks held by workers, in nanoseconds, since the creation */
+  private long preparingTime = 0;
+  private long waitingTime = 0;
+
+
+  /**
+   * @param bucketCount the number of rotation angles at which sprites of
+   *                    asteroids are drawn
+   */
+  PreparedAsteroids(int bucketCount) {
+    this(bucketCount, WORKER_COUNT);
+  }
+
+  /**
+   * @param bucketCount the number of rotation angles at which sprites of
+   *                    asteroids are drawn
+   * @param workerCount the number of workers preparing chunks of a frame,
+   *                    at most WORKER_COUNT, 0 to prepare them all on the
+   *                    drawing thread
+   */
+  PreparedAsteroids(int bucketCount, int workerCount) {
+    if (workerCount < 0 || workerCount > WORKER_COUNT) {
+      throw new IllegalArgumentException("worker count out of range: " + workerCount);
+    }
+    this.bucketCount = bucketCount;
+    this.workerCount = workerCount;
+  }
+
+
+  /**
+   * Starts preparing the asteroids of a frame, on worker threads when they
+   * are split in several chunks. A single chunk is prepared by the thread
+   * drawing it, as handing it over would cost more than preparing it.
+   *
+   * @param asteroidList the asteroids to draw
+   * @param withVertices whether the vertices are computed, or only the
+   *                     sprite rotation
+   * @param viewX the left of the view, possibly beyond the borders of space
+   * @param viewY the top of the view, possibly beyond the borders of space
+   * @param viewWidth the width of the view
+   * @param viewHeight the height of the view
+   * @param spaceWidth the width of space, between copies of an asteroid
+   * @param spaceHeight the height of space, between copies of an asteroid
+   */
+  void prepare(List<Asteroid> asteroidList, boolean withVertices,
+               double viewX, double viewY, double viewWidth, double viewHeight,
+               double spaceWidth, double spaceHeight) {
+    awaitAll();
+    int previousSize = size;
+    size = asteroidList.size();
+    if (size > asteroids.length) {
+      grow(size);
+    }
+    if (size < previousSize) {
+      // forgets the asteroids of past frames, as DisplayList.reset does
+      Arrays.fill(asteroids, size, previousSize, null);
+    }
+    for (int i = 0; i < size; i++) {
+      asteroids[i] = asteroidList.get(i);
+      if (withVertices) {
+        starts[i + 1] = starts[i] + asteroids[i].nbVertices();
+      }
+    }
+    if (withVertices && starts[size] > xs.length) {
+      growVertices(starts[size]);
+    }
+    double[] view = {viewX, viewY, viewWidth, viewHeight, spaceWidth, spaceHeight};
+    Frame submitted = new Frame(chunkCount(), withVertices, view);
+    frame = submitted;
+    int taskCount = Math.min(workerCount, submitted.chunkCount - 1);
+    for (int task = 0; task < taskCount; task++) {
+      WorkerPool.execute(() -> prepareUnclaimedChunks(submitted));
+    }
+  }
+
+
+  /**
+   * @return the number of chunks of the frame.
+   */
+  int chunkCount() {
+    return (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+  }
+
+  /**
+   * @param chunk the index of a chunk
+   * @return the index of the first asteroid of the chunk
+   */
+  int chunkStart(int chunk) {
+    return chunk * CHUNK_SIZE;
+  }
+
+  /**
+   * @param chunk the index of a chunk
+   * @return the index following the last asteroid of the chunk
+   */
+  int chunkEnd(int chunk) {
+    return Math.min(size, (chunk + 1) * CHUNK_SIZE);
+  }
+
+
+  /**
+   * Waits until a chunk is prepared, preparing unclaimed chunks meanwhile.
+   *
+   * @param chunk the index of a chunk
+   */
+  void await(int chunk) {
+    Frame current = frame;
+    CountDownLatch prepared = current.prepared[chunk];
+    while (prepared.getCount() > 0) {
+      int claimed = current.nextChunk.getAndIncrement();
+      if (claimed < current.chunkCount) {
+        long start = System.nanoTime();
+        prepareChunk(current, claimed);
+        preparingTime += System.nanoTime() - start;
+        continue;
+      }
+      long start = System.nanoTime();
+      try {
+        prepared.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        waitingTime += System.nanoTime() - start;
+      }
+    }
+    if (current.failure != null) {
+      throw new IllegalStateException(current.failure);
+    }
+  }
+
+  /**
+   * Waits until every chunk is prepared, so that workers no longer read
+   * the asteroids.
+   */
+  void awaitAll() {
+    for (int chunk = 0; chunk < frame.chunkCount; chunk++) {
+      await(chunk);
+    }
+  }
+
+
+  /**
+   * @return the time the drawing thread spent preparing chunks itself, in
+   * nanoseconds, since this object was created
+   */
+  long getPreparingTime() {
+    return preparingTime;
+  }
+
+  /**
+   * @return the time the drawing thread spent waiting for chunks prepared
+   * by workers, in nanoseconds, since this object was created
+   */
+  long getWaitingTime() {
+    return waitingTime;
+  }
+
+
+  Asteroid getAsteroid(int index) {
+    return asteroids[index];
+  }
+
+  /**
+   * @param index the index of an asteroid
+   * @return the angle of the rotation bucket closest to the angle of the
+   * asteroid, in degree
+   */
+  double getSpriteAngle(int index) {
+    return buckets[index] * 360. / bucketCount;
+  }
+
+  /**
+   * @return the horizontal coordinates of the vertices of all the
+   * asteroids, packed
+   */
+  double[] getXs() {
+    return xs;
+  }
+
+  /**
+   * @return the vertical coordinates of the vertices of all the
+   * asteroids, packed
+   */
+  double[] getYs() {
+    return ys;
+  }
+
+  /**
+   * @param index the index of an asteroid
+   * @return the index of its first vertex in the packed coordinates
+   */
+  int getStart(int index) {
+    return starts[index];
+  }
+
+  int getNbPoints(int index) {
+    return starts[index + 1] - starts[index];
+  }
+
+  /**
+   * @param index the index of an asteroid
+   * @return the first column of its copies meeting the view
+   */
+  int getFirstColumn(int index) {
+    return firstColumns[index];
+  }
+
+  /**
+   * @param index the index of an asteroid
+   * @return the last column of its copies meeting the view, before the
+   * first one when it is not visible
+   */
+  int getLastColumn(int index) {
+    return lastColumns[index];
+  }
+
+  /**
+   * @param index the index of an asteroid
+   * @return the first row of its copies meeting the view
+   */
+  int getFirstRow(int index) {
+    return firstRows[index];
+  }
+
+  /**
+   * @param index the index of an asteroid
+   * @return the last row of its copies meeting the view, before the first
+   * one when it is not visible
+   */
+  int getLastRow(int index) {
+    return lastRows[index];
+  }
+
+
+  /**
+   * Prepares the chunks of a frame no other thread has claimed, on a
+   * worker.
+   */
+  private void prepareUnclaimedChunks(Frame submitted) {
+    for (int chunk = submitted.nextChunk.getAndIncrement();
+         chunk < submitted.chunkCount;
+         chunk = submitted.nextChunk.getAndIncrement()) {
+      prepareChunk(submitted, chunk);
+    }
+  }
+
+  /**
+   * Prepares a claimed chunk, then releases the threads waiting for it,
+   * even when the preparation fails.
+   */
+  private void prepareChunk(Frame owner, int chunk) {
+    try {
+      prepare(chunkStart(chunk), chunkEnd(chunk), owner.withVertices, owner.view);
+    } catch (RuntimeException | Error e) {
+      owner.failure = e;
+    } finally {
+      owner.prepared[chunk].countDown();
+    }
+  }
+
+  private void prepare(int from, int to, boolean withVertices, double[] view) {
+    for (int i = from; i < to; i++) {
+      Asteroid asteroid = asteroids[i];
+      int bucket = (int) Math.round(asteroid.getAngle() * bucketCount / 360.) % bucketCount;
+      buckets[i] = (bucket < 0) ? bucket + bucketCount : bucket;
+      double x = asteroid.getX();
+      double y = asteroid.getY();
+      double radius = asteroid.getBoundingRadius();
+      firstColumns[i] = CanvasView.firstCopy(x, radius, view[VIEW_X], view[SPACE_WIDTH]);
+      lastColumns[i] =
+        CanvasView.lastCopy(x, radius, view[VIEW_X], view[VIEW_WIDTH], view[SPACE_WIDTH]);
+      firstRows[i] = CanvasView.firstCopy(y, radius, view[VIEW_Y], view[SPACE_HEIGHT]);
+      lastRows[i] =
+        CanvasView.lastCopy(y, radius, view[VIEW_Y], view[VIEW_HEIGHT], view[SPACE_HEIGHT]);
+      if (withVertices) {
+        asteroid.getLocalVertices(localXs, localYs, starts[i]);
+        double angle = asteroid.getAngle();
+        double cosine = SimulationMath.cos(angle);
+        double sine = SimulationMath.sin(angle);
+        for (int vertex = starts[i]; vertex < starts[i + 1]; vertex++) {
+          cosines[vertex] = cosine;
+          sines[vertex] = sine;
+          centerXs[vertex] = x;
+          centerYs[vertex] = y;
+        }
+      }
+    }
+    if (withVertices) {
+      VertexKernels.INSTANCE.transform(localXs, localYs, starts[from], starts[to],
+        cosines, sines, centerXs, centerYs, xs, ys);
+    }
+  }
+
+  private void grow(int capacity) {
+    asteroids = Arrays.copyOf(asteroids, capacity);
+    buckets = Arrays.copyOf(buckets, capacity);
+    firstColumns = new int[capacity];
+    lastColumns = new int[capacity];
+    firstRows = new int[capacity];
+    lastRows = new int[capacity];
+    starts = new int[capacity + 1];
+  }
+
+  private void growVertices(int capacity) {
+    localXs = new double[capacity];
+    localYs = new double[capacity];
+    cosines = new double[capacity];
+    sines = new double[capacity];
+    centerXs = new double[capacity];
+    centerYs = new double[capacity];
+    xs = new double[capacity];
+    ys = new double[capacity];
+  }
+
+
+  // the view of a frame, as an array of its left, top, width and height,
+  // then the dimensions of space
+  private static final int VIEW_X = 0;
+  private static final int VIEW_Y = 1;
+  private static final int VIEW_WIDTH = 2;
+  private static final int VIEW_HEIGHT = 3;
+  private static final int SPACE_WIDTH = 4;
+  private static final int SPACE_HEIGHT = 5;
+  private static final int VIEW_LENGTH = 6;
+
+  // number of asteroids prepared by a worker at once
+  private static final int CHUNK_SIZE = 256;
+
+  // workers preparing the chunks of a frame, leaving a core to the FX thread
+  static final int WORKER_COUNT = Math.max(1, WorkerPool.WORKER_COUNT - 1);
+}
@@ -0,0 +1,129 @@
+package views;
+
+import render.DisplayList;
+
+/**
+ * What the optional modes of the view measured on the last frame: the
+ * draw calls of the world layer and its overdraw hotspot in recording
+ * mode, the use of the cache of asteroid tiles in sprite mode. The view
+ * shows these fields in its inspector, next to the model.
+ */
+public class RenderStatistics {
+
+  // the recorded operations of the last frame
+  private int operationCount;
+  private int drawCallCount;
+  private int vertexCount;
+  private int fillChangeCount;
+  private int imageCount;
+
+  // the cell of the last frame covered by the most operations: its top
+  // left corner in pixels, and the number of operations covering it
+  private int overdrawHotspotX;
+  private int overdrawHotspotY;
+  private int overdrawHotspotCount;
+
+  // the use of the cache of asteroid tiles since the start
+  private long tileHitCount;
+  private long tileMissCount;
+  private long tileEvictionCount;
+  private long tileKibibytes;
+
+
+  /**
+   * Takes the statistics of a recorded frame.
+   *
+   * @param frame the draw calls of a frame of the world layer
+   */
+  void update(DisplayList frame) {
+    operationCount = frame.size();
+    drawCallCount = frame.getDrawCallCount();
+    vertexCount = frame.getVertexCount();
+    fillChangeCount = frame.getStateChangeCount();
+    imageCount = frame.getImageCount();
+    int[] overdraw = frame.overdraw(OVERDRAW_CELL_SIZE);
+    if (overdraw.length == 0) {
+      overdrawHotspotX = 0;
+      overdrawHotspotY = 0;
+      overdrawHotspotCount = 0;
+      return;
+    }
+    int hotspot = 0;
+    for (int cell = 1; cell < overdraw.length; cell++) {
+      if (overdraw[cell] > overdraw[hotspot]) {
+        hotspot = cell;
+      }
+    }
+    int columnCount = (int) Math.ceil(frame.getWidth() / OVERDRAW_CELL_SIZE);
+    overdrawHotspotX = (hotspot % columnCount) * OVERDRAW_CELL_SIZE;
+    overdrawHotspotY = (hotspot / columnCount) * OVERDRAW_CELL_SIZE;
+    overdrawHotspotCount = overdraw[hotspot];
+  }
+
+  /**
+   * Takes the counters of the cache of asteroid tiles.
+   *
+   * @param tiles the cache of the world renderer
+   */
+  void update(AsteroidSpriteCache tiles) {
+    tileHitCount = tiles.getHitCount();
+    tileMissCount = tiles.getMissCount();
+    tileEvictionCount = tiles.getEvictionCount();
+    tileKibibytes = tiles.getMemoryUsed() / 1024;
+  }
+
+
+  public int getOperationCount() {
+    return operationCount;
+  }
+
+  public int getDrawCallCount() {
+    return drawCallCount;
+  }
+
+  public int getVertexCount() {
+    return vertexCount;
+  }
+
+  public int getFillChangeCount() {
+    return fillChangeCount;
+  }
+
+  public int getImageCount() {
+    return imageCount;
+  }
+
+  public int getOverdrawHotspotX() {
+    return overdrawHotspotX;
+  }
+
+  public int getOverdrawHotspotY() {
+    return overdrawHotspotY;
+  }
+
+  public int getOverdrawHotspotCount() {
+    return overdrawHotspotCount;
+  }
+
+  public long getTileHitCount() {
+    return tileHitCount;
+  }
+
+  public long getTileMissCount() {
+    return tileMissCount;
+  }
+
+  public long getTileEvictionCount() {
+    return tileEvictionCount;
+  }
+
+  public long getTileKibibytes() {
+    return tileKibibytes;
+  }
+
+
+  /**
+   * The side in pixels of the cells in which the overdraw is counted.
+   */
+  public static final int OVERDRAW_CELL_SIZE = 32;
+}
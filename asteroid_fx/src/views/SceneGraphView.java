@@ -0,0 +1,399 @@
+package views;
+
+import game.Asteroid;
+import game.PowerUp;
+import game.Spaceship;
+import javafx.scene.Group;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Polygon;
+import javafx.scene.transform.Rotate;
+import javafx.scene.transform.Scale;
+import javafx.scene.transform.Translate;
+import render.Renderer;
+import tools.Vector;
+import viewModel.ViewModel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A view drawing the asteroids, power-ups and the spaceship as retained
+ * JavaFX nodes instead of immediate canvas drawing: each asteroid is a
+ * polygon node and each image an image view, created once and then only
+ * moved and rotated. Nodes of objects that disappear are kept in pools
+ * and reused for new objects. The background, the particles and the score
+ * are still drawn on the canvas layers, as in CanvasView.
+ * <p>
+ * Nodes are placed in world units, in a group transformed to follow the
+ * view. Only asteroids near the view have nodes. Each object is shown at
+ * every copy of it meeting the view: its node at the first one, ghost
+ * nodes, pooled as well, at the others.
+ */
+public class SceneGraphView extends CanvasView {
+
+  /**
+   * The node of an asteroid: its shape around (0,0), rotated around that
+   * point, the center of the asteroid, then translated to its position.
+   * Node.setRotate would turn it around the center of its bounds instead,
+   * which is not the center of the asteroid.
+   */
+  private static class AsteroidNode extends Polygon {
+
+    private final Rotate rotation = new Rotate();
+
+    /* the nodes of the other copies of the asteroid, with the same shape */
+    private final List<AsteroidNode> ghosts = new ArrayList<>();
+
+    private AsteroidNode() {
+      getTransforms().add(rotation);
+    }
+  }
+
+
+  /**
+   * The ghost nodes of images, in a group, used in turn by the copies
+   * of the images drawn during a frame. Those left unused are hidden.
+   */
+  private class ImageGhosts {
+
+    private final Group parent;
+    private final List<ImageView> nodes = new ArrayList<>();
+    private int usedCount = 0;
+    private int previousUsedCount = 0;
+
+    private ImageGhosts(Group parent) {
+      this.parent = parent;
+    }
+
+    /**
+     * @return a ghost node displaying an image, reused from the previous
+     * frames when possible
+     */
+    private ImageView next(String path, double width, double height) {
+      if (usedCount == nodes.size()) {
+        ImageView node = createImageNode(path, width, height);
+        parent.getChildren().add(node);
+        nodes.add(node);
+      }
+      ImageView node = nodes.get(usedCount++);
+      node.setViewport(assets.getRegion(path, width, height));
+      node.setFitWidth(width);
+      node.setFitHeight(height);
+      node.setVisible(true);
+      return node;
+    }
+
+    /**
+     * Hides the ghost nodes not used during the frame, and starts the next
+     * frame.
+     */
+    private void endFrame() {
+      for (int i = usedCount; i < previousUsedCount; i++) {
+        nodes.get(i).setVisible(false);
+      }
+      previousUsedCount = usedCount;
+      usedCount = 0;
+    }
+  }
+
+
+  private final Pane nodeLayer;
+  private final Assets assets;
+
+  /* all the nodes, transformed from world units to the node layer */
+  private final Group viewNodes = new Group();
+  private final Scale viewScale = new Scale(1, 1);
+  private final Translate viewTranslate = new Translate();
+
+  /* the nodes of asteroids and power-ups, below the spaceship */
+  private final Group objectNodes = new Group();
+
+  /* the nodes of the objects drawn in the current and in the previous frame */
+  private Map<Asteroid, AsteroidNode> asteroidNodes = new IdentityHashMap<>();
+  private Map<Asteroid, AsteroidNode> previousAsteroidNodes = new IdentityHashMap<>();
+  private Map<PowerUp, ImageView> powerUpNodes = new IdentityHashMap<>();
+  private Map<PowerUp, ImageView> previousPowerUpNodes = new IdentityHashMap<>();
+
+  /* the nodes not used by any object, hidden */
+  private final Deque<AsteroidNode> asteroidPool = new ArrayDeque<>();
+  private final Deque<ImageView> powerUpPool = new ArrayDeque<>();
+
+  /* the ghost nodes of the power-ups, and of the spaceship above them */
+  private final ImageGhosts powerUpGhosts = new ImageGhosts(objectNodes);
+  private final ImageGhosts spaceshipGhosts = new ImageGhosts(viewNodes);
+
+  private final ImageView spaceshipNode;
+  private final ImageView engineBurningNode;
+  private final ImageView reverseBurningNode;
+  private final ImageView clockwiseBurningNode;
+  private final ImageView counterclockwiseBurningNode;
+
+  private final Color asteroidColor;
+
+
+  /**
+   * @param background the bottom layer, on which to draw the background
+   * @param world the layer on which to draw the particles
+   * @param nodeLayer the pane receiving the nodes, above the world layer
+   * @param hud the top layer, on which to draw the score
+   * @param viewModel the viewModel to display and interact with
+   * @param assets the images of the game, already loaded
+   */
+  public SceneGraphView(Renderer background, Renderer world, Pane nodeLayer,
+                        Renderer hud, ViewModel viewModel, Assets assets) {
+    super(background, world, hud, viewModel);
+    this.nodeLayer = nodeLayer;
+    this.assets = assets;
+    viewNodes.getTransforms().setAll(viewScale, viewTranslate);
+    viewNodes.getChildren().add(objectNodes);
+    nodeLayer.getChildren().add(viewNodes);
+    asteroidColor = Color.rgb(
+      (ASTEROID_COLOR >> 16) & 0xff, (ASTEROID_COLOR >> 8) & 0xff, ASTEROID_COLOR & 0xff);
+    spaceshipNode = createImageNode(Assets.spaceshipImg, PIXEL_SHIP_WIDTH, PIXEL_SHIP_HEIGHT);
+    engineBurningNode = createImageNode(Assets.engineBurningImg, PIXEL_SHIP_WIDTH, PIXEL_SHIP_HEIGHT);
+    reverseBurningNode = createImageNode(Assets.reverseBurningImg, PIXEL_SHIP_WIDTH, PIXEL_SHIP_HEIGHT);
+    clockwiseBurningNode = createImageNode(Assets.clockwiseBurningImg, PIXEL_SHIP_WIDTH, PIXEL_SHIP_HEIGHT);
+    counterclockwiseBurningNode =
+      createImageNode(Assets.counterclockwiseBurningImg, PIXEL_SHIP_WIDTH, PIXEL_SHIP_HEIGHT);
+    viewNodes.getChildren().addAll(spaceshipNode, engineBurningNode, reverseBurningNode,
+      clockwiseBurningNode, counterclockwiseBurningNode);
+  }
+
+
+  /**
+   * Draws the particles on the world layer, and moves the nodes of the
+   * other objects.
+   */
+  @Override
+  protected void renderWorld() {
+    double scale = Main.CANVAS_WIDTH / getViewWidth();
+    viewScale.setX(scale);
+    viewScale.setY(scale);
+    viewTranslate.setX(-getViewX());
+    viewTranslate.setY(-getViewY());
+    updateAsteroidNodes(findNearbyAsteroids());
+    updatePowerUpNodes(viewModel.getPowerUps());
+    render(viewModel.getParticles());
+    updateSpaceshipNodes(viewModel.getSpaceship());
+    powerUpGhosts.endFrame();
+    spaceshipGhosts.endFrame();
+  }
+
+
+  private void updateAsteroidNodes(List<Asteroid> asteroids) {
+    Map<Asteroid, AsteroidNode> previous = asteroidNodes;
+    asteroidNodes = previousAsteroidNodes;
+    previousAsteroidNodes = previous;
+    for (Asteroid asteroid : asteroids) {
+      AsteroidNode node = previous.remove(asteroid);
+      if (node == null) {
+        node = acquireAsteroidNode(asteroid);
+      }
+      asteroidNodes.put(asteroid, node);
+      placeAsteroidCopies(node, asteroid);
+    }
+    for (AsteroidNode node : previous.values()) {
+      releaseAsteroidNode(node);
+    }
+    previous.clear();
+  }
+
+
+  /**
+   * Moves the node of an asteroid to its first copy meeting the view, and
+   * ghost nodes to the others, taking or releasing ghosts as needed.
+   */
+  private void placeAsteroidCopies(AsteroidNode node, Asteroid asteroid) {
+    double x = asteroid.getX();
+    double y = asteroid.getY();
+    double radius = asteroid.getBoundingRadius();
+    // Polygon.rotate turns counterclockwise on screen, node rotations clockwise
+    double angle = -asteroid.getAngle();
+    int firstColumn = firstCopyColumn(x, radius);
+    int lastColumn = lastCopyColumn(x, radius);
+    int firstRow = firstCopyRow(y, radius);
+    int lastRow = lastCopyRow(y, radius);
+    int ghostCount = 0;
+    if (firstColumn > lastColumn || firstRow > lastRow) {
+      placeAsteroidNode(node, x, y, angle);
+    }
+    for (int column = firstColumn; column <= lastColumn; column++) {
+      for (int row = firstRow; row <= lastRow; row++) {
+        AsteroidNode copy = node;
+        if (column != firstColumn || row != firstRow) {
+          if (ghostCount == node.ghosts.size()) {
+            node.ghosts.add(acquireAsteroidNode(asteroid));
+          }
+          copy = node.ghosts.get(ghostCount++);
+        }
+        placeAsteroidNode(copy,
+          x + column * viewModel.getSpaceWidth(), y + row * viewModel.getSpaceHeight(), angle);
+      }
+    }
+    while (node.ghosts.size() > ghostCount) {
+      releaseAsteroidNode(node.ghosts.remove(node.ghosts.size() - 1));
+    }
+  }
+
+
+  private static void placeAsteroidNode(AsteroidNode node, double x, double y, double angle) {
+    node.setTranslateX(x);
+    node.setTranslateY(y);
+    node.rotation.setAngle(angle);
+    node.setVisible(true);
+  }
+
+
+  /**
+   * Hides the node of an asteroid that disappeared, and puts it and its
+   * ghosts back in the pool.
+   */
+  private void releaseAsteroidNode(AsteroidNode node) {
+    for (AsteroidNode ghost : node.ghosts) {
+      ghost.setVisible(false);
+      asteroidPool.push(ghost);
+    }
+    node.ghosts.clear();
+    node.setVisible(false);
+    asteroidPool.push(node);
+  }
+
+
+  /**
+   * @param asteroid an asteroid appearing
+   * @return a node with the shape of the asteroid, reused from the pool
+   * when possible
+   */
+  private AsteroidNode acquireAsteroidNode(Asteroid asteroid) {
+    AsteroidNode node = asteroidPool.poll();
+    if (node == null) {
+      node = new AsteroidNode();
+      node.setFill(asteroidColor);
+      objectNodes.getChildren().add(node);
+    }
+    tools.Polygon shape = asteroid.getLocalShape();
+    Double[] points = new Double[2 * shape.nbVertices()];
+    for (int i = 0; i < shape.nbVertices(); i++) {
+      points[2 * i] = shape.getVertex(i).getX();
+      points[2 * i + 1] = shape.getVertex(i).getY();
+    }
+    node.getPoints().setAll(points);
+    return node;
+  }
+
+
+  private void updatePowerUpNodes(List<PowerUp> powerUps) {
+    Map<PowerUp, ImageView> previous = powerUpNodes;
+    powerUpNodes = previousPowerUpNodes;
+    previousPowerUpNodes = previous;
+    for (PowerUp powerUp : powerUps) {
+      ImageView node = previous.remove(powerUp);
+      if (node == null) {
+        node = acquirePowerUpNode(powerUp);
+      }
+      powerUpNodes.put(powerUp, node);
+      place(node, powerUpImage(powerUp.getType()), powerUp.getPosition(), 0,
+        PIXEL_POWERUP_WIDTH, PIXEL_POWERUP_HEIGHT, powerUpGhosts);
+    }
+    for (ImageView node : previous.values()) {
+      node.setVisible(false);
+      powerUpPool.push(node);
+    }
+    previous.clear();
+  }
+
+
+  private ImageView acquirePowerUpNode(PowerUp powerUp) {
+    String path = powerUpImage(powerUp.getType());
+    ImageView node = powerUpPool.poll();
+    if (node == null) {
+      node = createImageNode(path, PIXEL_POWERUP_WIDTH, PIXEL_POWERUP_HEIGHT);
+      objectNodes.getChildren().add(node);
+      return node;
+    }
+    node.setViewport(assets.getRegion(path, PIXEL_POWERUP_WIDTH, PIXEL_POWERUP_HEIGHT));
+    node.setVisible(true);
+    return node;
+  }
+
+
+  private void updateSpaceshipNodes(Spaceship spaceship) {
+    placeShipImage(spaceshipNode, Assets.spaceshipImg, spaceship, true);
+    placeShipImage(engineBurningNode, Assets.engineBurningImg, spaceship,
+      spaceship.isMainEngineBurning());
+    placeShipImage(reverseBurningNode, Assets.reverseBurningImg, spaceship,
+      spaceship.isReverseEngineBurning());
+    placeShipImage(clockwiseBurningNode, Assets.clockwiseBurningImg, spaceship,
+      spaceship.isClockwiseEngineBurning());
+    placeShipImage(counterclockwiseBurningNode, Assets.counterclockwiseBurningImg, spaceship,
+      spaceship.isCounterclockwiseEngineBurning());
+  }
+
+
+  /**
+   * Moves and rotates a node displaying the spaceship or one of its
+   * overlays, shown with its ghosts only when visible.
+   */
+  private void placeShipImage(ImageView node, String path, Spaceship spaceship,
+                              boolean isVisible) {
+    node.setVisible(isVisible);
+    if (isVisible) {
+      place(node, path, spaceship.getPosition(), spaceship.getDirectionAngle(),
+        PIXEL_SHIP_WIDTH, PIXEL_SHIP_HEIGHT, spaceshipGhosts);
+    }
+  }
+
+
+  /**
+   * Moves and rotates an image node so that its center is at the first
+   * copy of a position meeting the view, or at the position itself if no
+   * copy does, and ghost nodes to the other copies.
+   */
+  private void place(ImageView node, String path, Vector center, double angle,
+                     double width, double height, ImageGhosts ghosts) {
+    double radius = Math.hypot(width, height) / 2;
+    int firstColumn = firstCopyColumn(center.getX(), radius);
+    int lastColumn = lastCopyColumn(center.getX(), radius);
+    int firstRow = firstCopyRow(center.getY(), radius);
+    int lastRow = lastCopyRow(center.getY(), radius);
+    if (firstColumn > lastColumn || firstRow > lastRow) {
+      placeImageNode(node, center.getX(), center.getY(), angle, width, height);
+      return;
+    }
+    for (int column = firstColumn; column <= lastColumn; column++) {
+      for (int row = firstRow; row <= lastRow; row++) {
+        ImageView copy = (column == firstColumn && row == firstRow) ?
+          node : ghosts.next(path, width, height);
+        placeImageNode(copy, center.getX() + column * viewModel.getSpaceWidth(),
+          center.getY() + row * viewModel.getSpaceHeight(), angle, width, height);
+      }
+    }
+  }
+
+
+  private static void placeImageNode(ImageView node, double x, double y, double angle,
+                                     double width, double height) {
+    node.setTranslateX(x - width / 2);
+    node.setTranslateY(y - height / 2);
+    node.setRotate(angle);
+  }
+
+
+  /**
+   * @return a new node displaying an image from the packed texture, not
+   * attached to the scene yet
+   */
+  private ImageView createImageNode(String path, double width, double height) {
+    ImageView node = new ImageView(assets.getTexture());
+    node.setViewport(assets.getRegion(path, width, height));
+    node.setFitWidth(width);
+    node.setFitHeight(height);
+    return node;
+  }
+}
@@ -0,0 +1,143 @@
+package views;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.util.List;
+
+/**
+ * A texture containing images pre-rendered at a fixed number of rotation
+ * angles. Drawing a rotated image is then a single copy of a cell of the
+ * texture, without changing the transformation of the drawing context.
+ * <p>
+ * Each image of the atlas is a layer, identified by its path. All the
+ * layers have the same dimensions, and are centered in square cells large
+ * enough to contain them at any angle. The cells are rendered at a given
+ * scale, the number of canvas pixels per unit of the context they are
+ * drawn on, so that they are copied pixel for pixel; an atlas must be
+ * rebuilt when that scale changes. The atlas must be built on the JavaFX
+ * application thread.
+ */
+public class SpriteAtlas {
+
+  /**
+   * The maximum number of cells on a row of the texture.
+   */
+  private static final int MAX_COLUMN_COUNT = 16;
+
+  private final List<String> layers;
+  private final int angleCount;
+  private final double angleStep;
+  private final double scale;
+  private final int cellSize;
+  private final int columnCount;
+  private final WritableImage texture;
+
+
+  /**
+   * @param assets the loaded images of the game
+   * @param layers the paths of the images to pre-render
+   * @param width the width at which the images are drawn, in units of the
+   *              context
+   * @param height the height at which the images are drawn, in units of
+   *               the context
+   * @param angleCount the number of angles at which each image is rendered
+   * @param scale the number of canvas pixels per unit of the context on
+   *              which the images are drawn
+   */
+  public SpriteAtlas(Assets assets, List<String> layers,
+                     double width, double height, int angleCount, double scale) {
+    this.layers = layers;
+    this.angleCount = angleCount;
+    this.angleStep = 360. / angleCount;
+    this.scale = scale;
+    this.cellSize = (int) Math.ceil(Math.hypot(width, height) * scale);
+    int cellCount = layers.size() * angleCount;
+    this.columnCount = Math.min(cellCount, MAX_COLUMN_COUNT);
+    int rowCount = (cellCount + columnCount - 1) / columnCount;
+    Canvas canvas = new Canvas(columnCount * cellSize, rowCount * cellSize);
+    GraphicsContext context = canvas.getGraphicsContext2D();
+    for (int layer = 0; layer < layers.size(); layer++) {
+      for (int angle = 0; angle < angleCount; angle++) {
+        int cell = layer * angleCount + angle;
+        context.save();
+        context.translate(cellX(cell) + cellSize / 2., cellY(cell) + cellSize / 2.);
+        context.rotate(angle * angleStep);
+        // drawn at its size in pixels, from a mip level large enough
+        assets.draw(context, layers.get(layer),
+          -width * scale / 2, -height * scale / 2, width * scale, height * scale);
+        context.restore();
+      }
+    }
+    SnapshotParameters parameters = new SnapshotParameters();
+    parameters.setFill(Color.TRANSPARENT);
+    texture = canvas.snapshot(parameters, null);
+  }
+
+
+  /**
+   * @return the number of angles at which each layer is pre-rendered.
+   */
+  public int getAngleCount() {
+    return angleCount;
+  }
+
+
+  /**
+   * @return the number of canvas pixels per unit of the context, at which
+   * the cells are rendered.
+   */
+  public double getScale() {
+    return scale;
+  }
+
+
+  /**
+   * @param path the path of an image
+   * @return whether the image is a layer of this atlas
+   */
+  public boolean contains(String path) {
+    return layers.contains(path);
+  }
+
+
+  /**
+   * Draws a layer rotated by the pre-rendered angle closest to a given angle.
+   *
+   * @param context the context on which to draw
+   * @param path the path of the image of the layer to draw
+   * @param angle the angle of rotation in degree
+   * @param x the horizontal position of the center of the image
+   * @param y the vertical position of the center of the image
+   */
+  public void draw(GraphicsContext context, String path, double angle,
+                   double x, double y) {
+    int cell = layers.indexOf(path) * angleCount + angleIndex(angle);
+    double size = cellSize / scale;
+    context.drawImage(
+      texture,
+      cellX(cell), cellY(cell), cellSize, cellSize,
+      x - size / 2, y - size / 2, size, size);
+  }
+
+
+  /**
+   * @param angle any angle in degree
+   * @return the index of the pre-rendered angle closest to that angle
+   */
+  private int angleIndex(double angle) {
+    int index = (int) Math.round(angle / angleStep) % angleCount;
+    return (index < 0) ? index + angleCount : index;
+  }
+
+  private int cellX(int cell) {
+    return (cell % columnCount) * cellSize;
+  }
+
+  private int cellY(int cell) {
+    return (cell / columnCount) * cellSize;
+  }
+}
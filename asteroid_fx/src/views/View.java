@@ -3,16 +3,23 @@ package views;
 import inspector.Inspections;
 import viewModel.ViewModel;
 import inspector.ObjectInspection;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.TextField;
 import javafx.scene.control.TreeView;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.transform.Scale;
+import render.RecordingRenderer;
+import render.Renderer;
 
 import java.util.List;
+import java.util.concurrent.CompletionException;
 
 /**
  * The fr.univamu.asteroid.view handles the graphical user interface. It receives and processes
@@ -36,13 +43,13 @@ public class View {
         viewModel.startSpaceshipMainEngine();
         break;
       case DOWN:
-        // TODO
+        viewModel.startSpaceshipReverseEngine();
         break;
       case LEFT:
-        // TODO
-        // break;
+        viewModel.startSpaceshipCounterclockwiseEngine();
+        break;
       case RIGHT:
-        // TODO
+        viewModel.startSpaceshipClockwiseEngine();
         break;
       case SPACE:
         //TODO
@@ -63,13 +70,13 @@ public class View {
         viewModel.stopSpaceshipMainEngine();
         break;
       case DOWN:
-        // TODO
+        viewModel.stopSpaceshipReverseEngine();
         break;
       case LEFT:
-        // TODO
+        viewModel.stopSpaceshipCounterclockwiseEngine();
         break;
       case RIGHT:
-        // TODO
+        viewModel.stopSpaceshipClockwiseEngine();
         break;
     }
 
@@ -90,9 +97,15 @@ public class View {
       ); // only objects from these packages are displayed in the data view
          // other objects will appear as "hidden".
 
+  @FXML
+  private Canvas backgroundCanvas; // layer for the background
   @FXML
   private Canvas canvas;
   @FXML
+  private Pane nodeLayer; // layer for the nodes of the scene graph view
+  @FXML
+  private Canvas hudCanvas; // layer for the score
+  @FXML
   private TreeView<String> treeView; // to visualize the game data
   @FXML
   private Button runButton; // start/stop the game
@@ -103,6 +116,27 @@ public class View {
 
   private final Timer timer = new Timer(this);
 
+  // whether objects are drawn as retained nodes instead of on the canvas
+  private boolean isSceneGraphModeOn = false;
+
+  // whether the draw calls of the world layer are recorded
+  private boolean isRecordingModeOn = false;
+  private RecordingRenderer recorder; // null when not recording
+
+  // whether asteroids are drawn from tiles cached by the world renderer
+  private boolean isAsteroidSpriteModeOn = false;
+  private FxRenderer worldRenderer; // null until the images are loaded
+
+  // number of pixels of the canvases per pixel of the window
+  private double renderScale = 1;
+
+  // number of angles at which the images of the ship are pre-rendered
+  private int shipAngleCount = DEFAULT_SHIP_ANGLE_COUNT;
+  private static final int DEFAULT_SHIP_ANGLE_COUNT = 72;
+
+  // what the optional modes measured on the last frame
+  private final RenderStatistics statistics = new RenderStatistics();
+
 
   /**
    * Method called by the animation timer when the scene must be updated.
@@ -133,26 +167,180 @@ public class View {
    */
   public void render() {
     canvasView.render();
+    if (recorder != null) {
+      statistics.update(recorder.getLastFrame());
+    }
+    if (isAsteroidSpriteModeOn && worldRenderer != null) {
+      statistics.update(worldRenderer.getShapeTiles());
+    }
     inspectionView.render();
   }
 
 
 
   /**
-   * Initialize the view: canvas, button and event handlers, and start the timer.
+   * Chooses how the objects of the game are drawn. Must be called before
+   * the view is initialized.
+   *
+   * @param isOn whether objects are drawn as retained scene graph nodes
+   *             rather than on a canvas
+   */
+  void setSceneGraphMode(boolean isOn) {
+    isSceneGraphModeOn = isOn;
+  }
+
+
+  /**
+   * Sets the resolution at which the canvases are drawn, relative to their
+   * size in the window: below 1 they are drawn smaller then upscaled, which
+   * is cheaper, above 1 they are drawn larger, which is sharper on HiDPI
+   * screens. It can be changed while the game runs; the simulation is not
+   * affected.
+   *
+   * @param renderScale the number of canvas pixels per window pixel
+   */
+  void setRenderScale(double renderScale) {
+    if (renderScale <= 0) {
+      throw new IllegalArgumentException("render scale must be positive: " + renderScale);
+    }
+    this.renderScale = renderScale;
+    if (viewModel != null) { // already initialized
+      resizeLayers();
+    }
+  }
+
+
+  /**
+   * Sizes the canvases according to the render scale and scales them back
+   * to their size in the window. The canvases are left out of the layout,
+   * whose size is given by the node layer.
+   */
+  private void resizeLayers() {
+    for (Canvas layer : List.of(backgroundCanvas, canvas, hudCanvas)) {
+      layer.setManaged(false);
+      layer.setWidth(Main.CANVAS_WIDTH * renderScale);
+      layer.setHeight(Main.CANVAS_HEIGHT * renderScale);
+      layer.getTransforms().setAll(new Scale(1 / renderScale, 1 / renderScale));
+    }
+    nodeLayer.setMinSize(Main.CANVAS_WIDTH, Main.CANVAS_HEIGHT);
+    nodeLayer.setPrefSize(Main.CANVAS_WIDTH, Main.CANVAS_HEIGHT);
+  }
+
+
+  /**
+   * Sets the number of angles at which the images of the ship are
+   * pre-rendered into the atlas: the ship is drawn at the nearest of them,
+   * so more angles turn it more smoothly, for a larger atlas. Must be
+   * called before the view is initialized.
+   *
+   * @param shipAngleCount the number of angles, evenly spread over a turn
+   */
+  void setShipAngleCount(int shipAngleCount) {
+    if (shipAngleCount <= 0) {
+      throw new IllegalArgumentException("ship angle count must be positive: " + shipAngleCount);
+    }
+    this.shipAngleCount = shipAngleCount;
+  }
+
+
+  /**
+   * Chooses whether the draw calls of the world layer are recorded, frame
+   * by frame. Must be called before the view is initialized.
+   *
+   * @param isOn whether draw calls are recorded
+   */
+  void setRecordingMode(boolean isOn) {
+    isRecordingModeOn = isOn;
+  }
+
+
+  /**
+   * Chooses whether asteroids are drawn as polygons filled at each frame,
+   * or copied from tiles rasterized once per rotation bucket. Must be
+   * called before the view is initialized; the scene graph mode ignores it.
+   *
+   * @param isOn whether asteroids are drawn from cached tiles
+   */
+  void setAsteroidSpriteMode(boolean isOn) {
+    isAsteroidSpriteModeOn = isOn;
+  }
+
+
+  /**
+   * @return what the optional modes of the view measured on the last
+   * frame, also shown in the inspector.
+   */
+  RenderStatistics getStatistics() {
+    return statistics;
+  }
+
+
+  /**
+   * Initialize the view: canvas, button and event handlers. The canvas is
+   * drawn and the timer started once the images are loaded.
    *
    * @param viewModel the viewModel of the game.
    */
   public void initialize(ViewModel viewModel) {
     this.viewModel = viewModel;
-    canvasView = new CanvasView(canvas, viewModel);
    for (String packageName : inspectablePackages) {
       Inspections.addAuthorizedPackage(packageName);
     }
      inspectionView =
-      new inspector.View(treeView, new ObjectInspection("model", viewModel));
-    canvas.setWidth(Main.CANVAS_WIDTH);
-    canvas.setHeight(Main.CANVAS_HEIGHT);
+      new inspector.View(treeView,
+        new ObjectInspection("model", viewModel),
+        new ObjectInspection("rendering", statistics));
+    resizeLayers();
+    Assets.preload().whenCompleteAsync(
+      (assets, error) -> {
+        if (error != null) {
+          showLoadingError(error);
+          return;
+        }
+        start(assets);
+      },
+      Platform::runLater);
+  }
+
+
+  /**
+   * Tells the user that the images of the game could not be loaded, then
+   * quits: the game cannot be drawn without them.
+   *
+   * @param error why the images could not be loaded
+   */
+  private void showLoadingError(Throwable error) {
+    Throwable cause =
+      (error instanceof CompletionException && error.getCause() != null) ?
+        error.getCause() : error;
+    Alert alert = new Alert(Alert.AlertType.ERROR);
+    alert.setTitle("Asteroids");
+    alert.setHeaderText("The images of the game could not be loaded.");
+    alert.setContentText(cause.toString());
+    alert.showAndWait();
+    Platform.exit();
+  }
+
+
+  /**
+   * Draws the first frame, enables the buttons and starts the timer.
+   *
+   * @param assets the loaded images of the game.
+   */
+  private void start(Assets assets) {
+    Renderer background = new FxRenderer(backgroundCanvas, assets, shipAngleCount);
+    worldRenderer = new FxRenderer(canvas, assets, shipAngleCount);
+    Renderer world = worldRenderer;
+    if (isRecordingModeOn) {
+      recorder = new RecordingRenderer(world);
+      world = recorder;
+    }
+    Renderer hud = new FxRenderer(hudCanvas, assets, shipAngleCount);
+    canvasView =
+      isSceneGraphModeOn ?
+        new SceneGraphView(background, world, nodeLayer, hud, viewModel, assets) :
+        new CanvasView(background, world, hud, viewModel);
+    canvasView.setAsteroidSpriteMode(isAsteroidSpriteModeOn);
     render();
     runButton.setOnMouseClicked(this::handleRunClicked);
     stepButton.setOnMouseClicked(this::handleStepClicked);
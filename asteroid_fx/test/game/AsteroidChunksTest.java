@@ -0,0 +1,61 @@
+package game;
+
+import tools.Polygon;
+import tools.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that asteroids put to sleep in a dormant chunk come back with
+ * the same state, moved as if they had been simulated, including the time
+ * their update was deferred.
+ * <p>
+ * Run from the directory asteroid_fx, with the default size of space:
+ * java -cp bin game.AsteroidChunksTest
+ */
+public class AsteroidChunksTest {
+
+  public static void main(String[] args) {
+    AsteroidChunks chunks = new AsteroidChunks(
+      Space.SPACE_WIDTH, Space.SPACE_HEIGHT, 200, 100, 300);
+    Polygon square = new Polygon(List.of(
+      new Vector(10, 10), new Vector(-10, 10), new Vector(-10, -10), new Vector(10, -10)));
+    Asteroid asteroid = new Asteroid(new Vector(594, 604), square, new Vector(3, -2), 0, 5, 1);
+    asteroid.update(0);
+    asteroid.defer(2);
+    double mass = asteroid.getMass();
+    List<Asteroid> asteroids = new ArrayList<>(List.of(asteroid));
+
+    chunks.update(asteroids, new Vector(300, 300), 0);
+    check(asteroids.isEmpty() && chunks.getDormantAsteroidCount() == 1,
+      "far asteroid still simulated");
+
+    chunks.update(asteroids, new Vector(600, 600), 10);
+    check(asteroids.size() == 1 && chunks.getDormantAsteroidCount() == 0,
+      "near asteroid still dormant");
+    Asteroid woken = asteroids.get(0);
+    check(woken.getX() == 630 && woken.getY() == 580 && woken.getAngle() == 60,
+      "woken asteroid at " + woken.getPosition() + ", angle " + woken.getAngle());
+    check(woken.getVelocity().getX() == 3 && woken.getVelocity().getY() == -2
+        && woken.getAngularVelocity() == 5 && woken.getSize() == 1,
+      "woken asteroid changed velocity or size");
+    check(woken.nbVertices() == square.nbVertices() && woken.getBoundingRadius() == square.radius()
+        && woken.getMass() == mass,
+      "woken asteroid changed shape");
+    for (int i = 0; i < square.nbVertices(); i++) {
+      Vector vertex = woken.getLocalShape().getVertex(i);
+      check(vertex.getX() == square.getVertex(i).getX()
+          && vertex.getY() == square.getVertex(i).getY(),
+        "woken asteroid has vertex " + vertex);
+    }
+    System.out.println("AsteroidChunksTest: OK");
+  }
+
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+}
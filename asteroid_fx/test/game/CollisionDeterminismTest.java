@@ -0,0 +1,79 @@
+package game;
+
+import tools.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that the collisions of a crowd of asteroids replay identically:
+ * two runs from the same seed must end with the same positions, angles
+ * and velocities, bit for bit, whatever the scheduling of the workers.
+ * <p>
+ * Run from the directory asteroid_fx, with the default size of space:
+ * java -cp bin game.CollisionDeterminismTest
+ */
+public class CollisionDeterminismTest {
+
+  public static void main(String[] args) {
+    long firstHash = run();
+    long secondHash = run();
+    check(firstHash == secondHash,
+      "runs ended apart: " + Long.toHexString(firstHash) + " and " + Long.toHexString(secondHash));
+    System.out.println("CollisionDeterminismTest: OK");
+  }
+
+
+  /**
+   * Runs the collisions of the asteroids generated from the seed.
+   *
+   * @return a hash of the final state of the asteroids
+   */
+  private static long run() {
+    RandomGenerator generator = new RandomGenerator(SEED);
+    List<Asteroid> asteroids = new ArrayList<>();
+    double spacing = Space.SPACE_WIDTH / ROW_SIZE;
+    for (int row = 0; row < ROW_SIZE; row++) {
+      for (int column = 0; column < ROW_SIZE; column++) {
+        Vector position = new Vector((column + 0.5) * spacing, (row + 0.5) * spacing);
+        asteroids.add(generator.asteroid(position, 1 + (row + column) % 3));
+      }
+    }
+    AsteroidGrid grid = new AsteroidGrid(Space.SPACE_WIDTH, Space.SPACE_HEIGHT, CELL_SIZE);
+    CollisionSolver solver = new CollisionSolver(Space.SPACE_WIDTH, Space.SPACE_HEIGHT);
+    int contactCount = 0;
+    for (int tick = 0; tick < TICK_COUNT; tick++) {
+      grid.rebuild(asteroids);
+      solver.solve(asteroids, grid);
+      contactCount += solver.getContactCount();
+      for (Asteroid asteroid : asteroids) {
+        asteroid.update(TICK_DURATION);
+      }
+    }
+    check(contactCount > 0, "no contact in " + TICK_COUNT + " ticks");
+
+    long hash = 17;
+    for (Asteroid asteroid : asteroids) {
+      for (double value : new double[] {
+          asteroid.getX(), asteroid.getY(), asteroid.getAngle(),
+          asteroid.getVelocity().getX(), asteroid.getVelocity().getY(),
+          asteroid.getAngularVelocity()}) {
+        hash = 31 * hash + Double.doubleToLongBits(value);
+      }
+    }
+    return hash;
+  }
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+
+
+  private static final long SEED = 46;
+  private static final int ROW_SIZE = 16;
+  private static final double CELL_SIZE = 128;
+  private static final int TICK_COUNT = 600;
+  private static final double TICK_DURATION = 1. / 60;
+}
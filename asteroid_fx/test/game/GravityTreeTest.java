@@ -0,0 +1,103 @@
+package game;
+
+import tools.Polygon;
+import tools.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that the gravity tree with an opening angle of 0 gives the
+ * accelerations of the sum over all pairs of bodies, each attracted by
+ * the nearest copy of the others, including bodies near the borders and
+ * corners of space, whose nearest copies lie across them.
+ * <p>
+ * Run from the directory asteroid_fx, with the default size of space:
+ * java -cp bin game.GravityTreeTest
+ */
+public class GravityTreeTest {
+
+  public static void main(String[] args) {
+    Random random = new Random(SEED);
+    Polygon square = new Polygon(List.of(
+      new Vector(5, 5), new Vector(-5, 5), new Vector(-5, -5), new Vector(5, -5)));
+    List<Asteroid> asteroids = new ArrayList<>();
+    for (int i = 0; i < RANDOM_BODY_COUNT; i++) {
+      Vector position = new Vector(random.nextDouble() * Space.SPACE_WIDTH,
+        random.nextDouble() * Space.SPACE_HEIGHT);
+      asteroids.add(new Asteroid(position, square, new Vector(0, 0), 0, 1 + random.nextInt(3)));
+    }
+    // near the borders and the corners, attracted across them
+    double[][] borderPositions = {
+      {1, 400}, {Space.SPACE_WIDTH - 1, 410}, {300, 0.5}, {310, Space.SPACE_HEIGHT - 0.5},
+      {0.2, 0.3}, {Space.SPACE_WIDTH - 0.2, Space.SPACE_HEIGHT - 0.3},
+      {Space.SPACE_WIDTH - 2, 3}, {2, Space.SPACE_HEIGHT - 3}};
+    for (double[] position : borderPositions) {
+      asteroids.add(new Asteroid(new Vector(position[0], position[1]), square,
+        new Vector(0, 0), 0, 2));
+    }
+    Spaceship spaceship = new Spaceship();
+    Vector spaceshipVelocity = spaceship.getVelocity();
+
+    int bodyCount = asteroids.size() + 1;
+    double[] xs = new double[bodyCount];
+    double[] ys = new double[bodyCount];
+    double[] masses = new double[bodyCount];
+    for (int i = 0; i < asteroids.size(); i++) {
+      xs[i] = asteroids.get(i).getX();
+      ys[i] = asteroids.get(i).getY();
+      masses[i] = asteroids.get(i).getSize();
+    }
+    xs[bodyCount - 1] = spaceship.getPosition().getX();
+    ys[bodyCount - 1] = spaceship.getPosition().getY();
+    masses[bodyCount - 1] = SPACESHIP_MASS;
+
+    GravityTree tree = new GravityTree(Space.SPACE_WIDTH, Space.SPACE_HEIGHT,
+      GRAVITY_CONSTANT, SOFTENING, 0);
+    tree.apply(asteroids, spaceship, SPACESHIP_MASS, DT);
+    check(tree.getInteractionCount() == (long) bodyCount * (bodyCount - 1),
+      tree.getInteractionCount() + " interactions instead of all pairs");
+
+    for (int i = 0; i < bodyCount; i++) {
+      double ax = 0;
+      double ay = 0;
+      for (int j = 0; j < bodyCount; j++) {
+        if (j != i) {
+          double dx = Space.wrap(xs[j] - xs[i], Space.SPACE_WIDTH);
+          double dy = Space.wrap(ys[j] - ys[i], Space.SPACE_HEIGHT);
+          double softened = dx * dx + dy * dy + SOFTENING * SOFTENING;
+          double factor = GRAVITY_CONSTANT * masses[j] / (softened * Math.sqrt(softened));
+          ax += factor * dx;
+          ay += factor * dy;
+        }
+      }
+      Vector deltaV = (i < asteroids.size()) ?
+        asteroids.get(i).getVelocity() :
+        spaceship.getVelocity().subtract(spaceshipVelocity);
+      double error = Math.hypot(deltaV.getX() - ax * DT, deltaV.getY() - ay * DT);
+      check(error <= TOLERANCE * Math.hypot(ax * DT, ay * DT),
+        "body " + i + " at (" + xs[i] + ", " + ys[i] + "): " + deltaV
+          + " instead of (" + ax * DT + ", " + ay * DT + ")");
+    }
+    System.out.println("GravityTreeTest: OK");
+  }
+
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+
+
+  private static final long SEED = 44;
+  private static final int RANDOM_BODY_COUNT = 600;
+  private static final double GRAVITY_CONSTANT = 2000;
+  private static final double SOFTENING = 20;
+  private static final double SPACESHIP_MASS = 1;
+  private static final double DT = 1. / 60;
+
+  // relative error allowed, from the order of the sums
+  private static final double TOLERANCE = 1e-9;
+}
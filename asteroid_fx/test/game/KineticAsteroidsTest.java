@@ -0,0 +1,61 @@
+package game;
+
+import tools.Polygon;
+import tools.Vector;
+
+import java.util.List;
+
+/**
+ * Checks that two analytic asteroids meeting across the border of space
+ * are reported once, when their bounding circles start to touch, and that
+ * velocities changed by the contact handler are followed from then on.
+ * <p>
+ * Run from the directory asteroid_fx, with the default size of space:
+ * java -cp bin game.KineticAsteroidsTest
+ */
+public class KineticAsteroidsTest {
+
+  public static void main(String[] args) {
+    KineticAsteroids kineticAsteroids =
+      new KineticAsteroids(Space.SPACE_WIDTH, Space.SPACE_HEIGHT, 100);
+    Polygon square = new Polygon(List.of(
+      new Vector(10, 0), new Vector(0, 10), new Vector(-10, 0), new Vector(0, -10)));
+    // 40 apart across the left border, closing at 20 per second: the
+    // circles of radius 10 touch after 1 second
+    Asteroid left = new Asteroid(new Vector(Space.SPACE_WIDTH - 20, 400), square,
+      new Vector(10, 0), 0, 1);
+    Asteroid right = new Asteroid(new Vector(20, 400), square, new Vector(-10, 0), 0, 1);
+    double[] contactTimes = {Double.NaN};
+    kineticAsteroids.setContactHandler((first, second) -> {
+      contactTimes[0] = kineticAsteroids.getTime();
+      // swaps the velocities, as an elastic bounce of equal masses
+      Vector velocity = first.getVelocity();
+      first.accelerate(second.getVelocity().subtract(velocity));
+      second.accelerate(velocity.subtract(second.getVelocity()));
+    });
+    kineticAsteroids.add(left);
+    kineticAsteroids.add(right);
+
+    kineticAsteroids.advance(3);
+    check(kineticAsteroids.getContactCount() == 1,
+      kineticAsteroids.getContactCount() + " contacts");
+    check(Math.abs(contactTimes[0] - 1) < EPSILON, "contact at " + contactTimes[0]);
+    // back where they started 1 second after touching, then 10 further
+    check(Math.abs(left.getX() - (Space.SPACE_WIDTH - 30)) < EPSILON
+        && Math.abs(right.getX() - 30) < EPSILON,
+      "asteroids at " + left.getPosition() + " and " + right.getPosition());
+    check(left.getVelocity().getX() == -10 && right.getVelocity().getX() == 10,
+      "velocities " + left.getVelocity() + " and " + right.getVelocity());
+    System.out.println("KineticAsteroidsTest: OK");
+  }
+
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+
+
+  private static final double EPSILON = 1e-9;
+}
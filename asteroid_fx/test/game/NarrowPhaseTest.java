@@ -0,0 +1,89 @@
+package game;
+
+import tools.Polygon;
+import tools.Vector;
+
+import java.util.List;
+
+/**
+ * Checks the contacts found by the narrow phase for pairs of asteroids
+ * overlapping across the borders of space: moving the second asteroid by
+ * the depth along the normal separates the pair, moving it slightly less
+ * does not, and once separated the axis kept in the manifold finds it
+ * without testing the other axes.
+ * <p>
+ * Run from the directory asteroid_fx, with the default size of space:
+ * java -cp bin game.NarrowPhaseTest
+ */
+public class NarrowPhaseTest {
+
+  public static void main(String[] args) {
+    Polygon square = new Polygon(List.of(
+      new Vector(10, 10), new Vector(-10, 10), new Vector(-10, -10), new Vector(10, -10)));
+    Polygon pentagon = new Polygon(List.of(
+      new Vector(14, 0), new Vector(4, 13), new Vector(-11, 8),
+      new Vector(-11, -8), new Vector(4, -13)));
+
+    // 17 apart across the right border, overlapping by 3 along the horizontal
+    Asteroid left = new Asteroid(new Vector(Space.SPACE_WIDTH - 5, 400), square,
+      new Vector(0, 0), 0, 1);
+    Asteroid right = new Asteroid(new Vector(12, 402), square, new Vector(0, 0), 0, 1);
+    ContactManifold manifold = new ContactManifold();
+    new NarrowPhase(Space.SPACE_WIDTH, Space.SPACE_HEIGHT).collide(left, right, manifold);
+    check(Math.abs(manifold.getNormalX() - 1) < EPSILON && Math.abs(manifold.getNormalY()) < EPSILON,
+      "normal (" + manifold.getNormalX() + ", " + manifold.getNormalY() + ") between squares");
+    check(Math.abs(manifold.getDepth() - 3) < EPSILON,
+      "depth " + manifold.getDepth() + " between squares");
+    checkDepth(left, right, "squares across the right border");
+
+    // rotated hulls, across the bottom left corner
+    Asteroid upper = new Asteroid(new Vector(6, Space.SPACE_HEIGHT - 4), pentagon,
+      new Vector(0, 0), 30, 0, 1);
+    Asteroid lower = new Asteroid(new Vector(Space.SPACE_WIDTH - 8, 14), square,
+      new Vector(0, 0), 75, 0, 1);
+    checkDepth(upper, lower, "rotated hulls across the corner");
+
+    System.out.println("NarrowPhaseTest: OK");
+  }
+
+
+  /**
+   * Checks that two overlapping asteroids stay in contact when the second
+   * one is moved slightly less than the depth along the normal, then are
+   * separated, through the cached axis, when moved the rest of the way.
+   */
+  private static void checkDepth(Asteroid first, Asteroid second, String label) {
+    NarrowPhase narrowPhase = new NarrowPhase(Space.SPACE_WIDTH, Space.SPACE_HEIGHT);
+    ContactManifold manifold = new ContactManifold();
+    check(narrowPhase.collide(first, second, manifold), label + ": no contact");
+    check(manifold.getPointCount() > 0, label + ": no contact point");
+    double normalX = manifold.getNormalX();
+    double normalY = manifold.getNormalY();
+    double depth = manifold.getDepth();
+    check(depth > 0, label + ": depth " + depth);
+
+    second.moveBy(normalX * depth * (1 - MARGIN), normalY * depth * (1 - MARGIN));
+    check(narrowPhase.collide(first, second, manifold),
+      label + ": separated short of the depth");
+    check(narrowPhase.getEarlyExitCount() == 0,
+      label + ": early exit while still in contact");
+
+    second.moveBy(normalX * depth * 2 * MARGIN, normalY * depth * 2 * MARGIN);
+    check(!narrowPhase.collide(first, second, manifold),
+      label + ": still in contact past the depth");
+    check(narrowPhase.getEarlyExitCount() == 1,
+      label + ": separation not found by the cached axis");
+  }
+
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+
+
+  // part of the depth by which the second asteroid falls short of or goes past it
+  private static final double MARGIN = 1e-3;
+  private static final double EPSILON = 1e-9;
+}
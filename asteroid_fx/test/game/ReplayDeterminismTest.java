@@ -0,0 +1,127 @@
+package game;
+
+import tools.FixedPoint;
+
+/**
+ * Checks that a game replays identically: two games created with the same
+ * seed and played with the same scripted engine commands must end in the
+ * same state, bit for bit. The state covers the spaceship, the asteroids,
+ * the power-ups, the particles and the score.
+ * <p>
+ * The test checks the mode selected by the system properties, so it runs
+ * once in double precision and once in fixed-point, from the directory
+ * asteroid_fx:
+ * java -cp bin game.ReplayDeterminismTest
+ * java -Dspace.fixedPoint=true -cp bin game.ReplayDeterminismTest
+ * In fixed-point, in the default space, where the spaceship lasts to the
+ * end, the state must also match the hash recorded below, whatever the
+ * JVM, with or without -Xint.
+ */
+public class ReplayDeterminismTest {
+
+  public static void main(String[] args) {
+    long firstHash = replay();
+    long secondHash = replay();
+    check(firstHash == secondHash,
+      "replays ended apart: " + Long.toHexString(firstHash) + " and " + Long.toHexString(secondHash));
+    if (FixedPoint.IS_ENABLED && isDefaultSpace()) {
+      check(firstHash == FIXED_POINT_HASH,
+        "fixed-point replay ended at " + Long.toHexString(firstHash)
+          + " instead of " + Long.toHexString(FIXED_POINT_HASH));
+    }
+    System.out.printf("ReplayDeterminismTest: OK, %s, hash %x%n",
+      FixedPoint.IS_ENABLED ? "fixed-point" : "double", firstHash);
+  }
+
+
+  /**
+   * Plays a game from the seed, starting and stopping the engines of the
+   * spaceship as scripted.
+   *
+   * @return a hash of the final state of the game, and of the tick it
+   * ended at
+   */
+  private static long replay() {
+    Space space = new Space(SEED);
+    Spaceship spaceship = space.getSpaceship();
+    int tick = 0;
+    for (; tick < TICK_COUNT && !space.isGameOver(); tick++) {
+      for (int c = 0; c < SCRIPT.length; c++) {
+        if (tick == SCRIPT_TICKS[c]) {
+          command(spaceship, SCRIPT[c]);
+        }
+      }
+      space.update(TICK_DURATION);
+    }
+
+    long hash = 17 + tick;
+    hash = mix(hash, spaceship.getPosition().getX());
+    hash = mix(hash, spaceship.getPosition().getY());
+    hash = mix(hash, spaceship.getVelocity().getX());
+    hash = mix(hash, spaceship.getVelocity().getY());
+    hash = mix(hash, spaceship.getDirectionAngle());
+    hash = mix(hash, spaceship.getAngularVelocity());
+    hash = mix(hash, spaceship.getFuel());
+    hash = mix(hash, space.getScore());
+    for (Asteroid asteroid : space.getAsteroids()) {
+      hash = mix(hash, asteroid.getX());
+      hash = mix(hash, asteroid.getY());
+      hash = mix(hash, asteroid.getAngle());
+    }
+    for (PowerUp powerUp : space.getPowerUps()) {
+      hash = mix(hash, powerUp.getPosition().getX());
+      hash = mix(hash, powerUp.getPosition().getY());
+    }
+    ParticleSystem particles = space.getParticles();
+    for (int rank = 0; rank < particles.size(); rank++) {
+      int index = particles.index(rank);
+      hash = mix(hash, particles.getX(index));
+      hash = mix(hash, particles.getY(index));
+    }
+    return hash;
+  }
+
+  private static void command(Spaceship spaceship, String command) {
+    switch (command) {
+      case "main on": spaceship.startMainEngine(); break;
+      case "main off": spaceship.stopMainEngine(); break;
+      case "reverse on": spaceship.startReverseEngine(); break;
+      case "reverse off": spaceship.stopReverseEngine(); break;
+      case "clockwise on": spaceship.startClockwiseEngine(); break;
+      case "clockwise off": spaceship.stopClockwiseEngine(); break;
+      case "counterclockwise on": spaceship.startCounterclockwiseEngine(); break;
+      case "counterclockwise off": spaceship.stopCounterclockwiseEngine(); break;
+      default: throw new IllegalArgumentException("unknown command " + command);
+    }
+  }
+
+  private static long mix(long hash, double value) {
+    return 31 * hash + Double.doubleToLongBits(value);
+  }
+
+  private static boolean isDefaultSpace() {
+    return System.getProperties().stringPropertyNames().stream()
+      .filter(name -> name.startsWith("space."))
+      .allMatch(name -> name.equals("space.fixedPoint"));
+  }
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+
+
+  private static final long SEED = 49;
+  private static final int TICK_COUNT = 600;
+  private static final double TICK_DURATION = 1. / 60;
+
+  // the engine commands, and the ticks they are given at
+  private static final int[] SCRIPT_TICKS = {30, 90, 120, 200, 260, 320, 380, 440, 500, 560};
+  private static final String[] SCRIPT = {
+    "main on", "clockwise on", "clockwise off", "main off", "counterclockwise on",
+    "counterclockwise off", "reverse on", "reverse off", "main on", "main off"};
+
+  // hash of the final state in fixed-point, in the default space
+  private static final long FIXED_POINT_HASH = 0x9b7a35dbfca30c1L;
+}
@@ -0,0 +1,107 @@
+package game;
+
+import tools.Polygon;
+import tools.Vector;
+
+import java.util.List;
+
+/**
+ * Checks that the game is over when an asteroid covers a contact point of
+ * the spaceship, near it or across the border of space, and not when
+ * only the bounding circles of the asteroid and of the contact points
+ * overlap.
+ * <p>
+ * Run from the directory asteroid_fx, with the default size of space:
+ * java -cp bin game.SpaceshipCollisionTest
+ */
+public class SpaceshipCollisionTest {
+
+  public static void main(String[] args) {
+    // over the contact point at the nose, the asteroid across the right border
+    Space space = spaceNearBorder();
+    Spaceship spaceship = space.getSpaceship();
+    addAsteroid(space, spaceship.getContactX(NOSE), spaceship.getContactY(NOSE));
+    check(space.getAsteroids().get(0).getX() < Space.SPACE_WIDTH / 2,
+      "asteroid at " + space.getAsteroids().get(0).getPosition() + ", not across the border");
+    space.update(0);
+    check(space.isGameOver(), "asteroid across the border over the nose missed");
+
+    // over a contact point at the back, on the same side of the border
+    space = spaceNearBorder();
+    spaceship = space.getSpaceship();
+    addAsteroid(space, spaceship.getContactX(BACK), spaceship.getContactY(BACK));
+    space.update(0);
+    check(space.isGameOver(), "asteroid over the back missed");
+
+    // between the contact points, the asteroid across the right border
+    space = spaceNearBorder();
+    spaceship = space.getSpaceship();
+    Vector position = spaceship.getPosition();
+    addAsteroid(space, position.getX() + BETWEEN_X, position.getY() + BETWEEN_Y);
+    Asteroid asteroid = space.getAsteroids().get(0);
+    double dx = Space.wrap(asteroid.getX() - position.getX(), Space.SPACE_WIDTH);
+    double dy = Space.wrap(asteroid.getY() - position.getY(), Space.SPACE_HEIGHT);
+    double distance = Spaceship.getContactRadius() + asteroid.getBoundingRadius();
+    check(asteroid.getX() < Space.SPACE_WIDTH / 2 && dx * dx + dy * dy < distance * distance,
+      "asteroid at " + asteroid.getPosition() + ", not overlapping across the border");
+    space.update(0);
+    check(!space.isGameOver(), "asteroid between the contact points hit the spaceship");
+
+    System.out.println("SpaceshipCollisionTest: OK");
+  }
+
+
+  /**
+   * @return a game without asteroids, whose spaceship has drifted to the
+   * right border of space, heading right and stopped there, so that its
+   * nose is across the border
+   */
+  private static Space spaceNearBorder() {
+    Space space = new Space(SEED);
+    space.getAsteroids().clear();
+    Spaceship spaceship = space.getSpaceship();
+    spaceship.accelerate(new Vector(DRIFT_SPEED, 0));
+    space.update(1);
+    spaceship.accelerate(spaceship.getVelocity().multiply(-1));
+    check(!space.isGameOver(), "game over without asteroids");
+    check(spaceship.getContactX(NOSE) > Space.SPACE_WIDTH
+        && spaceship.getPosition().getX() < Space.SPACE_WIDTH,
+      "spaceship at " + spaceship.getPosition() + ", nose not across the border");
+    return space;
+  }
+
+
+  /**
+   * Adds a still square asteroid, centered on a point possibly beyond the
+   * borders of space.
+   */
+  private static void addAsteroid(Space space, double x, double y) {
+    Polygon square = new Polygon(List.of(
+      new Vector(HALF_SIDE, HALF_SIDE), new Vector(-HALF_SIDE, HALF_SIDE),
+      new Vector(-HALF_SIDE, -HALF_SIDE), new Vector(HALF_SIDE, -HALF_SIDE)));
+    space.getAsteroids().add(new Asteroid(Space.toricRemap(new Vector(x, y)), square,
+      new Vector(0, 0), 0, 1));
+  }
+
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+
+
+  private static final long SEED = 47;
+
+  // the initial speed of the spaceship, damped to about 390 pixels in a second
+  private static final double DRIFT_SPEED = 452;
+
+  // contact points of the spaceship, at (27, 0) and (-13, 18) along its heading
+  private static final int NOSE = 1;
+  private static final int BACK = 5;
+
+  // the center of the asteroid between the contact points, from the spaceship
+  private static final double BETWEEN_X = 16;
+  private static final double BETWEEN_Y = 10;
+  private static final double HALF_SIDE = 4;
+}
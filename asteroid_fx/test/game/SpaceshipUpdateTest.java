@@ -0,0 +1,50 @@
+package game;
+
+/**
+ * Checks that an update of the spaceship over a huge delay, as may be
+ * typed in the step field, returns promptly with the spaceship in space,
+ * and that a delay of a second still moves it as many short updates do.
+ * <p>
+ * Run from the directory asteroid_fx, with the default size of space:
+ * java -cp bin game.SpaceshipUpdateTest
+ */
+public class SpaceshipUpdateTest {
+
+  public static void main(String[] args) {
+    Spaceship spaceship = new Spaceship();
+    spaceship.startMainEngine();
+    spaceship.startClockwiseEngine();
+    long start = System.nanoTime();
+    spaceship.update(HUGE_DELAY);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    check(seconds < MAX_UPDATE_SECONDS, "update of " + HUGE_DELAY + " s took " + seconds + " s");
+    double x = spaceship.getPosition().getX();
+    double y = spaceship.getPosition().getY();
+    check(x >= 0 && x < Space.SPACE_WIDTH && y >= 0 && y < Space.SPACE_HEIGHT,
+      "spaceship out of space at " + spaceship.getPosition());
+    check(Double.isFinite(spaceship.getDirectionAngle()), "direction lost");
+
+    Spaceship once = new Spaceship();
+    Spaceship often = new Spaceship();
+    once.startMainEngine();
+    often.startMainEngine();
+    once.update(1);
+    for (int i = 0; i < 120; i++) {
+      often.update(1. / 120);
+    }
+    check(once.getPosition().distanceTo(often.getPosition()) < 1e-6,
+      "one update at " + once.getPosition() + ", many at " + often.getPosition());
+    System.out.println("SpaceshipUpdateTest: OK");
+  }
+
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+
+
+  private static final double HUGE_DELAY = 1e9;
+  private static final double MAX_UPDATE_SECONDS = 1;
+}
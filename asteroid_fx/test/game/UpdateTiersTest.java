@@ -0,0 +1,59 @@
+package game;
+
+import tools.Polygon;
+import tools.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that a far asteroid is updated every other tick, whatever the
+ * changes of its place in the list of asteroids, and that it moves as if
+ * it were updated at each tick.
+ * <p>
+ * Run from the directory asteroid_fx, with the default size of space:
+ * java -cp bin game.UpdateTiersTest
+ */
+public class UpdateTiersTest {
+
+  public static void main(String[] args) {
+    UpdateTiers tiers = new UpdateTiers(Space.SPACE_WIDTH, Space.SPACE_HEIGHT, 100);
+    Vector spaceship = new Vector(400, 400);
+    Asteroid near = asteroid(new Vector(420, 400));
+    Asteroid far = asteroid(new Vector(700, 400));
+    List<Asteroid> asteroids = new ArrayList<>();
+    for (int tick = 1; tick <= TICK_COUNT; tick++) {
+      // the far asteroid moves back and forth in the list
+      asteroids.clear();
+      if (tick % 3 != 0) {
+        asteroids.add(near);
+      }
+      asteroids.add(far);
+      tiers.update(asteroids, spaceship, TICK_DURATION);
+      int expectedDeferredCount = (tick % 2 == 0) ? 1 : 0;
+      check(tiers.getDeferredCount() == expectedDeferredCount,
+        "tick " + tick + ": " + tiers.getDeferredCount() + " deferred");
+    }
+    double expectedX = 700 + SPEED * TICK_COUNT * TICK_DURATION;
+    check(Math.abs(far.getX() - expectedX) < 1e-9, "far asteroid at " + far.getX());
+    System.out.println("UpdateTiersTest: OK");
+  }
+
+
+  private static Asteroid asteroid(Vector position) {
+    Polygon square = new Polygon(List.of(
+      new Vector(5, 5), new Vector(-5, 5), new Vector(-5, -5), new Vector(5, -5)));
+    return new Asteroid(position, square, new Vector(SPEED, 0), 0, 0, 1);
+  }
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+
+
+  private static final int TICK_COUNT = 12;
+  private static final double TICK_DURATION = 0.1;
+  private static final double SPEED = 1;
+}
@@ -0,0 +1,137 @@
+package render;
+
+import game.Space;
+import tools.Polygon;
+import tools.Vector;
+import viewModel.ViewModel;
+import views.Assets;
+import views.CanvasView;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that frames of the game recorded in display lists can be
+ * compared and replayed, and that their statistics and overdraw count
+ * every kind of drawing operation.
+ * <p>
+ * Run from the directory asteroid_fx: java -cp bin render.DisplayListTest
+ */
+public class DisplayListTest {
+
+  public static void main(String[] args) {
+    sameGamesGiveSameRecordings(false);
+    sameGamesGiveSameRecordings(true);
+    replayGivesSameRecording();
+    replayGivesSamePixels();
+    overdrawCountsShapes();
+    System.out.println("DisplayListTest: OK");
+  }
+
+
+  /**
+   * Two games with the same seed are recorded identically, and differ
+   * once one of them moves on.
+   */
+  private static void sameGamesGiveSameRecordings(boolean isAsteroidSpriteModeOn) {
+    Space space = playSeededGame();
+    Space sameSpace = playSeededGame();
+    DisplayList frame = record(space, isAsteroidSpriteModeOn);
+    DisplayList sameFrame = record(sameSpace, isAsteroidSpriteModeOn);
+    check(frame.firstDifference(sameFrame) == -1, "same games recorded differently");
+    check(frame.getDrawCallCount() == sameFrame.getDrawCallCount()
+      && frame.getVertexCount() == sameFrame.getVertexCount(), "same games counted differently");
+    sameSpace.update(TICK_DURATION);
+    DisplayList nextFrame = record(sameSpace, isAsteroidSpriteModeOn);
+    check(frame.firstDifference(nextFrame) >= 0, "different frames recorded identically");
+  }
+
+
+  private static void replayGivesSameRecording() {
+    DisplayList frame = record(playSeededGame(), true);
+    DisplayList copy = new DisplayList(SIZE, SIZE);
+    frame.replay(copy);
+    check(frame.firstDifference(copy) == -1, "replayed recording differs");
+    check(frame.getDrawCallCount() == copy.getDrawCallCount()
+      && frame.getVertexCount() == copy.getVertexCount()
+      && frame.getStateChangeCount() == copy.getStateChangeCount()
+      && frame.getImageCount() == copy.getImageCount(), "replayed statistics differ");
+  }
+
+
+  private static void replayGivesSamePixels() {
+    Space space = playSeededGame();
+    Map<String, Bitmap> images = Bitmap.loadAll(Assets.IMAGE_PATHS);
+    SoftwareRenderer direct = new SoftwareRenderer(SIZE, SIZE, images);
+    SoftwareRenderer replayed = new SoftwareRenderer(SIZE, SIZE, images);
+    RecordingRenderer recorder = new RecordingRenderer(direct);
+    new CanvasView(new DisplayList(SIZE, SIZE), recorder, new DisplayList(SIZE, SIZE),
+      new ViewModel(space, null)).render();
+    recorder.getLastFrame().replay(replayed);
+    replayed.flush();
+    check(Arrays.equals(direct.getPixels(), replayed.getPixels()), "replayed pixels differ");
+  }
+
+
+  /**
+   * A shape is counted in the cells its bounding circle meets, once the
+   * transform is applied.
+   */
+  private static void overdrawCountsShapes() {
+    DisplayList frame = new DisplayList(64, 64);
+    Polygon square = new Polygon(List.of(
+      new Vector(5, 5), new Vector(-5, 5), new Vector(-5, -5), new Vector(5, -5)));
+    frame.setTransform(2, 0, 0);
+    frame.fillShape(square, 45, 16, 16);
+    check(frame.getDrawCallCount() == 1 && frame.getVertexCount() == 4, "shape not counted");
+    // radius 5 * sqrt(2) around (16, 16), that is from 17.9 to 46.1 in pixels
+    int[] expected = {
+      0, 0, 0, 0,
+      0, 1, 1, 0,
+      0, 1, 1, 0,
+      0, 0, 0, 0};
+    check(Arrays.equals(frame.overdraw(16), expected),
+      "shape overdraw " + Arrays.toString(frame.overdraw(16)));
+  }
+
+
+  /**
+   * @return a game with a fixed seed, after a few seconds of play
+   */
+  private static Space playSeededGame() {
+    Space space = new Space(SEED);
+    for (int tick = 0; tick < TICK_COUNT; tick++) {
+      space.update(TICK_DURATION);
+    }
+    return space;
+  }
+
+  /**
+   * @return the recording of the world layer of a frame of the game
+   */
+  private static DisplayList record(Space space, boolean isAsteroidSpriteModeOn) {
+    DisplayList world = new DisplayList(SIZE, SIZE);
+    CanvasView view = new CanvasView(
+      new DisplayList(SIZE, SIZE), world, new DisplayList(SIZE, SIZE),
+      new ViewModel(space, null));
+    view.setAsteroidSpriteMode(isAsteroidSpriteModeOn);
+    view.render();
+    return world;
+  }
+
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+
+
+  // the game: its seed, and 9 seconds of play, past the first power-up
+  private static final long SEED = 36;
+  private static final int TICK_COUNT = 540;
+  private static final double TICK_DURATION = 1. / 60;
+
+  private static final int SIZE = 400;
+}
@@ -0,0 +1,118 @@
+package tools;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks that the SIMD kernels give the same results as the scalar ones,
+ * bit for bit, on random ranges of vertices of polygons of all sizes,
+ * ending in full vectors or in scalar tails, and on random circles
+ * around the edges of a torus.
+ * <p>
+ * Run from the directory asteroid_fx, once src-simd is compiled into bin
+ * (see SimdVertexKernels):
+ * java --add-modules jdk.incubator.vector -cp bin tools.VertexKernelsTest
+ */
+public class VertexKernelsTest {
+
+  public static void main(String[] args) {
+    check(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+      "run with --add-modules jdk.incubator.vector");
+    VertexKernels simd = VertexKernels.INSTANCE;
+    check(!(simd instanceof ScalarVertexKernels),
+      "SIMD kernels not loaded: compile src-simd, and leave space.simd unset");
+    VertexKernels scalar = new ScalarVertexKernels();
+    Random random = new Random(SEED);
+    for (int round = 0; round < ROUND_COUNT; round++) {
+      checkTransform(scalar, simd, random);
+      checkFindOverlaps(scalar, simd, random);
+    }
+    System.out.println("VertexKernelsTest: OK, " + simd.getClass().getSimpleName());
+  }
+
+
+  private static void checkTransform(VertexKernels scalar, VertexKernels simd, Random random) {
+    int polygonCount = 1 + random.nextInt(MAX_POLYGON_COUNT);
+    int[] starts = new int[polygonCount + 1];
+    for (int p = 0; p < polygonCount; p++) {
+      starts[p + 1] = starts[p] + 1 + random.nextInt(MAX_VERTEX_COUNT);
+    }
+    int vertexCount = starts[polygonCount];
+    double[] localXs = randomValues(random, vertexCount, -50, 50);
+    double[] localYs = randomValues(random, vertexCount, -50, 50);
+    double[] cosines = new double[vertexCount];
+    double[] sines = new double[vertexCount];
+    double[] centerXs = new double[vertexCount];
+    double[] centerYs = new double[vertexCount];
+    for (int p = 0; p < polygonCount; p++) {
+      double angle = 2 * Math.PI * random.nextDouble();
+      double centerX = WIDTH * random.nextDouble();
+      double centerY = HEIGHT * random.nextDouble();
+      for (int i = starts[p]; i < starts[p + 1]; i++) {
+        cosines[i] = Math.cos(angle);
+        sines[i] = Math.sin(angle);
+        centerXs[i] = centerX;
+        centerYs[i] = centerY;
+      }
+    }
+    int from = starts[random.nextInt(polygonCount)];
+    int to = from + 1 + random.nextInt(vertexCount - from);
+
+    double[] scalarXs = new double[vertexCount];
+    double[] scalarYs = new double[vertexCount];
+    double[] simdXs = new double[vertexCount];
+    double[] simdYs = new double[vertexCount];
+    scalar.transform(localXs, localYs, from, to, cosines, sines, centerXs, centerYs,
+      scalarXs, scalarYs);
+    simd.transform(localXs, localYs, from, to, cosines, sines, centerXs, centerYs,
+      simdXs, simdYs);
+    check(Arrays.equals(scalarXs, simdXs) && Arrays.equals(scalarYs, simdYs),
+      "transforms of vertices " + from + " to " + to + " differ");
+  }
+
+  private static void checkFindOverlaps(VertexKernels scalar, VertexKernels simd, Random random) {
+    int circleCount = 1 + random.nextInt(MAX_CIRCLE_COUNT);
+    double[] xs = randomValues(random, circleCount, 0, WIDTH);
+    double[] ys = randomValues(random, circleCount, 0, HEIGHT);
+    double[] radii = randomValues(random, circleCount, 1, MAX_RADIUS);
+    double x = WIDTH * random.nextDouble();
+    double y = HEIGHT * random.nextDouble();
+    double radius = 1 + (MAX_RADIUS - 1) * random.nextDouble();
+    int from = random.nextInt(circleCount);
+    int to = from + 1 + random.nextInt(circleCount - from);
+
+    int[] scalarOverlaps = new int[circleCount];
+    int[] simdOverlaps = new int[circleCount];
+    int scalarCount = scalar.findOverlaps(x, y, radius, xs, ys, radii, from, to,
+      WIDTH, HEIGHT, scalarOverlaps);
+    int simdCount = simd.findOverlaps(x, y, radius, xs, ys, radii, from, to,
+      WIDTH, HEIGHT, simdOverlaps);
+    check(scalarCount == simdCount
+        && Arrays.equals(scalarOverlaps, 0, scalarCount, simdOverlaps, 0, simdCount),
+      "overlaps of circles " + from + " to " + to + " differ");
+  }
+
+  private static double[] randomValues(Random random, int count, double min, double max) {
+    double[] values = new double[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = min + (max - min) * random.nextDouble();
+    }
+    return values;
+  }
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+
+
+  private static final long SEED = 50;
+  private static final int ROUND_COUNT = 2000;
+  private static final int MAX_POLYGON_COUNT = 40;
+  private static final int MAX_VERTEX_COUNT = 20;
+  private static final int MAX_CIRCLE_COUNT = 300;
+  private static final double MAX_RADIUS = 120;
+  private static final double WIDTH = 800;
+  private static final double HEIGHT = 600;
+}
@@ -0,0 +1,95 @@
+package views;
+
+import game.Space;
+import render.Bitmap;
+import render.SoftwareRenderer;
+import viewModel.ViewModel;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Renders a game started with a fixed seed through CanvasView into
+ * software renderers, and compares the frame with a golden image checked
+ * in next to this test. A few pixels may differ, as the simulation uses
+ * Math, whose results may vary by an ulp from one JVM to another.
+ * <p>
+ * Run from the directory asteroid_fx, with the default size of space:
+ * java -cp bin views.CanvasViewGoldenTest. After an intended change of
+ * the drawing, run it with -Dgolden.update=true to rewrite the golden
+ * image, and check the new image before committing it.
+ */
+public class CanvasViewGoldenTest {
+
+  public static void main(String[] args) throws IOException {
+    int[] frame = renderSeededGame();
+    File golden = new File(GOLDEN_PATH);
+    if (Boolean.getBoolean("golden.update")) {
+      write(frame, golden);
+      System.out.println("golden image written to " + golden);
+      return;
+    }
+    int[] expected = read(golden);
+    int differentPixelCount = 0;
+    for (int i = 0; i < frame.length; i++) {
+      if (frame[i] != expected[i]) {
+        differentPixelCount++;
+      }
+    }
+    if (differentPixelCount > MAX_DIFFERENT_PIXEL_COUNT) {
+      File actual = File.createTempFile("canvas-view-", ".png");
+      write(frame, actual);
+      throw new AssertionError(differentPixelCount + " pixels differ from " + golden
+        + ", frame written to " + actual);
+    }
+    System.out.println("CanvasViewGoldenTest: OK, " + differentPixelCount + " pixels differ");
+  }
+
+
+  /**
+   * @return the ARGB pixels of a frame of a game with a fixed seed, after
+   * a few seconds of play with the spaceship idle.
+   */
+  private static int[] renderSeededGame() {
+    Space space = new Space(SEED);
+    for (int tick = 0; tick < TICK_COUNT; tick++) {
+      space.update(TICK_DURATION);
+    }
+    Map<String, Bitmap> images = Bitmap.loadAll(Assets.IMAGE_PATHS);
+    SoftwareRenderer background = new SoftwareRenderer(SIZE, SIZE, images);
+    SoftwareRenderer world = new SoftwareRenderer(SIZE, SIZE, images);
+    SoftwareRenderer hud = new SoftwareRenderer(SIZE, SIZE, images);
+    new CanvasView(background, world, hud, new ViewModel(space, null)).render();
+    return SoftwareRenderer.compose(background, world, hud);
+  }
+
+
+  private static int[] read(File file) throws IOException {
+    BufferedImage image = ImageIO.read(file);
+    if (image == null || image.getWidth() != SIZE || image.getHeight() != SIZE) {
+      throw new AssertionError(file + " is not a golden image of " + SIZE + " by " + SIZE);
+    }
+    return image.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+  }
+
+  private static void write(int[] frame, File file) throws IOException {
+    BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+    image.setRGB(0, 0, SIZE, SIZE, frame, 0, SIZE);
+    ImageIO.write(image, "png", file);
+  }
+
+
+  private static final String GOLDEN_PATH = "test/views/canvas-view-golden.png";
+
+  // the game: its seed, and 9 seconds of play, past the first power-up
+  private static final long SEED = 34;
+  private static final int TICK_COUNT = 540;
+  private static final double TICK_DURATION = 1. / 60;
+
+  // the size of the frame, and how many of its pixels may differ
+  private static final int SIZE = 400;
+  private static final int MAX_DIFFERENT_PIXEL_COUNT = SIZE * SIZE / 1000;
+}
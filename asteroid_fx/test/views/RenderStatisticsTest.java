@@ -0,0 +1,43 @@
+package views;
+
+import render.DisplayList;
+
+/**
+ * Checks the statistics the view takes from a recorded frame: the
+ * counters of the frame, and the cell covered by the most operations.
+ * <p>
+ * Run from the directory asteroid_fx: java -cp bin views.RenderStatisticsTest
+ */
+public class RenderStatisticsTest {
+
+  public static void main(String[] args) {
+    DisplayList frame = new DisplayList(128, 128);
+    frame.setTransform(1, 0, 0);
+    frame.setFill(0xffff0000);
+    // three rectangles over the cell at (64, 32), one elsewhere
+    for (int i = 0; i < 3; i++) {
+      frame.fillRect(70 + i, 40, 10, 10);
+    }
+    frame.setFill(0xff00ff00);
+    frame.fillPolygon(new double[] {2, 20, 10}, new double[] {100, 100, 120}, 3);
+
+    RenderStatistics statistics = new RenderStatistics();
+    statistics.update(frame);
+    check(statistics.getOperationCount() == 7, statistics.getOperationCount() + " operations");
+    check(statistics.getDrawCallCount() == 4, statistics.getDrawCallCount() + " draw calls");
+    check(statistics.getVertexCount() == 15, statistics.getVertexCount() + " vertices");
+    check(statistics.getFillChangeCount() == 2, statistics.getFillChangeCount() + " fill changes");
+    check(statistics.getOverdrawHotspotX() == 64 && statistics.getOverdrawHotspotY() == 32
+        && statistics.getOverdrawHotspotCount() == 3,
+      "hotspot at (" + statistics.getOverdrawHotspotX() + ", " + statistics.getOverdrawHotspotY()
+        + ") covered " + statistics.getOverdrawHotspotCount() + " times");
+    System.out.println("RenderStatisticsTest: OK");
+  }
+
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+}